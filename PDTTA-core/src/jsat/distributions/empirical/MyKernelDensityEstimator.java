@@ -14,13 +14,17 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.commons.math3.util.Precision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import jsat.distributions.ContinuousDistribution;
 import jsat.distributions.empirical.kernelfunc.EpanechnikovKF;
 import jsat.distributions.empirical.kernelfunc.GaussKF;
 import jsat.distributions.empirical.kernelfunc.KernelFunction;
+import jsat.distributions.empirical.kernelfunc.TriweightKF;
 import jsat.distributions.empirical.kernelfunc.UniformKF;
 import jsat.linear.Vec;
 import jsat.math.Function;
@@ -35,6 +39,7 @@ import jsat.utils.ProbailityMatch;
 public class MyKernelDensityEstimator extends ContinuousDistribution
 {
 	private static final long serialVersionUID = -3928228439875019515L;
+	private static Logger logger = LoggerFactory.getLogger(MyKernelDensityEstimator.class);
 	/*
 	 * README Implementation note: The values are stored in sorted order, which allows for fast evaluations. Instead of doing the full loop on each function
 	 * call, O(n) time, we know the bounds on the values that will effect results, so we can do 2 binary searches and then a loop. Though this is still
@@ -61,6 +66,77 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 
 	private final KernelFunction k;
 
+	/**
+	 * Allowed error of the binned evaluation, relative to the maximum of the pdf for the pdf and absolute for the cdf. If not positive, pdf and cdf are
+	 * computed exactly
+	 */
+	private double maxBinningError = 0;
+	/**
+	 * Grid for the binned evaluation. Is created on first use, so it is not serialized
+	 */
+	private transient volatile Grid grid;
+
+	private static final int MIN_GRID_CELLS = 1 << 8;
+	private static final int MAX_GRID_CELLS = 1 << 14;
+
+	/**
+	 * Exact pdf and cdf values on an evenly spaced grid that covers all values with a non zero pdf. Values between two grid points are interpolated linearly.
+	 */
+	private static final class Grid {
+		final double lo, hi, inverseStep;
+		final double[] pdf, cdf;
+
+		Grid(double lo, double hi, double[] pdf, double[] cdf) {
+			this.lo = lo;
+			this.hi = hi;
+			this.inverseStep = (pdf.length - 1) / (hi - lo);
+			this.pdf = pdf;
+			this.cdf = cdf;
+		}
+
+		private double interpolate(double[] values, double x) {
+			final double pos = (x - lo) * inverseStep;
+			final int i = Math.min((int) pos, values.length - 2);
+			return values[i] + (pos - i) * (values[i + 1] - values[i]);
+		}
+
+		double pdf(double x) {
+			if (!(x >= lo && x <= hi)) {
+				return 0;
+			}
+			return interpolate(pdf, x);
+		}
+
+		double cdf(double x) {
+			if (x <= lo) {
+				return cdf[0];
+			}
+			if (!(x < hi)) {
+				return cdf[cdf.length - 1];
+			}
+			return interpolate(cdf, x);
+		}
+
+		/**
+		 * Inverts the interpolated cdf with a binary search over the grid points
+		 */
+		double invCdf(double p) {
+			if (p <= cdf[0]) {
+				return lo;
+			}
+			if (p >= cdf[cdf.length - 1]) {
+				return hi;
+			}
+			int i = Arrays.binarySearch(cdf, p);
+			if (i >= 0) {
+				return lo + i / inverseStep;
+			}
+			// cdf[i] < p < cdf[i + 1]
+			i = -i - 2;
+			return lo + (i + (p - cdf[i]) / (cdf[i + 1] - cdf[i])) / inverseStep;
+		}
+	}
+
 	public static double BandwithGuassEstimate(Vec X) {
 		if (X.length() == 1) {
 			return 1;
@@ -111,6 +187,45 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		this.h = h;
 	}
 
+	/**
+	 * Creates an estimator for data points that contain many repeated values (e.g., integer time delays). If at most half of the values are distinct, every
+	 * distinct value is stored only once with the number of its occurrences as weight. The density, the statistics and the equality are the same as for
+	 * {@link #MyKernelDensityEstimator(Vec, KernelFunction, double)}, but less memory is needed and pdf and cdf have to sum fewer kernels.
+	 * 
+	 * @param dataPoints
+	 *            the data points
+	 * @param k
+	 *            the kernel function
+	 * @param h
+	 *            the bandwidth
+	 * @return the estimator
+	 */
+	public static MyKernelDensityEstimator withRepeatedValues(Vec dataPoints, KernelFunction k, double h) {
+		final double[] sorted = dataPoints.arrayCopy();
+		Arrays.parallelSort(sorted);
+		int distinct = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || Double.compare(sorted[i], sorted[i - 1]) != 0) {
+				distinct++;
+			}
+		}
+		if (2 * distinct > sorted.length) {
+			return new MyKernelDensityEstimator(dataPoints, k, h);
+		}
+		final double[] values = new double[distinct];
+		// the weights are stored as cumulative sums (see setUpX(Vec, double[]))
+		final double[] cumulativeWeights = new double[distinct];
+		int j = -1;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || Double.compare(sorted[i], sorted[i - 1]) != 0) {
+				j++;
+				values[j] = sorted[i];
+			}
+			cumulativeWeights[j] = i + 1;
+		}
+		return new MyKernelDensityEstimator(values, h, dataPoints.mean(), dataPoints.variance(), dataPoints.skewness(), k, sorted.length, cumulativeWeights);
+	}
+
 	/**
 	 * Copy constructor
 	 */
@@ -182,9 +297,93 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 
 	@Override
 	public double pdf(double x) {
+		if (maxBinningError > 0) {
+			return getGrid().pdf(x);
+		}
 		return pdf(x, -1);
 	}
 
+	/**
+	 * Enables the binned evaluation of {@link #pdf(double)} and {@link #cdf(double)}. The exact pdf and cdf values are computed once on an evenly spaced grid
+	 * and then every call interpolates between two grid points in constant time. The grid is refined until the interpolation error at the midpoints of the
+	 * grid cells is at most the given error (relative to the maximum of the pdf for the pdf, absolute for the cdf) or the grid reaches its maximum size, which
+	 * is logged as a warning.
+	 * 
+	 * The error is only measured at the midpoints, so it is not a strict bound. For a smooth pdf the interpolation error of a cell is largest close to its
+	 * midpoint, but in a cell with a jump of the pdf (uniform kernel) the error next to the jump can be up to twice the error at the midpoint.
+	 * 
+	 * @param maxBinningError
+	 *            the allowed error; if not positive, pdf and cdf are computed exactly
+	 */
+	public void setMaxBinningError(double maxBinningError) {
+		this.maxBinningError = maxBinningError;
+		grid = null;
+	}
+
+	public double getMaxBinningError() {
+		return maxBinningError;
+	}
+
+	private Grid getGrid() {
+		Grid result = grid;
+		if (result == null) {
+			synchronized (this) {
+				result = grid;
+				if (result == null) {
+					result = createGrid();
+					grid = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	private Grid createGrid() {
+		final double lo = X[0] - h * k.cutOff();
+		final double hi = X[X.length - 1] + h * k.cutOff();
+		int cells = MIN_GRID_CELLS;
+		double[] pdfValues = new double[cells + 1];
+		double[] cdfValues = new double[cells + 1];
+		for (int i = 0; i <= cells; i++) {
+			final double x = lo + i * (hi - lo) / cells;
+			pdfValues[i] = pdf(x, -1);
+			cdfValues[i] = exactCdf(x);
+		}
+		while (true) {
+			// the midpoints of the cells are the additional grid points of the next finer grid
+			final double[] finePdfValues = new double[2 * cells + 1];
+			final double[] fineCdfValues = new double[2 * cells + 1];
+			double pdfError = 0;
+			double cdfError = 0;
+			double maxPdf = 0;
+			for (int i = 0; i < cells; i++) {
+				final double x = lo + (i + 0.5) * (hi - lo) / cells;
+				final double pdf = pdf(x, -1);
+				final double cdf = exactCdf(x);
+				pdfError = Math.max(pdfError, Math.abs(pdf - (pdfValues[i] + pdfValues[i + 1]) / 2));
+				cdfError = Math.max(cdfError, Math.abs(cdf - (cdfValues[i] + cdfValues[i + 1]) / 2));
+				maxPdf = Math.max(maxPdf, Math.max(pdf, pdfValues[i]));
+				finePdfValues[2 * i] = pdfValues[i];
+				finePdfValues[2 * i + 1] = pdf;
+				fineCdfValues[2 * i] = cdfValues[i];
+				fineCdfValues[2 * i + 1] = cdf;
+			}
+			if (pdfError <= maxBinningError * maxPdf && cdfError <= maxBinningError) {
+				return new Grid(lo, hi, pdfValues, cdfValues);
+			}
+			if (cells >= MAX_GRID_CELLS) {
+				logger.warn("Binning error of {} not reached with {} grid cells (pdf error={}, cdf error={}); using this grid anyway", maxBinningError, cells,
+						pdfError / maxPdf, cdfError);
+				return new Grid(lo, hi, pdfValues, cdfValues);
+			}
+			finePdfValues[2 * cells] = pdfValues[cells];
+			fineCdfValues[2 * cells] = cdfValues[cells];
+			pdfValues = finePdfValues;
+			cdfValues = fineCdfValues;
+			cells *= 2;
+		}
+	}
+
 	/**
 	 * Computes the Leave One Out PDF of the estimator
 	 * 
@@ -210,6 +409,10 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		if (weights.length == 0 && k instanceof UniformKF) {
 			return (to - from) * 0.5 / (sumOFWeights * h);
 		}
+		// the same for weights, because the cumulative weights give the sum of the weights of the elements
+		if (j < 0 && k instanceof UniformKF) {
+			return (cumulativeWeight(to) - cumulativeWeight(from)) * 0.5 / (sumOFWeights * h);
+		}
 
 		double sum = 0;
 		for (int i = Math.max(0, from); i < Math.min(X.length, to + 1); i++) {
@@ -223,6 +426,13 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 
 	@Override
 	public double cdf(double x) {
+		if (maxBinningError > 0) {
+			return getGrid().cdf(x);
+		}
+		return exactCdf(x);
+	}
+
+	private double exactCdf(double x) {
 		// Only values within a certain range will have an effect on the result, so we will skip to that range!
 		int from = Arrays.binarySearch(X, x - h * k.cutOff());
 		int to = Arrays.binarySearch(X, x + h * k.cutOff());
@@ -241,13 +451,46 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		 * entire range, which by definition, is equal to 1.
 		 */
 		// We perform the addition after the summation to reduce the difference size
+		sum += cumulativeWeight(from);
+
+		return sum / sumOFWeights;
+	}
+
+	/**
+	 * @return the sum of the weights of the values with an index smaller than the given one
+	 */
+	private double cumulativeWeight(int index) {
 		if (weights.length == 0) {
-			sum += Math.max(0, from);
+			return Math.max(0, index);
+		} else if (index <= 0) {
+			return 0;
 		} else {
-			sum += weights[from];
+			return weights[index - 1];
+		}
+	}
+
+	/**
+	 * @return the first index after the values that are equal to the value at the given index
+	 */
+	private int runEnd(int index) {
+		int end = index + 1;
+		while (end < X.length && Double.compare(X[end], X[index]) == 0) {
+			end++;
 		}
+		return end;
+	}
 
-		return sum / (X.length);
+	/**
+	 * Returns the value at the given position of the sorted values, where every value is repeated as often as its weight. For unweighted data, this is the
+	 * value at the given index. Fractional positions belong to the value at the position rounded down.
+	 */
+	private double repeatedValue(double position) {
+		if (weights.length == 0) {
+			return X[(int) position];
+		}
+		final int index = Arrays.binarySearch(weights, position);
+		// the cumulative weight of an index is the first position of the next index
+		return X[Math.min(X.length - 1, index < 0 ? -index - 1 : index + 1)];
 	}
 
 	@SuppressWarnings("unused")
@@ -269,8 +512,75 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		}
 	};
 
+	/**
+	 * Draws samples of the estimated density by choosing a value of the data (with a probability proportional to its weight) and adding noise that is
+	 * distributed according to the kernel function scaled by the bandwidth. Every sample needs constant time (logarithmic time for weighted data).
+	 */
+	@Override
+	public double[] sample(int numSamples, Random rand) {
+		final double[] result = new double[numSamples];
+		for (int i = 0; i < numSamples; i++) {
+			final double value;
+			if (weights.length == 0) {
+				value = X[rand.nextInt(X.length)];
+			} else {
+				value = repeatedValue(rand.nextDouble() * sumOFWeights);
+			}
+			result[i] = value + h * sampleKernel(rand);
+		}
+		return result;
+	}
+
+	/**
+	 * Draws a value that is distributed according to the kernel function
+	 */
+	private double sampleKernel(Random rand) {
+		if (k instanceof GaussKF) {
+			return rand.nextGaussian();
+		} else if (k instanceof UniformKF) {
+			return 2 * rand.nextDouble() - 1;
+		} else if (k instanceof EpanechnikovKF) {
+			// the median of three uniform values
+			final double u1 = 2 * rand.nextDouble() - 1;
+			final double u2 = 2 * rand.nextDouble() - 1;
+			final double u3 = 2 * rand.nextDouble() - 1;
+			if (Math.abs(u3) >= Math.abs(u2) && Math.abs(u3) >= Math.abs(u1)) {
+				return u2;
+			}
+			return u3;
+		} else if (k instanceof TriweightKF) {
+			// the median of seven uniform values is beta(4, 4) distributed
+			final double[] u = new double[7];
+			for (int i = 0; i < u.length; i++) {
+				u[i] = rand.nextDouble();
+			}
+			Arrays.sort(u);
+			return 2 * u[3] - 1;
+		}
+		// inverts the integral of the kernel by bisection
+		final double p = rand.nextDouble();
+		double lower = -k.cutOff();
+		double upper = k.cutOff();
+		for (int i = 0; i < 64 && lower < upper; i++) {
+			final double mid = (lower + upper) / 2;
+			if (k.intK(mid) < p) {
+				lower = mid;
+			} else {
+				upper = mid;
+			}
+		}
+		return (lower + upper) / 2;
+	}
+
+	/**
+	 * If the binned evaluation is enabled (see {@link #setMaxBinningError(double)}), this is the inverse of the binned cdf. Otherwise, the value is
+	 * interpolated between the two data points around the given quantile.
+	 */
 	@Override
 	public double invCdf(double p) {
+		if (maxBinningError > 0) {
+			return getGrid().invCdf(p);
+		}
 		int index;
 		double kd0;
 
@@ -279,16 +589,16 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 			index = (int) r;
 			final double pd0 = r - index, pd1 = 1 - pd0;
 			kd0 = k.intK(pd1);
-		} else// CDF can be found from the weights summings
-		{
-			final double XEstimate = p * sumOFWeights;
-			index = Arrays.binarySearch(weights, XEstimate);
-			index = index < 0 ? -index - 1 : index;
-			if (X[index] != 0) {
-				kd0 = 1.0;// -Math.abs((XEstimate-X[index])/X[index]);
-			} else {
-				kd0 = 1.0;
+		} else {
+			// the same as for unweighted data where every value is repeated as often as its weight
+			final double r = p * sumOFWeights;
+			index = (int) r;
+			final double pd0 = r - index, pd1 = 1 - pd0;
+			kd0 = k.intK(pd1);
+			if (index >= sumOFWeights - 1) {
+				return repeatedValue(index) * kd0;
 			}
+			return repeatedValue(index) * kd0 + repeatedValue(index + 1) * (1 - kd0);
 		}
 
 		if (index == X.length - 1) {
@@ -338,6 +648,7 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		}
 
 		this.h = val;
+		grid = null;
 	}
 
 	/**
@@ -357,13 +668,16 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 
 	@Override
 	public MyKernelDensityEstimator clone() {
-		return new MyKernelDensityEstimator(X, h, Xmean, Xvar, Xskew, k, sumOFWeights, weights);
+		final MyKernelDensityEstimator result = new MyKernelDensityEstimator(X, h, Xmean, Xvar, Xskew, k, sumOFWeights, weights);
+		result.maxBinningError = maxBinningError;
+		return result;
 	}
 
 	@Override
 	public void setUsingData(Vec data) {
 		setUpX(data);
 		this.h = BandwithGuassEstimate(data);
+		grid = null;
 	}
 
 	@Override
@@ -407,8 +721,14 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + Arrays.hashCode(X);
 		long temp;
+		// repeated values have the same hash code whether they are stored once with a weight or several times
+		for (int i = 0; i < X.length; i = runEnd(i)) {
+			temp = Double.doubleToLongBits(X[i]);
+			result = prime * result + (int) (temp ^ (temp >>> 32));
+			temp = Double.doubleToLongBits(cumulativeWeight(runEnd(i)) - cumulativeWeight(i));
+			result = prime * result + (int) (temp ^ (temp >>> 32));
+		}
 		temp = Double.doubleToLongBits(mean());
 		result = prime * result + (int) (temp ^ (temp >>> 32));
 		temp = Double.doubleToLongBits(getBandwith());
@@ -416,7 +736,6 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		result = prime * result + ((k == null) ? 0 : k.hashCode());
 		temp = Double.doubleToLongBits(sumOFWeights);
 		result = prime * result + (int) (temp ^ (temp >>> 32));
-		result = prime * result + Arrays.hashCode(weights);
 		return result;
 	}
 
@@ -455,10 +774,22 @@ public class MyKernelDensityEstimator extends ContinuousDistribution
 		} else if (k.getClass()!=other.k.getClass()) {
 			return false;
 		}
-		if (!Arrays.equals(X, other.X)) {
-			return false;
+		// repeated values are equal whether they are stored once with a weight or several times
+		int i = 0;
+		int j = 0;
+		while (i < X.length && j < other.X.length) {
+			final int iEnd = runEnd(i);
+			final int jEnd = other.runEnd(j);
+			if (Double.compare(X[i], other.X[j]) != 0) {
+				return false;
+			}
+			if (Double.compare(cumulativeWeight(iEnd) - cumulativeWeight(i), other.cumulativeWeight(jEnd) - other.cumulativeWeight(j)) != 0) {
+				return false;
+			}
+			i = iEnd;
+			j = jEnd;
 		}
-		if (!Arrays.equals(weights, other.weights)) {
+		if (i < X.length || j < other.X.length) {
 			return false;
 		}
 		return true;
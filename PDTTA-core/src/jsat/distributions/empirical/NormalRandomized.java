@@ -27,7 +27,10 @@ public class NormalRandomized extends Normal {
 	}
 
 	public double getRandomPoint() {
-		final Random random = new Random();
+		return getRandomPoint(new Random());
+	}
+
+	public double getRandomPoint(Random random) {
 		double point = 0.0d;
 
 		do {
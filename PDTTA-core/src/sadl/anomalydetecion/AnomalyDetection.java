@@ -23,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import sadl.detectors.AnomalyDetector;
 import sadl.evaluation.Evaluation;
 import sadl.experiments.ExperimentResult;
+import sadl.input.LazyTimedInput;
 import sadl.input.TimedInput;
 import sadl.interfaces.ProbabilisticModel;
 import sadl.interfaces.ProbabilisticModelLearner;
@@ -131,7 +132,14 @@ public class AnomalyDetection {
 	 */
 	public ExperimentResult test(Path dataFile) throws IOException {
 		checkFileExistance(dataFile);
-		return test(TimedInput.parse(dataFile));
+		if (TimedInput.isBinaryFile(dataFile)) {
+			return test(TimedInput.parseBinary(dataFile));
+		}
+		if (!LazyTimedInput.isLazilyParsable(dataFile)) {
+			// compressed files are decompressed while parsing
+			return test(TimedInput.parse(dataFile));
+		}
+		return test(LazyTimedInput.parse(dataFile));
 	}
 
 	private void checkFileExistance(Path dataFile) throws IOException {
@@ -151,6 +159,21 @@ public class AnomalyDetection {
 		return result;
 	}
 
+	/**
+	 * Tests on a test set that is parsed while testing, so the test set does not have to fit into memory.
+	 * 
+	 * @param testInput
+	 *            the lazily parsed test set
+	 * @return the experiment result
+	 */
+	public ExperimentResult test(LazyTimedInput testInput) {
+
+		final Evaluation eval = new Evaluation(anomalyDetector, learnedModel);
+		final ExperimentResult result = eval.evaluate(testInput);
+		logger.info("F-Measure={}", result.getFMeasure());
+		return result;
+	}
+
 	/**
 	 * 
 	 * @param dataFile
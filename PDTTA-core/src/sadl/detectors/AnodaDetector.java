@@ -12,6 +12,7 @@ package sadl.detectors;
 
 import gnu.trove.list.TDoubleList;
 import sadl.input.TimedWord;
+import sadl.interfaces.ProbabilityCursor;
 import sadl.models.pdta.PDTA;
 import sadl.models.pdta.PDTAState;
 import sadl.models.pdta.PDTATransition;
@@ -24,21 +25,62 @@ public class AnodaDetector extends AnomalyDetector {
 	}
 
 	@Override
-	public boolean isAnomaly(TimedWord word) {
+	protected boolean isAnomaly(TimedWord word, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		final AnodaCursor cursor = new AnodaCursor((PDTA) super.model);
+		for (int i = 0; i < word.length(); i++) {
+			if (!cursor.next(word.getSymbol(i), word.getTimeValue(i), eventLikelihoods, timeLikelihoods)) {
+				return decideWord(eventLikelihoods, timeLikelihoods);
+			}
+		}
+		cursor.end(eventLikelihoods, timeLikelihoods);
+		return decideWord(eventLikelihoods, timeLikelihoods);
+	}
+
+	@Override
+	public DetectionSession createSession() {
+		return new DetectionSession(this, new AnodaCursor((PDTA) super.model));
+	}
 
-		final PDTA pdta = (PDTA) super.model;
+	/**
+	 * The decision is not based on likelihoods. The {@link AnodaCursor} only appends a likelihood of zero when it rejects the word, so a word is an anomaly iff
+	 * there is a likelihood.
+	 */
+	@Override
+	protected boolean decide(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		return !eventLikelihoods.isEmpty();
+	}
 
-		PDTAState currentState = pdta.getRoot();
+	@Override
+	protected boolean decidePrefix(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods, double eventScore, double timeScore) {
+		// a word that cannot be parsed is an anomaly no matter which events follow
+		return decide(eventLikelihoods, timeLikelihoods);
+	}
 
-		for (int i = 0; i < word.length(); i++) {
-			final String eventSymbol = word.getSymbol(i);
-			final double time = word.getTimeValue(i);
+	/**
+	 * Follows the transitions of a {@link PDTA} for a word whose events arrive one by one. The word is rejected as soon as there is no transition for an event
+	 * or if it does not end in a final state. Only then a likelihood of zero is appended.
+	 */
+	private static class AnodaCursor implements ProbabilityCursor {
+
+		private PDTAState currentState;
+		private boolean done = false;
 
+		AnodaCursor(PDTA pdta) {
+			currentState = pdta.getRoot();
+		}
+
+		@Override
+		public boolean next(String eventSymbol, int time, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+			if (done) {
+				return false;
+			}
 			final PDTATransition transition = currentState.getTransition(eventSymbol, time);
 
 			if (transition == null) {
 				// System.out.println("ERROR: (" + currentState.getId() + ")");
-				return true;
+				eventLikelihoods.add(0);
+				done = true;
+				return false;
 			}
 
 			final SubEvent event = transition.getEvent();
@@ -52,19 +94,19 @@ public class AnodaDetector extends AnomalyDetector {
 			}
 
 			currentState = transition.getTarget();
-		}
-
-		if (!currentState.isFinalState()) {
-			// System.out.println("ERROR: ended not in final state. (" + currentState.getId() + ")");
 			return true;
 		}
 
-		return false;
-	}
-
-	@Override
-	protected boolean decide(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
-
-		throw new UnsupportedOperationException();
+		@Override
+		public void end(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+			if (done) {
+				return;
+			}
+			done = true;
+			if (!currentState.isFinalState()) {
+				// System.out.println("ERROR: ended not in final state. (" + currentState.getId() + ")");
+				eventLikelihoods.add(0);
+			}
+		}
 	}
 }
@@ -18,16 +18,23 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.apache.commons.math3.util.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gnu.trove.list.TBooleanList;
 import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TBooleanArrayList;
 import gnu.trove.list.array.TDoubleArrayList;
 import sadl.constants.ProbabilityAggregationMethod;
+import sadl.input.LazyTimedInput;
 import sadl.input.TimedInput;
 import sadl.input.TimedWord;
 import sadl.interfaces.ProbabilisticModel;
@@ -41,6 +48,8 @@ import sadl.utils.Settings;
 public abstract class AnomalyDetector {
 	private static Logger logger = LoggerFactory.getLogger(AnomalyDetector.class);
 	public static final int ILLEGAL_VALUE = -1;
+	// number of sequences that are scored by one task, so the scores of a task are contiguous and the tasks are not too small
+	private static final int SCORE_CHUNK_SIZE = 1 << 10;
 
 	protected ProbabilityAggregationMethod aggType;
 	ProbabilisticModel model;
@@ -74,10 +83,15 @@ public abstract class AnomalyDetector {
 	 */
 	public List<double[]> computeAggregatedLikelihoods(TimedInput testTimedSequences) {
 		final List<double[]> result = new ArrayList<>();
+		// the likelihoods of one word at a time are written into these lists, so they do not have to be created for every word
+		final TDoubleArrayList eventLikelihoods = new TDoubleArrayList();
+		final TDoubleArrayList timeLikelihoods = new TDoubleArrayList();
 		for (final TimedWord ts : testTimedSequences) {
-			final Pair<TDoubleList, TDoubleList> p = model.calculateProbabilities(ts);
-			final double eventProb = aggregate(p.getKey(), aggType);
-			final double timeProb = aggregate(p.getValue(), aggType);
+			eventLikelihoods.resetQuick();
+			timeLikelihoods.resetQuick();
+			model.calculateProbabilities(ts, eventLikelihoods, timeLikelihoods);
+			final double eventProb = aggregate(eventLikelihoods, aggType);
+			final double timeProb = aggregate(timeLikelihoods, aggType);
 			result.add(new double[] { eventProb, timeProb });
 		}
 		return result;
@@ -89,23 +103,31 @@ public abstract class AnomalyDetector {
 	}
 
 	public Pair<TDoubleList, TDoubleList> computeAggregatedTrendLikelihood(TDoubleList eventLHs, TDoubleList timeLHs) {
-		final TDoubleList partialEventLHs = new TDoubleArrayList();
-		final TDoubleList partialTimeLHs = new TDoubleArrayList();
-		for (int i = 1; i <= eventLHs.size(); i++) {
-			final TDoubleList subList = eventLHs.subList(0, i);
-			partialEventLHs.add(aggregate(subList, aggType));
-		}
-		for (int i = 1; i <= timeLHs.size(); i++) {
-			final TDoubleList subList = timeLHs.subList(0, i);
-			partialTimeLHs.add(aggregate(subList, aggType));
-		}
-		return Pair.create(partialEventLHs, partialTimeLHs);
+		return Pair.create(aggregatePrefixes(eventLHs, aggType), aggregatePrefixes(timeLHs, aggType));
 	}
 
 	public boolean isAnomaly(TimedWord s) {
-		final Pair<TDoubleList, TDoubleList> p = model.calculateProbabilities(s);
-		final TDoubleList eventLikelihoods = p.getKey();
-		final TDoubleList timeLikelihoods = p.getValue();
+		return isAnomaly(s, new TDoubleArrayList(s.length() + 1), new TDoubleArrayList(s.length()));
+	}
+
+	/**
+	 * Decides whether the given word is an anomaly in the same way as {@link #isAnomaly(TimedWord)}. The likelihoods the decision is based on are appended
+	 * to the given lists, so they can be reused for several words.
+	 * 
+	 * @param s
+	 *            the word
+	 * @param eventLikelihoods
+	 *            an empty list for the event likelihoods
+	 * @param timeLikelihoods
+	 *            an empty list for the time likelihoods
+	 * @return true for anomaly, false otherwise
+	 */
+	protected boolean isAnomaly(TimedWord s, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		model.calculateProbabilities(s, eventLikelihoods, timeLikelihoods);
+		return decideWord(eventLikelihoods, timeLikelihoods);
+	}
+
+	boolean decideWord(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
 		if (eventLikelihoods.size() < timeLikelihoods.size()) {
 			throw new IllegalStateException("There must be at least as many event likelihoods as time likelihoods, but there are not: "
 					+ eventLikelihoods.size() + "(events) vs. " + timeLikelihoods.size() + "(time values)");
@@ -122,6 +144,34 @@ public abstract class AnomalyDetector {
 	 */
 	protected abstract boolean decide(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods);
 
+	/**
+	 * Decides whether the likelihoods of the events of a word that were seen so far already indicate an anomaly, no matter which events follow. This is used
+	 * by a {@link DetectionSession} after every event, so it should take constant time. The default implementation never decides early, so the word is only
+	 * decided when it ends.
+	 * 
+	 * @param eventLikelihoods
+	 *            the event likelihoods of the events that were seen so far
+	 * @param timeLikelihoods
+	 *            the time likelihoods of the events that were seen so far
+	 * @param eventScore
+	 *            the aggregated event likelihoods
+	 * @param timeScore
+	 *            the aggregated time likelihoods
+	 * @return true if the word is an anomaly, false if this cannot be decided yet
+	 */
+	protected boolean decidePrefix(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods, double eventScore, double timeScore) {
+		return false;
+	}
+
+	/**
+	 * Creates a session that decides whether a word is an anomaly while its events arrive one by one.
+	 * 
+	 * @return the session for one word
+	 */
+	public DetectionSession createSession() {
+		return new DetectionSession(this, model.createCursor());
+	}
+
 	public boolean[] areAnomalies(TimedInput testSequences) {
 		if (Settings.isDebug()) {
 			final Path testLabelFile = Paths.get("testLabels.csv");
@@ -155,6 +205,112 @@ public abstract class AnomalyDetector {
 		return result;
 	}
 
+	/**
+	 * Decides for every timed sequence of a lazily parsed test set whether it is an anomaly. Only the decisions are kept in memory, not the sequences.
+	 * 
+	 * @param testSequences
+	 *            the lazily parsed test set
+	 * @return the decisions in the order of the sequences in the file (true for anomaly, false otherwise)
+	 */
+	public boolean[] areAnomalies(LazyTimedInput testSequences) {
+		if (Settings.isDebug()) {
+			final Path testLabelFile = Paths.get("testLabels.csv");
+			try (BufferedWriter bw = Files.newBufferedWriter(testLabelFile, StandardCharsets.UTF_8)) {
+				for (final TimedWord s : testSequences) {
+					bw.append(s.getLabel().toString());
+					bw.append('\n');
+				}
+			} catch (final IOException e) {
+				logger.error("Unexpected exception occured", e);
+			}
+		}
+		final TBooleanList result;
+		// parallelism does not destroy determinism because the stream is ordered
+		try (Stream<TimedWord> words = testSequences.stream(Settings.isParallel())) {
+			result = words.map(this::isAnomaly).collect(TBooleanArrayList::new, TBooleanList::add, TBooleanList::addAll);
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * Computes the aggregated likelihoods of every timed sequence of a test set and decides whether it is an anomaly.
+	 * 
+	 * @param testSequences
+	 *            the test set
+	 * @param executor
+	 *            the executor that scores the sequences or {@code null} to score them in the calling thread
+	 * @return the aggregated likelihoods and the decisions in the order of the sequences
+	 * @see #score(TimedInput, int, int, ExecutorService)
+	 */
+	public AnomalyScores score(TimedInput testSequences, ExecutorService executor) {
+		return score(testSequences, 0, testSequences.size(), executor);
+	}
+
+	/**
+	 * Computes the aggregated likelihoods of the timed sequences in a range of a test set and decides whether they are anomalies. The likelihoods are
+	 * aggregated in the same way as in {@link #computeAggregatedLikelihoods(TimedInput)} and the decisions are the same as the ones of
+	 * {@link #isAnomaly(TimedWord)}.
+	 * 
+	 * The range is split into chunks of consecutive sequences and every chunk is one task of the executor. So a task scores many sequences with the same
+	 * lists for the likelihoods and writes a contiguous part of the result arrays. The executor is not shut down.
+	 * 
+	 * @param testSequences
+	 *            the test set
+	 * @param from
+	 *            the index of the first sequence to score (inclusive)
+	 * @param to
+	 *            the index of the last sequence to score (exclusive)
+	 * @param executor
+	 *            the executor that scores the chunks or {@code null} to score them in the calling thread
+	 * @return the aggregated likelihoods and the decisions in the order of the sequences
+	 */
+	public AnomalyScores score(TimedInput testSequences, int from, int to, ExecutorService executor) {
+		if (from < 0 || to > testSequences.size() || from > to) {
+			throw new IndexOutOfBoundsException("Cannot score the sequences from " + from + " to " + to + " of a test set with " + testSequences.size()
+					+ " sequences");
+		}
+		final AnomalyScores result = new AnomalyScores(from, to - from);
+		final int chunks = ((to - from) + SCORE_CHUNK_SIZE - 1) / SCORE_CHUNK_SIZE;
+		final IntConsumer f = chunk -> {
+			// the lists belong to the chunk and not to the thread because a thread that waits for a parallel model may score another chunk meanwhile
+			final TDoubleArrayList eventLikelihoods = new TDoubleArrayList();
+			final TDoubleArrayList timeLikelihoods = new TDoubleArrayList();
+			final int start = from + (chunk * SCORE_CHUNK_SIZE);
+			final int end = Math.min(to, start + SCORE_CHUNK_SIZE);
+			for (int i = start; i < end; i++) {
+				eventLikelihoods.resetQuick();
+				timeLikelihoods.resetQuick();
+				final boolean anomaly = isAnomaly(testSequences.get(i), eventLikelihoods, timeLikelihoods);
+				result.set(i - from, aggregate(eventLikelihoods, aggType), aggregate(timeLikelihoods, aggType), anomaly);
+			}
+		};
+		if (executor == null) {
+			IntStream.range(0, chunks).forEach(f);
+			return result;
+		}
+		final List<Future<?>> futures = new ArrayList<>(chunks);
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			final int c = chunk;
+			futures.add(executor.submit(() -> f.accept(c)));
+		}
+		try {
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			futures.forEach(future -> future.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while scoring the test sequences", e);
+		} catch (final ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Unexpected exception while scoring the test sequences", e.getCause());
+		}
+		return result;
+	}
+
 	public void setModel(ProbabilisticModel model) {
 		this.model = model;
 	}
@@ -202,6 +358,26 @@ public abstract class AnomalyDetector {
 		return result;
 	}
 
+	/**
+	 * Aggregates every prefix of the given list in the same way as {@link #aggregate(TDoubleList, ProbabilityAggregationMethod)}. The
+	 * {@link RunningAggregate} is carried from one prefix to the next, so all prefixes are aggregated in linear time.
+	 * 
+	 * @param list
+	 *            the probabilities
+	 * @param aggType
+	 *            the aggregation method
+	 * @return the aggregated prefixes; the element at index i is the aggregation of the first i + 1 probabilities
+	 */
+	public static TDoubleList aggregatePrefixes(TDoubleList list, ProbabilityAggregationMethod aggType) {
+		final TDoubleList prefixes = new TDoubleArrayList(list.size());
+		final RunningAggregate aggregate = new RunningAggregate(aggType);
+		for (int i = 0; i < list.size(); i++) {
+			aggregate.add(list.get(i));
+			prefixes.add(aggregate.get());
+		}
+		return prefixes;
+	}
+
 	/**
 	 * Computes the product of the probabilities in log space. @param probabilities the probabilities @return the product of the probabilities in log space
 	 */
@@ -0,0 +1,76 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.detectors;
+
+/**
+ * The aggregated likelihoods and the decisions of an {@link AnomalyDetector} for a range of timed sequences of a test set (see
+ * {@link AnomalyDetector#score(sadl.input.TimedInput, int, int, java.util.concurrent.ExecutorService)}). The values for the sequence with index
+ * {@code getFrom() + i} in the test set are stored at index {@code i} of the arrays. The arrays are not copied, so they must not be changed.
+ *
+ * @author Timo Klerx
+ *
+ */
+public final class AnomalyScores {
+
+	private final int from;
+	private final double[] eventScores;
+	private final double[] timeScores;
+	private final boolean[] anomalies;
+
+	AnomalyScores(int from, int size) {
+		this.from = from;
+		eventScores = new double[size];
+		timeScores = new double[size];
+		anomalies = new boolean[size];
+	}
+
+	/**
+	 * @return the index of the first scored sequence in the test set
+	 */
+	public int getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return the number of scored sequences
+	 */
+	public int size() {
+		return anomalies.length;
+	}
+
+	/**
+	 * @return the aggregated event likelihoods or {@link AnomalyDetector#ILLEGAL_VALUE} for sequences without event likelihoods
+	 */
+	public double[] getEventScores() {
+		return eventScores;
+	}
+
+	/**
+	 * @return the aggregated time likelihoods or {@link AnomalyDetector#ILLEGAL_VALUE} for sequences without time likelihoods
+	 */
+	public double[] getTimeScores() {
+		return timeScores;
+	}
+
+	/**
+	 * @return the decisions (true for anomaly, false otherwise)
+	 */
+	public boolean[] getAnomalies() {
+		return anomalies;
+	}
+
+	void set(int index, double eventScore, double timeScore, boolean anomaly) {
+		eventScores[index] = eventScore;
+		timeScores[index] = timeScore;
+		anomalies[index] = anomaly;
+	}
+
+}
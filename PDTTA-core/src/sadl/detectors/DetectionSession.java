@@ -0,0 +1,144 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.detectors;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+import sadl.interfaces.ProbabilityCursor;
+
+/**
+ * Decides whether a word is an anomaly while its events arrive one by one (e.g. from a running system). The session keeps the state of the model in the word
+ * (see {@link ProbabilityCursor}) and the aggregated likelihoods of the events so far, so an event is processed without looking at the former events again.
+ * After every event the detector is asked whether the word is already an anomaly (see
+ * {@link AnomalyDetector#decidePrefix(TDoubleList, TDoubleList, double, double)}). When the word ends, the decision and the scores are the same as the ones
+ * of {@link AnomalyDetector#isAnomaly(sadl.input.TimedWord)} and {@link AnomalyDetector#computeAggregatedLikelihoods(sadl.input.TimedInput)}.
+ * 
+ * A session is created with {@link AnomalyDetector#createSession()}, is used for a single word and must not be shared between threads.
+ * 
+ * @author Timo Klerx
+ *
+ */
+public final class DetectionSession {
+
+	private final AnomalyDetector detector;
+	private final ProbabilityCursor cursor;
+	private final TDoubleList eventLikelihoods = new TDoubleArrayList();
+	private final TDoubleList timeLikelihoods = new TDoubleArrayList();
+	private RunningAggregate eventScore;
+	private RunningAggregate timeScore;
+	private int length = 0;
+	private boolean parsing = true;
+	private boolean anomaly = false;
+	private boolean ended = false;
+
+	DetectionSession(AnomalyDetector detector, ProbabilityCursor cursor) {
+		this.detector = detector;
+		this.cursor = cursor;
+		eventScore = new RunningAggregate(detector.aggType);
+		timeScore = new RunningAggregate(detector.aggType);
+	}
+
+	/**
+	 * Processes the next event of the word. Once the word is an anomaly, it stays one.
+	 * 
+	 * @param symbol
+	 *            the symbol of the event
+	 * @param timeDelay
+	 *            the time delay of the event
+	 * @return true if the word is an anomaly because of the events so far, false otherwise
+	 */
+	public boolean push(String symbol, int timeDelay) {
+		if (ended) {
+			throw new IllegalStateException("The word has already ended");
+		}
+		length++;
+		if (!parsing) {
+			// the likelihoods of a word that cannot be parsed do not change anymore
+			return anomaly;
+		}
+		final int eventCount = eventLikelihoods.size();
+		final int timeCount = timeLikelihoods.size();
+		if (!cursor.next(symbol, timeDelay, eventLikelihoods, timeLikelihoods)) {
+			// the model may have replaced the likelihoods of the word, so the aggregations are started again
+			parsing = false;
+			eventScore = new RunningAggregate(detector.aggType);
+			timeScore = new RunningAggregate(detector.aggType);
+		} else if (eventLikelihoods.size() == eventCount && timeLikelihoods.size() == timeCount) {
+			// the model decides when the word ends
+			return anomaly;
+		}
+		update();
+		if (!anomaly) {
+			anomaly = detector.decidePrefix(eventLikelihoods, timeLikelihoods, eventScore.get(), timeScore.get());
+		}
+		return anomaly;
+	}
+
+	/**
+	 * Ends the word and decides whether it is an anomaly in the same way as {@link AnomalyDetector#isAnomaly(sadl.input.TimedWord)}.
+	 * 
+	 * @return true for anomaly, false otherwise
+	 */
+	public boolean end() {
+		if (!ended) {
+			cursor.end(eventLikelihoods, timeLikelihoods);
+			update();
+			anomaly = detector.decideWord(eventLikelihoods, timeLikelihoods);
+			ended = true;
+		}
+		return anomaly;
+	}
+
+	private void update() {
+		for (int i = eventScore.size(); i < eventLikelihoods.size(); i++) {
+			eventScore.add(eventLikelihoods.get(i));
+		}
+		for (int i = timeScore.size(); i < timeLikelihoods.size(); i++) {
+			timeScore.add(timeLikelihoods.get(i));
+		}
+	}
+
+	/**
+	 * @return true if the word is an anomaly because of the events so far or, after the word ended, the decision for the word
+	 */
+	public boolean isAnomaly() {
+		return anomaly;
+	}
+
+	/**
+	 * @return true if {@link #end()} was called
+	 */
+	public boolean hasEnded() {
+		return ended;
+	}
+
+	/**
+	 * @return the number of events that were pushed
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the aggregated event likelihoods so far or {@link AnomalyDetector#ILLEGAL_VALUE} if there are none
+	 */
+	public double getEventScore() {
+		return eventScore.get();
+	}
+
+	/**
+	 * @return the aggregated time likelihoods so far or {@link AnomalyDetector#ILLEGAL_VALUE} if there are none
+	 */
+	public double getTimeScore() {
+		return timeScore.get();
+	}
+
+}
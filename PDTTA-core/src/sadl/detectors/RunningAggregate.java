@@ -0,0 +1,122 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.detectors;
+
+import sadl.constants.ProbabilityAggregationMethod;
+
+/**
+ * Aggregation of a growing list of probabilities. Only the state of the aggregation (the sum of the logarithms, the product or the value of the t-norm) is
+ * kept, so adding a probability takes constant time. The operations are applied in the same order as in
+ * {@link AnomalyDetector#aggregate(gnu.trove.list.TDoubleList, ProbabilityAggregationMethod)}, so {@link #get()} returns exactly the aggregation of all
+ * probabilities that were added.
+ *
+ * @author Timo Klerx
+ *
+ */
+public final class RunningAggregate {
+
+	private final ProbabilityAggregationMethod aggType;
+	private double state;
+	private int size = 0;
+
+	public RunningAggregate(ProbabilityAggregationMethod aggType) {
+		this.aggType = aggType;
+		state = aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY_UNSTABLE ? 1 : 0;
+	}
+
+	/**
+	 * Adds the next probability.
+	 *
+	 * @param probability
+	 *            the probability
+	 */
+	public void add(double probability) {
+		if (aggType == ProbabilityAggregationMethod.MULTIPLY) {
+			state += Math.log(probability);
+		} else if (aggType == ProbabilityAggregationMethod.LUK_T) {
+			state = size == 0 ? probability : Math.max(0, probability + state - 1);
+		} else if (aggType == ProbabilityAggregationMethod.LUK_STRONG_DISJUNCTION) {
+			state = size == 0 ? probability : Math.min(1, probability + state);
+		} else if (aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY) {
+			if (probability < 0) {
+				throw new IllegalStateException("Probability for index " + size + " is negative.");
+			}
+			state += Math.log(probability);
+		} else if (aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY_UNSTABLE) {
+			state *= probability;
+		}
+		size++;
+	}
+
+	/**
+	 * @return the number of probabilities that were added
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the aggregation of the probabilities that were added or {@link AnomalyDetector#ILLEGAL_VALUE} if there are none
+	 */
+	public double get() {
+		if (size == 0) {
+			return AnomalyDetector.ILLEGAL_VALUE;
+		}
+		return result(state, size);
+	}
+
+	/**
+	 * Returns the aggregation of the probabilities that were added to this and to the other aggregation, as if the probabilities of the other aggregation
+	 * were added after the ones of this aggregation. Both use the same aggregation method. The result may differ in the last bits from adding all
+	 * probabilities to one aggregation, because the states are combined instead of adding the probabilities one by one.
+	 *
+	 * @param other
+	 *            the aggregation of the probabilities that follow
+	 * @return the aggregation of all probabilities or {@link AnomalyDetector#ILLEGAL_VALUE} if there are none
+	 */
+	public double get(RunningAggregate other) {
+		if (other.size == 0) {
+			return get();
+		}
+		if (size == 0) {
+			return other.get();
+		}
+		double combined = -1;
+		if (aggType == ProbabilityAggregationMethod.MULTIPLY || aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY) {
+			combined = state + other.state;
+		} else if (aggType == ProbabilityAggregationMethod.LUK_T) {
+			// the Lukasiewicz t-norm and t-conorm are associative
+			combined = Math.max(0, other.state + state - 1);
+		} else if (aggType == ProbabilityAggregationMethod.LUK_STRONG_DISJUNCTION) {
+			combined = Math.min(1, other.state + state);
+		} else if (aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY_UNSTABLE) {
+			combined = state * other.state;
+		}
+		return result(combined, size + other.size);
+	}
+
+	private double result(double s, int n) {
+		double result = -1;
+		if (aggType == ProbabilityAggregationMethod.MULTIPLY || aggType == ProbabilityAggregationMethod.LUK_T
+				|| aggType == ProbabilityAggregationMethod.LUK_STRONG_DISJUNCTION) {
+			result = s;
+		} else if (aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY) {
+			result = Math.exp(s / n);
+		} else if (aggType == ProbabilityAggregationMethod.NORMALIZED_MULTIPLY_UNSTABLE) {
+			result = Math.pow(s, 1.0 / n);
+		}
+		if (Double.isNaN(result)) {
+			throw new IllegalStateException("Result of probability aggregation must not be NaN");
+		}
+		return result;
+	}
+
+}
@@ -17,6 +17,7 @@ import org.apache.commons.math3.util.Pair;
 
 import gnu.trove.list.TDoubleList;
 import sadl.constants.ProbabilityAggregationMethod;
+import sadl.detectors.featureCreators.FeatureAccumulator;
 import sadl.detectors.featureCreators.FeatureCreator;
 import sadl.input.TimedInput;
 import sadl.input.TimedWord;
@@ -48,12 +49,11 @@ public class VectorDetector extends AnomalyDetector implements TrainableDetector
 	@Override
 	protected boolean decide(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
 		if (aggSublists) {
-			// do sublists over timelikelihoods because the time list is shorter than the event list
-			for (int i = 1; i <= timeLikelihoods.size(); i++) {
-				final TDoubleList eventSubList = eventLikelihoods.subList(0, i);
-				final TDoubleList timeSubList = timeLikelihoods.subList(0, i);
-				final double[] vector = fc.createFeatures(eventSubList, timeSubList, aggType);
-				if (c.isOutlier(vector)) {
+			// the prefixes end at the last time likelihood because the time list is shorter than the event list
+			final FeatureAccumulator features = fc.createAccumulator(aggType);
+			for (int i = 0; i < timeLikelihoods.size(); i++) {
+				features.add(eventLikelihoods.get(i), timeLikelihoods.get(i));
+				if (c.isOutlier(features.getFeatures())) {
 					return true;
 				}
 			}
@@ -72,11 +72,10 @@ public class VectorDetector extends AnomalyDetector implements TrainableDetector
 			if (aggSublists) {
 				final TDoubleList eventLikelihoods = p.getKey();
 				final TDoubleList timeLikelihoods = p.getValue();
-				for (int i = 1; i <= timeLikelihoods.size(); i++) {
-					final TDoubleList eventSubList = eventLikelihoods.subList(0, i);
-					final TDoubleList timeSubList = timeLikelihoods.subList(0, i);
-					final double[] vector = fc.createFeatures(eventSubList, timeSubList, aggType);
-					trainingSet.add(vector);
+				final FeatureAccumulator features = fc.createAccumulator(aggType);
+				for (int i = 0; i < timeLikelihoods.size(); i++) {
+					features.add(eventLikelihoods.get(i), timeLikelihoods.get(i));
+					trainingSet.add(features.getFeatures());
 				}
 			} else {
 				trainingSet.add(fc.createFeatures(p.getKey(), p.getValue(), aggType));
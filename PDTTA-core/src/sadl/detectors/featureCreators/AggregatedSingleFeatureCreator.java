@@ -14,6 +14,7 @@ import gnu.trove.list.TDoubleList;
 import gnu.trove.list.array.TDoubleArrayList;
 import sadl.constants.ProbabilityAggregationMethod;
 import sadl.detectors.AnomalyDetector;
+import sadl.detectors.RunningAggregate;
 
 public class AggregatedSingleFeatureCreator implements FeatureCreator {
 
@@ -29,4 +30,26 @@ public class AggregatedSingleFeatureCreator implements FeatureCreator {
 		probabilities.addAll(timeLikelihoods);
 		return new double[] { AnomalyDetector.aggregate(probabilities, aggType) };
 	}
+
+	/**
+	 * The event and the time likelihoods are aggregated separately and the two aggregations are combined (see {@link RunningAggregate#get(RunningAggregate)}),
+	 * so the features may differ in the last bits from {@link #createFeatures(TDoubleList, TDoubleList, ProbabilityAggregationMethod)}.
+	 */
+	@Override
+	public FeatureAccumulator createAccumulator(ProbabilityAggregationMethod aggType) {
+		final RunningAggregate eventAgg = new RunningAggregate(aggType);
+		final RunningAggregate timeAgg = new RunningAggregate(aggType);
+		return new FeatureAccumulator() {
+			@Override
+			public void add(double eventLikelihood, double timeLikelihood) {
+				eventAgg.add(eventLikelihood);
+				timeAgg.add(timeLikelihood);
+			}
+
+			@Override
+			public double[] getFeatures() {
+				return new double[] { eventAgg.get(timeAgg) };
+			}
+		};
+	}
 }
@@ -0,0 +1,38 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.detectors.featureCreators;
+
+/**
+ * Creates the features of a {@link FeatureCreator} for a growing pair of event and time likelihood lists. After the likelihoods of the first i events
+ * were added, {@link #getFeatures()} returns the same features as {@link FeatureCreator#createFeatures(gnu.trove.list.TDoubleList, gnu.trove.list.TDoubleList,
+ * sadl.constants.ProbabilityAggregationMethod)} for the prefixes of length i of both lists, but the features are updated with every event instead of being
+ * created from scratch.
+ * 
+ * @author Timo Klerx
+ *
+ */
+public interface FeatureAccumulator {
+
+	/**
+	 * Appends the likelihoods of the next event to both lists.
+	 * 
+	 * @param eventLikelihood
+	 *            the event likelihood
+	 * @param timeLikelihood
+	 *            the time likelihood
+	 */
+	void add(double eventLikelihood, double timeLikelihood);
+
+	/**
+	 * @return the features of the likelihoods that were added so far; at least one event must have been added
+	 */
+	double[] getFeatures();
+}
@@ -11,6 +11,7 @@
 package sadl.detectors.featureCreators;
 
 import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
 import sadl.constants.ProbabilityAggregationMethod;
 
 /**
@@ -22,4 +23,30 @@ public interface FeatureCreator {
 	public double[] createFeatures(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods);
 
 	double[] createFeatures(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods, ProbabilityAggregationMethod aggType);
+
+	/**
+	 * Creates an accumulator that returns the same features as {@link #createFeatures(TDoubleList, TDoubleList, ProbabilityAggregationMethod)} for growing
+	 * prefixes of the likelihood lists. The default accumulator keeps the likelihoods and creates the features from scratch for every prefix, so creators
+	 * that can update their features with every event should override this method (and subclasses that change the features must override it as well).
+	 * 
+	 * @param aggType
+	 *            the aggregation method
+	 * @return the accumulator for the likelihoods of one word
+	 */
+	default FeatureAccumulator createAccumulator(ProbabilityAggregationMethod aggType) {
+		final TDoubleList eventLikelihoods = new TDoubleArrayList();
+		final TDoubleList timeLikelihoods = new TDoubleArrayList();
+		return new FeatureAccumulator() {
+			@Override
+			public void add(double eventLikelihood, double timeLikelihood) {
+				eventLikelihoods.add(eventLikelihood);
+				timeLikelihoods.add(timeLikelihood);
+			}
+
+			@Override
+			public double[] getFeatures() {
+				return createFeatures(eventLikelihoods, timeLikelihoods, aggType);
+			}
+		};
+	}
 }
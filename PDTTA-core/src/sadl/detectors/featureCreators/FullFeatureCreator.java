@@ -39,4 +39,33 @@ public class FullFeatureCreator extends SmallFeatureCreator {
 		}
 		return new double[] { superCall[0], superCall[1], superCall[2], eventMean, superCall[3], superCall[4], superCall[5], timeMean };
 	}
+
+	@Override
+	public FeatureAccumulator createAccumulator(ProbabilityAggregationMethod aggType) {
+		return new FullAccumulator(aggType);
+	}
+
+	protected static class FullAccumulator extends SmallAccumulator {
+		private double eventSum = 0;
+		private double timeSum = 0;
+
+		protected FullAccumulator(ProbabilityAggregationMethod aggType) {
+			super(aggType);
+		}
+
+		@Override
+		public void add(double eventLikelihood, double timeLikelihood) {
+			super.add(eventLikelihood, timeLikelihood);
+			eventSum += eventLikelihood;
+			timeSum += timeLikelihood;
+		}
+
+		@Override
+		public double[] getFeatures() {
+			final double[] superCall = super.getFeatures();
+			final double eventMean = eventSum / size;
+			final double timeMean = timeSum / size;
+			return new double[] { superCall[0], superCall[1], superCall[2], eventMean, superCall[3], superCall[4], superCall[5], timeMean };
+		}
+	}
 }
@@ -13,6 +13,7 @@ package sadl.detectors.featureCreators;
 import gnu.trove.list.TDoubleList;
 import sadl.constants.ProbabilityAggregationMethod;
 import sadl.detectors.AnomalyDetector;
+import sadl.detectors.RunningAggregate;
 
 public class MinimalFeatureCreator implements FeatureCreator {
 
@@ -30,4 +31,33 @@ public class MinimalFeatureCreator implements FeatureCreator {
 		return createFeatures(eventLikelihoods, timeLikelihoods, ProbabilityAggregationMethod.NORMALIZED_MULTIPLY);
 	}
 
+	@Override
+	public FeatureAccumulator createAccumulator(ProbabilityAggregationMethod aggType) {
+		return new MinimalAccumulator(aggType);
+	}
+
+	protected static class MinimalAccumulator implements FeatureAccumulator {
+		private final RunningAggregate eventAgg;
+		private final RunningAggregate timeAgg;
+		// number of events that were added
+		protected int size = 0;
+
+		protected MinimalAccumulator(ProbabilityAggregationMethod aggType) {
+			eventAgg = new RunningAggregate(aggType);
+			timeAgg = new RunningAggregate(aggType);
+		}
+
+		@Override
+		public void add(double eventLikelihood, double timeLikelihood) {
+			eventAgg.add(eventLikelihood);
+			timeAgg.add(timeLikelihood);
+			size++;
+		}
+
+		@Override
+		public double[] getFeatures() {
+			return new double[] { eventAgg.get(), timeAgg.get() };
+		}
+	}
+
 }
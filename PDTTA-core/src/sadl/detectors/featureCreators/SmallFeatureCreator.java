@@ -40,6 +40,42 @@ public class SmallFeatureCreator extends MinimalFeatureCreator {
 		return new double[] { eventMax, eventMin, superCall[0], timeMax, timeMin, superCall[1] };
 	}
 
+	@Override
+	public FeatureAccumulator createAccumulator(ProbabilityAggregationMethod aggType) {
+		return new SmallAccumulator(aggType);
+	}
+
+	protected static class SmallAccumulator extends MinimalAccumulator {
+		private double eventMax = Double.NEGATIVE_INFINITY;
+		private double eventMin = Double.POSITIVE_INFINITY;
+		private double timeMax = Double.NEGATIVE_INFINITY;
+		private double timeMin = Double.POSITIVE_INFINITY;
+
+		protected SmallAccumulator(ProbabilityAggregationMethod aggType) {
+			super(aggType);
+		}
 
+		@Override
+		public void add(double eventLikelihood, double timeLikelihood) {
+			super.add(eventLikelihood, timeLikelihood);
+			if (eventLikelihood > eventMax) {
+				eventMax = eventLikelihood;
+			}
+			if (eventLikelihood < eventMin) {
+				eventMin = eventLikelihood;
+			}
+			if (timeLikelihood > timeMax) {
+				timeMax = timeLikelihood;
+			}
+			if (timeLikelihood < timeMin) {
+				timeMin = timeLikelihood;
+			}
+		}
 
+		@Override
+		public double[] getFeatures() {
+			final double[] superCall = super.getFeatures();
+			return new double[] { eventMax, eventMin, superCall[0], timeMax, timeMin, superCall[1] };
+		}
+	}
 }
@@ -10,6 +10,8 @@
  */
 package sadl.detectors.featureCreators;
 
+import java.util.Arrays;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,4 +78,74 @@ public class UberFeatureCreator extends FullFeatureCreator {
 		}
 		return stat;
 	}
+
+	@Override
+	public FeatureAccumulator createAccumulator(ProbabilityAggregationMethod aggType) {
+		return new UberAccumulator(aggType);
+	}
+
+	protected static class UberAccumulator extends FullAccumulator {
+		private final OnLineStatistics eventStat = new OnLineStatistics();
+		private final OnLineStatistics timeStat = new OnLineStatistics();
+		private double lastEvent;
+		private double lastTime;
+		private double eventDiffMin = Double.POSITIVE_INFINITY;
+		private double eventDiffMax = Double.NEGATIVE_INFINITY;
+		private double timeDiffMin = Double.POSITIVE_INFINITY;
+		private double timeDiffMax = Double.NEGATIVE_INFINITY;
+
+		protected UberAccumulator(ProbabilityAggregationMethod aggType) {
+			super(aggType);
+		}
+
+		@Override
+		public void add(double eventLikelihood, double timeLikelihood) {
+			if (size > 0) {
+				final double eventDiff = Math.abs(eventLikelihood - lastEvent);
+				final double timeDiff = Math.abs(timeLikelihood - lastTime);
+				if (eventDiff < eventDiffMin) {
+					eventDiffMin = eventDiff;
+				}
+				if (eventDiff > eventDiffMax) {
+					eventDiffMax = eventDiff;
+				}
+				if (timeDiff < timeDiffMin) {
+					timeDiffMin = timeDiff;
+				}
+				if (timeDiff > timeDiffMax) {
+					timeDiffMax = timeDiff;
+				}
+			}
+			super.add(eventLikelihood, timeLikelihood);
+			eventStat.add(eventLikelihood);
+			timeStat.add(timeLikelihood);
+			lastEvent = eventLikelihood;
+			lastTime = timeLikelihood;
+		}
+
+		@Override
+		public double[] getFeatures() {
+			final double[] superCall = super.getFeatures();
+			final double[] result = Arrays.copyOf(superCall, superCall.length + 8);
+			int i = superCall.length;
+			result[i++] = legalStandardDeviation(eventStat);
+			result[i++] = size;
+			// there are no differences for a single likelihood
+			result[i++] = size > 1 ? eventDiffMin : AnomalyDetector.ILLEGAL_VALUE;
+			result[i++] = size > 1 ? eventDiffMax : AnomalyDetector.ILLEGAL_VALUE;
+			result[i++] = legalStandardDeviation(timeStat);
+			result[i++] = size;
+			result[i++] = size > 1 ? timeDiffMin : AnomalyDetector.ILLEGAL_VALUE;
+			result[i++] = size > 1 ? timeDiffMax : AnomalyDetector.ILLEGAL_VALUE;
+			return result;
+		}
+
+		private static double legalStandardDeviation(OnLineStatistics stat) {
+			final double stdDev = stat.getStandardDeviation();
+			if (Double.isNaN(stdDev) || Double.isInfinite(stdDev)) {
+				return AnomalyDetector.ILLEGAL_VALUE;
+			}
+			return stdDev;
+		}
+	}
 }
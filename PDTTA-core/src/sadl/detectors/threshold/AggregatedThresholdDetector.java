@@ -69,6 +69,18 @@ public class AggregatedThresholdDetector extends AnomalyDetector {
 		}
 	}
 
+	@Override
+	protected boolean decidePrefix(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods, double eventScore, double timeScore) {
+		if (aggregateSublists) {
+			// every prefix is checked, so a prefix below a threshold is an anomaly regardless of the following events
+			return (!eventLikelihoods.isEmpty() && eventScore <= aggregatedEventThreshold)
+					|| (!timeLikelihoods.isEmpty() && timeScore <= aggregatedTimeThreshold);
+		} else {
+			// the aggregation of the whole word may still exceed the thresholds
+			return false;
+		}
+	}
+
 	private  boolean myDecide(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
 		final double normalizedEventThreshold = aggregatedEventThreshold;
 		final double normalizedTimeThreshold = aggregatedTimeThreshold;
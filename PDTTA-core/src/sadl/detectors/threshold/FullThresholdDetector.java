@@ -52,4 +52,14 @@ public class FullThresholdDetector extends AggregatedThresholdDetector {
 		}
 		return false;
 	}
+
+	@Override
+	protected boolean decidePrefix(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods, double eventScore, double timeScore) {
+		if (super.decidePrefix(eventLikelihoods, timeLikelihoods, eventScore, timeScore)) {
+			return true;
+		}
+		// the former likelihoods were checked for the former events
+		return (!eventLikelihoods.isEmpty() && eventLikelihoods.get(eventLikelihoods.size() - 1) <= singleEventThreshold)
+				|| (!timeLikelihoods.isEmpty() && timeLikelihoods.get(timeLikelihoods.size() - 1) <= singleTimeThreshold);
+	}
 }
@@ -10,22 +10,32 @@
  */
 package sadl.evaluation;
 
+import java.util.stream.Stream;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sadl.constants.ClassLabel;
 import sadl.detectors.AnomalyDetector;
 import sadl.experiments.ExperimentResult;
+import sadl.input.LazyTimedInput;
 import sadl.input.TimedInput;
 import sadl.input.TimedWord;
 import sadl.interfaces.AutomatonModel;
 import sadl.interfaces.ProbabilisticModel;
+import sadl.utils.Settings;
 
 public class Evaluation {
 	AnomalyDetector detector;
 	ProbabilisticModel model;
 	private static Logger logger = LoggerFactory.getLogger(Evaluation.class);
 
+	// indexes of the confusion matrix entries
+	private static final int TRUE_POS = 0;
+	private static final int TRUE_NEG = 1;
+	private static final int FALSE_POS = 2;
+	private static final int FALSE_NEG = 3;
+
 	public Evaluation(AnomalyDetector detector, ProbabilisticModel model) {
 		super();
 		this.detector = detector;
@@ -36,42 +46,67 @@ public class Evaluation {
 		logger.info("Testing with {} sequences", testSet.size());
 		detector.setModel(model);
 		final boolean[] detectorResult = detector.areAnomalies(testSet);
-		long truePos = 0;
-		long trueNeg = 0;
-		long falsePos = 0;
-		long falseNeg = 0;
+		final long[] confusion = new long[4];
+		for (int i = 0; i < testSet.size(); i++) {
+			final TimedWord s = testSet.get(i);
+			count(confusion, s.getLabel(), detectorResult[i]);
+		}
+		return createResult(confusion);
+	}
+
+	/**
+	 * Evaluates the detector on a test set that is parsed while testing, so the test set does not have to fit into memory. The sequences are tested in
+	 * parallel if {@link Settings#isParallel()} is set.
+	 * 
+	 * @param testSet
+	 *            the lazily parsed test set
+	 * @return the same result as {@link #evaluate(TimedInput)} for the parsed test set
+	 */
+	public ExperimentResult evaluate(LazyTimedInput testSet) {
+		detector.setModel(model);
+		final long[] confusion;
+		try (Stream<TimedWord> words = testSet.stream(Settings.isParallel())) {
+			confusion = words.collect(() -> new long[4], (c, s) -> count(c, s.getLabel(), detector.isAnomaly(s)), (c1, c2) -> {
+				for (int i = 0; i < c1.length; i++) {
+					c1[i] += c2[i];
+				}
+			});
+		}
+		logger.info("Tested {} sequences", confusion[TRUE_POS] + confusion[TRUE_NEG] + confusion[FALSE_POS] + confusion[FALSE_NEG]);
+		return createResult(confusion);
+	}
+
+	private static void count(long[] confusion, ClassLabel label, boolean detectorResult) {
 		// prec = tp/(tp +fp)
 		// The precision is the ratio between correctly detected anomalies and
 		// all detected anomalies
 		// rec = tp/(tp+fn)
 		// The recall is the ratio between detected anomalies and all anomalies
-
-		for (int i = 0; i < testSet.size(); i++) {
-			final TimedWord s = testSet.get(i);
-			if (s.getLabel() == ClassLabel.NORMAL) {
-				if (detectorResult[i]) {
-					// detector said anomaly
-					// falsePos++;
-					falseNeg++;
-				} else {
-					// detector said normal
-					// trueNeg++;
-					truePos++;
-				}
-			} else if (s.getLabel() == ClassLabel.ANOMALY) {
-				if (detectorResult[i]) {
-					// detector said anomaly
-					// truePos++;
-					trueNeg++;
-				} else {
-					// detector said normal
-					// falseNeg++;
-					falsePos++;
-				}
+		if (label == ClassLabel.NORMAL) {
+			if (detectorResult) {
+				// detector said anomaly
+				// falsePos++;
+				confusion[FALSE_NEG]++;
+			} else {
+				// detector said normal
+				// trueNeg++;
+				confusion[TRUE_POS]++;
+			}
+		} else if (label == ClassLabel.ANOMALY) {
+			if (detectorResult) {
+				// detector said anomaly
+				// truePos++;
+				confusion[TRUE_NEG]++;
+			} else {
+				// detector said normal
+				// falseNeg++;
+				confusion[FALSE_POS]++;
 			}
-
 		}
-		final ExperimentResult expResult = new ExperimentResult(truePos, trueNeg, falsePos, falseNeg);
+	}
+
+	private ExperimentResult createResult(long[] confusion) {
+		final ExperimentResult expResult = new ExperimentResult(confusion[TRUE_POS], confusion[TRUE_NEG], confusion[FALSE_POS], confusion[FALSE_NEG]);
 
 		if (model instanceof AutomatonModel) {
 			expResult.setNumberOfStates(((AutomatonModel) model).getStateCount());
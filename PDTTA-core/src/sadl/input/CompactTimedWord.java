@@ -0,0 +1,131 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import sadl.constants.ClassLabel;
+
+/**
+ * A {@link TimedWord} that is a view on the columnar storage of a compact {@link TimedInput}. Creating such a view does not copy any symbols or time
+ * values.
+ *
+ * @author Timo Klerx
+ *
+ */
+final class CompactTimedWord extends TimedWord {
+
+	private static final long serialVersionUID = -2853006787958203311L;
+
+	private final TimedInput input;
+	private final int wordIndex;
+	private final int start;
+	private final int length;
+	/**
+	 * Sub words have their own label, full words share the label with the {@link TimedInput}
+	 */
+	private final boolean subWord;
+
+	CompactTimedWord(TimedInput input, int wordIndex) {
+		this(input, wordIndex, input.getWordLength(wordIndex), false);
+	}
+
+	private CompactTimedWord(TimedInput input, int wordIndex, int length, boolean subWord) {
+		super(null, null, input.getLabel(wordIndex));
+		this.input = input;
+		this.wordIndex = wordIndex;
+		this.start = input.getWordStart(wordIndex);
+		this.length = length;
+		this.subWord = subWord;
+	}
+
+	@Override
+	public String getSymbol(int i) {
+		checkIndex(i);
+		return input.getSymbol(input.getSymbolIdAt(start + i));
+	}
+
+	@Override
+	public int getTimeValue(int i) {
+		checkIndex(i);
+		return input.getTimeDelayAt(start + i);
+	}
+
+	@Override
+	public ClassLabel getLabel() {
+		if (subWord) {
+			return super.getLabel();
+		}
+		return input.getLabel(wordIndex);
+	}
+
+	@Override
+	public void setLabel(ClassLabel l) {
+		if (subWord) {
+			super.setLabel(l);
+		} else {
+			input.setLabel(wordIndex, l);
+		}
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns a copy of the time values. Changes to the returned list are not reflected in the {@link TimedInput}.
+	 */
+	@Override
+	public TIntList getTimeValues() {
+		final TIntList result = new TIntArrayList(length);
+		for (int i = 0; i < length; i++) {
+			result.add(input.getTimeDelayAt(start + i));
+		}
+		return result;
+	}
+
+	@Override
+	void appendPair(String symbol, int timeDelay) {
+		throw new UnsupportedOperationException("A word of a compact TimedInput cannot be changed");
+	}
+
+	@Override
+	public TimedWord getSubWord(int newLength) {
+		if (newLength > length) {
+			throw new IndexOutOfBoundsException("Sub word length " + newLength + " exceeds word length " + length);
+		}
+		final CompactTimedWord result = new CompactTimedWord(input, wordIndex, newLength, true);
+		result.setLabel(getLabel());
+		return result;
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Length: " + length);
+		}
+	}
+
+	/**
+	 * Serializes a detached copy instead of the whole {@link TimedInput} this view is backed by.
+	 */
+	private Object writeReplace() {
+		final List<String> symbols = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			symbols.add(getSymbol(i));
+		}
+		return new TimedWord(symbols, getTimeValues(), getLabel());
+	}
+
+}
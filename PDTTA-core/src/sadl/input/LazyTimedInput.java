@@ -0,0 +1,264 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.input;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sadl.utils.IoUtils;
+
+/**
+ * Lazily parsed view on a file with timed sequences in the standard or the alternative format. In contrast to {@link TimedInput}, the sequences are never
+ * held in memory all at once but parsed while iterating, so files larger than the heap can be processed. Each call of {@link #iterator()},
+ * {@link #spliterator()} or {@link #stream(boolean)} reads the file once.
+ *
+ * The {@link Spliterator} splits the file at line boundaries, so the sequences can also be processed in parallel. Symbols and time values of the returned
+ * {@link TimedWord}s are the same as for {@link TimedInput#parse(Path)} and {@link TimedInput#parseAlt(Path)}. If the spliterator was split, the line
+ * numbers in error messages are relative to the part of the file that contains the malformed line.
+ *
+ * @author Timo Klerx
+ *
+ */
+public final class LazyTimedInput implements Iterable<TimedWord>, Closeable {
+
+	private static Logger logger = LoggerFactory.getLogger(LazyTimedInput.class);
+
+	// parts of the file smaller than this are not split anymore
+	private static final long MIN_SPLIT_SIZE = 1 << 16;
+
+	private final Path file;
+	private final TimedInputScanner.Format format;
+	private final boolean skipFirstElement;
+	private final long start;
+	private final long end;
+	private final long minSplitSize;
+	private final Set<Reader> openReaders = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Creates a lazy view on a file in standard format (see {@link TimedInput#parse(Path)}).
+	 *
+	 * @param in
+	 *            A {@link Path} that contains timed sequences in the appropriate format
+	 * @return A {@link LazyTimedInput} that parses the timed sequences while iterating
+	 * @throws IOException
+	 */
+	public static LazyTimedInput parse(Path in) throws IOException {
+		return parse(in, false);
+	}
+
+	public static LazyTimedInput parse(Path in, boolean skipFirstElement) throws IOException {
+		return new LazyTimedInput(in, TimedInputScanner.Format.STANDARD, skipFirstElement, 0, MIN_SPLIT_SIZE);
+	}
+
+	/**
+	 * Creates a lazy view on a file in alternative format (see {@link TimedInput#parseAlt(Path)}).
+	 *
+	 * @param in
+	 *            A {@link Path} that contains timed sequences in the appropriate alternative format
+	 * @return A {@link LazyTimedInput} that parses the timed sequences while iterating
+	 * @throws IOException
+	 */
+	public static LazyTimedInput parseAlt(Path in) throws IOException {
+		return parseAlt(in, 1);
+	}
+
+	/**
+	 * Creates a lazy view on a file in alternative format (see {@link TimedInput#parseAlt(Path, int)}).
+	 *
+	 * @param in
+	 *            A {@link Path} that contains timed sequences in the appropriate alternative format
+	 * @param lineOffset
+	 *            The number of lines that will be skipped at the beginning of the file because they contain a header with meta data
+	 * @return A {@link LazyTimedInput} that parses the timed sequences while iterating
+	 * @throws IOException
+	 */
+	public static LazyTimedInput parseAlt(Path in, int lineOffset) throws IOException {
+		return new LazyTimedInput(in, TimedInputScanner.Format.ALT, false, lineOffset, MIN_SPLIT_SIZE);
+	}
+
+	/**
+	 * States whether the given file can be parsed lazily. Files compressed with gzip (see {@link IoUtils#isGzipFile(Path)}) and files in binary format (see
+	 * {@link TimedInput#isBinaryFile(Path)}) cannot be split at line boundaries, so they have to be parsed with {@link TimedInput}.
+	 *
+	 * @param in
+	 *            The file to check
+	 * @return {@code true} if and only if the file is neither compressed nor in binary format
+	 * @throws IOException
+	 */
+	public static boolean isLazilyParsable(Path in) throws IOException {
+		return !IoUtils.isGzipFile(in) && !TimedInput.isBinaryFile(in);
+	}
+
+	LazyTimedInput(Path in, TimedInputScanner.Format format, boolean skipFirstElement, int lineOffset, long minSplitSize) throws IOException {
+		if (Files.notExists(in)) {
+			logger.warn("File {} was not found.", in);
+			throw new FileNotFoundException("input file on path " + in.toAbsolutePath() + " was not found");
+		}
+		if (!isLazilyParsable(in)) {
+			throw new IOException("File " + in + " is compressed or in binary format and cannot be parsed lazily; use TimedInput instead");
+		}
+		this.file = in;
+		this.format = format;
+		this.skipFirstElement = skipFirstElement;
+		this.minSplitSize = minSplitSize;
+		try (FileChannel channel = FileChannel.open(in, StandardOpenOption.READ)) {
+			this.start = TimedInputScanner.skipLines(channel, ByteBuffer.allocate(1 << 13), lineOffset);
+			this.end = channel.size();
+		}
+	}
+
+	@Override
+	public Iterator<TimedWord> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	@Override
+	public Spliterator<TimedWord> spliterator() {
+		return new WordSpliterator(start, end);
+	}
+
+	/**
+	 * Returns a {@link Stream} of the timed sequences. Closing the stream closes all readers that are still open.
+	 *
+	 * @param parallel
+	 *            whether the stream should be parallel
+	 * @return a stream that parses the timed sequences lazily
+	 */
+	public Stream<TimedWord> stream(boolean parallel) {
+		return StreamSupport.stream(spliterator(), parallel).onClose(this::close);
+	}
+
+	/**
+	 * Closes all readers of iterations that were not finished.
+	 */
+	@Override
+	public void close() {
+		synchronized (openReaders) {
+			for (final Reader r : openReaders) {
+				try {
+					r.close();
+				} catch (final IOException e) {
+					logger.warn("Could not close reader for file {}", file, e);
+				}
+			}
+			openReaders.clear();
+		}
+	}
+
+	private class WordSpliterator implements Spliterator<TimedWord> {
+		private long from;
+		private final long to;
+		private Reader reader = null;
+		private TimedInputScanner scanner = null;
+		private boolean finished = false;
+
+		WordSpliterator(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super TimedWord> action) {
+			if (finished) {
+				return false;
+			}
+			try {
+				if (reader == null) {
+					scanner = new TimedInputScanner(format, skipFirstElement);
+					reader = TimedInputScanner.openRange(file, from, to);
+					synchronized (openReaders) {
+						openReaders.add(reader);
+					}
+				}
+				final TimedWord w = scanner.nextWord(reader);
+				if (w == null) {
+					finish();
+					return false;
+				}
+				action.accept(w);
+				return true;
+			} catch (final IOException e) {
+				finish();
+				throw new UncheckedIOException(e);
+			} catch (final RuntimeException e) {
+				finish();
+				throw e;
+			}
+		}
+
+		private void finish() {
+			finished = true;
+			if (reader != null) {
+				synchronized (openReaders) {
+					openReaders.remove(reader);
+				}
+				try {
+					reader.close();
+				} catch (final IOException e) {
+					logger.warn("Could not close reader for file {}", file, e);
+				}
+				reader = null;
+			}
+		}
+
+		@Override
+		public Spliterator<TimedWord> trySplit() {
+			if (reader != null || finished || to - from < 2 * minSplitSize) {
+				return null;
+			}
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				final long mid = TimedInputScanner.nextLineStart(channel, ByteBuffer.allocate(1 << 13), from + (to - from) / 2, to);
+				if (mid >= to) {
+					return null;
+				}
+				final WordSpliterator prefix = new WordSpliterator(from, mid);
+				from = mid;
+				return prefix;
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		/**
+		 * The number of remaining bytes is used as estimation.
+		 */
+		@Override
+		public long estimateSize() {
+			return finished ? 0 : to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+	}
+
+}
@@ -11,21 +11,27 @@
 package sadl.input;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.RandomAccess;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.SerializationUtils;
 import org.slf4j.Logger;
@@ -41,7 +47,9 @@ import sadl.constants.ClassLabel;
 import sadl.modellearner.TauPtaLearner;
 import sadl.models.TauPTA;
 import sadl.structure.Transition;
+import sadl.utils.IoUtils;
 import sadl.utils.MasterSeed;
+import sadl.utils.Settings;
 
 /**
  * Class for reading a set of timed sequences from a file or writing them to a file.
@@ -60,6 +68,13 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	private final List<String> alphabetRev = new ArrayList<>();
 	private List<TimedWord> words = new ArrayList<>();
 
+	// columnar storage of the words if this input is compact (see compact()). The symbols and time delays of word i are stored at the positions
+	// wordOffsets[i] (inclusive) to wordOffsets[i+1] (exclusive)
+	private int[] symbolIds = null;
+	private int[] timeDelays = null;
+	private int[] wordOffsets = null;
+	private ClassLabel[] labels = null;
+
 	private static final double ANOMALY_PERCENTAGE = 0.1;
 	private static final double HUGE_TIME_CHANGE = 0.9;
 	private static final double SMALL_TIME_CHANGE = 0.1;
@@ -71,22 +86,37 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	private static final String[] parseSymbolsAlt = new String[] { "^\\d+ ", "$", "\\s{2}", "\\s", "\\s*:\\s*" };
 	private static final int parseStart = 0;
 	private static final int parseStartAlt = 1;
+	// files are only split into chunks of at least this many bytes for parallel parsing
+	private static final long MIN_CHUNK_SIZE = 1 << 23;
 
 	public TimedInput(List<TimedWord> words) {
 
 		this.words.addAll(words);
 		for (final TimedWord w : words) {
-			if (w.getClass() == TimedWord.class) {
-				for (final String s : w.symbols) {
-					if (!alphabet.containsKey(s)) {
-						alphabet.put(s, alphabet.size());
-						alphabetRev.add(s);
-					}
+			for (int i = 0; i < w.length(); i++) {
+				final String s = w.getSymbol(i);
+				if (!alphabet.containsKey(s)) {
+					alphabet.put(s, alphabet.size());
+					alphabetRev.add(s);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Creates a compact {@link TimedInput} from the given columnar storage.
+	 */
+	TimedInput(List<String> alphabet, int[] symbolIds, int[] timeDelays, int[] wordOffsets, ClassLabel[] labels) {
+		for (int i = 0; i < alphabet.size(); i++) {
+			this.alphabet.put(alphabet.get(i), i);
+			alphabetRev.add(alphabet.get(i));
+		}
+		this.symbolIds = symbolIds;
+		this.timeDelays = timeDelays;
+		this.wordOffsets = wordOffsets;
+		this.labels = labels;
+	}
+
 	public TimedInput(String[] alphabet) {
 
 		for (int i = 0; i < alphabet.length; i++) {
@@ -105,6 +135,9 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 * @implNote The {@link #parse(Path)} and {@link #parseAlt(Path)} methods are called.
 	 */
 	public static TimedInput tryParse(Path in) throws IOException {
+		if (isBinaryFile(in)) {
+			return parseBinary(in);
+		}
 		try {
 			return parse(in);
 		} catch (final IOException | IllegalArgumentException e) {
@@ -257,7 +290,55 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	}
 
 	/**
-	 * Parses timed sequences from a file in a custom format:
+	 * Reads timed sequences from a file in binary format (see {@link #toBinaryFile(OutputStream)}). The file is memory mapped and decoded directly into a
+	 * compact {@link TimedInput}.
+	 * 
+	 * @param in
+	 *            A {@link Path} that contains timed sequences in binary format
+	 * @return A {@link TimedInput} that represents the first block of timed sequences in the file
+	 * @throws IOException
+	 * @see #isBinaryFile(Path)
+	 */
+	public static TimedInput parseBinary(Path in) throws IOException {
+		final List<TimedInput> result = parseBinaryBlocks(in);
+		if (result.isEmpty()) {
+			throw new IOException("File " + in + " does not contain any timed sequences in binary format");
+		}
+		return result.get(0);
+	}
+
+	/**
+	 * Reads all blocks of timed sequences from a file in binary format, e.g., a train and a test set written one after another with
+	 * {@link #toBinaryFile(OutputStream)}.
+	 * 
+	 * @param in
+	 *            A {@link Path} that contains timed sequences in binary format
+	 * @return One {@link TimedInput} for each block in the file
+	 * @throws IOException
+	 */
+	public static List<TimedInput> parseBinaryBlocks(Path in) throws IOException {
+		if (Files.notExists(in)) {
+			logger.warn("File {} was not found.", in);
+			throw new FileNotFoundException("input file on path " + in.toAbsolutePath() + " was not found");
+		}
+		return TimedInputBinary.read(in);
+	}
+
+	/**
+	 * States whether the given file contains timed sequences in binary format (see {@link #toBinaryFile(OutputStream)}).
+	 * 
+	 * @param in
+	 *            The file to check
+	 * @return {@code true} if and only if the file starts with the header of the binary format
+	 * @throws IOException
+	 */
+	public static boolean isBinaryFile(Path in) throws IOException {
+		return TimedInputBinary.isBinary(in);
+	}
+
+	/**
+	 * Parses timed sequences from a file in a custom format. Files compressed with gzip (see {@link IoUtils#isGzipFile(Path)}) are decompressed while
+	 * parsing.
 	 * 
 	 * @param in
 	 *            A {@link Path} that contains timed sequences in the appropriate alternative format
@@ -285,6 +366,17 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 			logger.warn("File {} was not found.", in);
 			throw new FileNotFoundException("input file on path " + in.toAbsolutePath() + " was not found");
 		}
+		if (IoUtils.isGzipFile(in)) {
+			// compressed files are decompressed while parsing
+			try (BufferedReader br = IoUtils.newBufferedReader(in)) {
+				return parseCustom(br, lineOffset, seqPrefix, seqPostfix, pairSep, valueSep, classSep);
+			}
+		}
+		final TimedInputScanner.Format format = getFormat(seqPrefix, seqPostfix, pairSep, valueSep, classSep);
+		if (format != null && Settings.isParallel()) {
+			final long chunkSize = Math.max(MIN_CHUNK_SIZE, Files.size(in) / (4 * Runtime.getRuntime().availableProcessors()));
+			return new TimedInputScanner(format, false).parseParallel(in, lineOffset, chunkSize);
+		}
 		try (BufferedReader br = Files.newBufferedReader(in)) {
 			return parseCustom(br, lineOffset, seqPrefix, seqPostfix, pairSep, valueSep, classSep);
 		}
@@ -320,10 +412,42 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 
 	public static TimedInput parseCustom(Reader br, int lineOffset, String seqPrefix, String seqPostfix, String pairSep, String valueSep, String classSep,
 			boolean skipFirstElement) throws IOException {
-		final String pre = !seqPrefix.startsWith("^") ? "^" + seqPrefix : seqPrefix;
-		final String post = !seqPostfix.endsWith("$") ? seqPostfix + "$" : seqPostfix;
+		// the standard and the alternative format are parsed without regular expressions
+		final TimedInputScanner.Format format = getFormat(seqPrefix, seqPostfix, pairSep, valueSep, classSep);
+		if (format != null) {
+			return new TimedInputScanner(format, skipFirstElement).parse(br, lineOffset);
+		}
+		return parseRegex(br, lineOffset, anchorPrefix(seqPrefix), anchorPostfix(seqPostfix), pairSep, valueSep, classSep, skipFirstElement);
+	}
+
+	private static String anchorPrefix(String seqPrefix) {
+		return !seqPrefix.startsWith("^") ? "^" + seqPrefix : seqPrefix;
+	}
+
+	private static String anchorPostfix(String seqPostfix) {
+		return !seqPostfix.endsWith("$") ? seqPostfix + "$" : seqPostfix;
+	}
 
-		return new TimedInput(br, lineOffset, pre, post, pairSep, valueSep, classSep, skipFirstElement);
+	/**
+	 * Returns the format that can be parsed by a {@link TimedInputScanner} or null if the regular expressions describe a custom format.
+	 */
+	private static TimedInputScanner.Format getFormat(String seqPrefix, String seqPostfix, String pairSep, String valueSep, String classSep) {
+		final String[] symbols = new String[] { anchorPrefix(seqPrefix), anchorPostfix(seqPostfix), pairSep, valueSep, classSep };
+		if (Arrays.equals(symbols, parseSymbols)) {
+			return TimedInputScanner.Format.STANDARD;
+		} else if (Arrays.equals(symbols, parseSymbolsAlt)) {
+			return TimedInputScanner.Format.ALT;
+		}
+		return null;
+	}
+
+	/**
+	 * Parses timed sequences with the given regular expressions (see
+	 * {@link #parseCustom(Reader, int, String, String, String, String, String, boolean)}). The prefix and postfix must already be anchored.
+	 */
+	static TimedInput parseRegex(Reader br, int lineOffset, String seqPrefix, String seqPostfix, String pairSep, String valueSep, String classSep,
+			boolean skipFirstElement) throws IOException {
+		return new TimedInput(br, lineOffset, seqPrefix, seqPostfix, pairSep, valueSep, classSep, skipFirstElement);
 	}
 
 	private TimedInput(Reader br, int lineOffset, String seqPrefix, String seqPostfix, String pairSep, String valueSep, String classSep,
@@ -429,6 +553,9 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 * @return {@code true} if and only if the {@link TimedInput} contains at least one timed sequence
 	 */
 	public boolean isEmpty() {
+		if (isCompact()) {
+			return labels.length == 0;
+		}
 		return words.isEmpty();
 	}
 
@@ -439,9 +566,111 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 */
 	public void clearWords() {
 		words.clear();
+		symbolIds = null;
+		timeDelays = null;
+		wordOffsets = null;
+		labels = null;
 		cleared = true;
 	}
 
+	/**
+	 * States whether the {@link TimedWord}s are stored in columnar form (see {@link #compact()}).
+	 * 
+	 * @return {@code true} if and only if the {@link TimedInput} is compact
+	 */
+	public boolean isCompact() {
+		return labels != null;
+	}
+
+	/**
+	 * Converts the {@link TimedWord}s into a columnar representation with one array of symbol indexes (as given by {@link #getAlphIndex(String)}) and one
+	 * array of time delays for all words. This reduces the memory consumption for large inputs considerably. Afterwards, the {@link TimedWord}s returned by
+	 * this {@link TimedInput} are views on the columnar storage. Their time values cannot be changed anymore.
+	 * 
+	 * @throws IllegalStateException
+	 *             if a {@link TimedWord} has no time values
+	 */
+	public void compact() {
+		checkCleared();
+		if (isCompact()) {
+			return;
+		}
+		int eventCount = 0;
+		for (final TimedWord w : words) {
+			if (w.getTimeValues() == null) {
+				throw new IllegalStateException("Only words with time values can be stored in a compact TimedInput");
+			}
+			eventCount += w.length();
+		}
+		symbolIds = new int[eventCount];
+		timeDelays = new int[eventCount];
+		wordOffsets = new int[words.size() + 1];
+		final ClassLabel[] newLabels = new ClassLabel[words.size()];
+		int pos = 0;
+		for (int i = 0; i < words.size(); i++) {
+			final TimedWord w = words.get(i);
+			wordOffsets[i] = pos;
+			for (int j = 0; j < w.length(); j++) {
+				symbolIds[pos] = getAlphIndex(w.getSymbol(j));
+				timeDelays[pos] = w.getTimeValue(j);
+				pos++;
+			}
+			newLabels[i] = w.getLabel();
+		}
+		wordOffsets[words.size()] = pos;
+		labels = newLabels;
+		words = new ArrayList<>();
+	}
+
+	/**
+	 * Converts a compact {@link TimedInput} back to a list of {@link TimedWord}s.
+	 */
+	private void expand() {
+		if (!isCompact()) {
+			return;
+		}
+		final List<TimedWord> newWords = new ArrayList<>(labels.length);
+		for (int i = 0; i < labels.length; i++) {
+			final int length = getWordLength(i);
+			final List<String> symbols = new ArrayList<>(length);
+			final TIntList timeValues = new TIntArrayList(length);
+			for (int j = wordOffsets[i]; j < wordOffsets[i + 1]; j++) {
+				symbols.add(alphabetRev.get(symbolIds[j]));
+				timeValues.add(timeDelays[j]);
+			}
+			newWords.add(new TimedWord(symbols, timeValues, labels[i]));
+		}
+		words = newWords;
+		symbolIds = null;
+		timeDelays = null;
+		wordOffsets = null;
+		labels = null;
+	}
+
+	int getWordStart(int word) {
+		return wordOffsets[word];
+	}
+
+	int getWordLength(int word) {
+		return wordOffsets[word + 1] - wordOffsets[word];
+	}
+
+	int getSymbolIdAt(int pos) {
+		return symbolIds[pos];
+	}
+
+	int getTimeDelayAt(int pos) {
+		return timeDelays[pos];
+	}
+
+	ClassLabel getLabel(int word) {
+		return labels[word];
+	}
+
+	void setLabel(int word, ClassLabel label) {
+		labels[word] = label;
+	}
+
 	/**
 	 * Returns the {@link TimedWord} at the given index.
 	 * 
@@ -462,6 +691,12 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 */
 	public TimedWord get(int i) {
 		checkCleared();
+		if (isCompact()) {
+			if (i < 0 || i >= labels.length) {
+				throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + labels.length);
+			}
+			return new CompactTimedWord(this, i);
+		}
 		return words.get(i);
 	}
 
@@ -472,6 +707,9 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 */
 	public int size() {
 		checkCleared();
+		if (isCompact()) {
+			return labels.length;
+		}
 		return words.size();
 	}
 
@@ -548,11 +786,28 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 		toFile(bw, word -> word.toString(withClassLabel));
 	}
 
+	/**
+	 * Writes the {@link TimedInput} in standard format to the given file (see {@link #toFile(Appendable, boolean)}). If the file name ends with
+	 * {@value IoUtils#GZIP_EXTENSION}, the file is compressed with gzip.
+	 * 
+	 * @param file
+	 *            The file where to write the {@link String} representation
+	 * @param withClassLabel
+	 *            If {@code true} the {@link ClassLabel} will be appended at the end of each timed sequence
+	 * @see TimedInput#parse(Path)
+	 */
+	public void toFile(Path file, boolean withClassLabel) throws IOException {
+		try (BufferedWriter bw = IoUtils.newBufferedWriter(file)) {
+			toFile(bw, withClassLabel);
+		}
+	}
+
 	private void toFile(Appendable a, Function<TimedWord, String> f) throws IOException {
 		checkCleared();
-		for (int i = 0; i < words.size(); i++) {
-			a.append(f.apply(words.get(i)));
-			if (i < (words.size() - 1)) {
+		final int size = size();
+		for (int i = 0; i < size; i++) {
+			a.append(f.apply(get(i)));
+			if (i < (size - 1)) {
 				a.append('\n');
 			}
 		}
@@ -570,13 +825,57 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 * @see TimedInput#parseAlt(Path)
 	 */
 	public void toFileAlt(Appendable bw, boolean withClassLabel) throws IOException {
-		bw.append(Integer.toString(words.size()));
+		bw.append(Integer.toString(size()));
 		bw.append(' ');
 		bw.append(Integer.toString(alphabet.size()));
 		bw.append('\n');
 		toFile(bw, word -> word.toStringAlt(withClassLabel));
 	}
 
+	/**
+	 * Writes the {@link TimedInput} in alternative format to the given file (see {@link #toFileAlt(Appendable, boolean)}). If the file name ends with
+	 * {@value IoUtils#GZIP_EXTENSION}, the file is compressed with gzip.
+	 * 
+	 * @param file
+	 *            The file where to write the {@link String} representation
+	 * @param withClassLabel
+	 *            If {@code true} the {@link ClassLabel} will be appended at the end of each timed sequence
+	 * @see TimedInput#parseAlt(Path)
+	 */
+	public void toFileAlt(Path file, boolean withClassLabel) throws IOException {
+		try (BufferedWriter bw = IoUtils.newBufferedWriter(file)) {
+			toFileAlt(bw, withClassLabel);
+		}
+	}
+
+	/**
+	 * Writes the {@link TimedInput} in a compact binary format that can be read with {@link TimedInput#parseBinary(Path)} without parsing text.
+	 * Several {@link TimedInput}s may be written to the same stream one after another. The stream is not closed.
+	 * 
+	 * @param out
+	 *            The stream where to write the binary representation
+	 * @throws IllegalStateException
+	 *             if a {@link TimedWord} has no time values
+	 * @see TimedInput#parseBinary(Path)
+	 */
+	public void toBinaryFile(OutputStream out) throws IOException {
+		checkCleared();
+		TimedInputBinary.write(this, out);
+	}
+
+	/**
+	 * Writes the {@link TimedInput} in a compact binary format to the given file (see {@link #toBinaryFile(OutputStream)}).
+	 * 
+	 * @param file
+	 *            The file where to write the binary representation
+	 * @see TimedInput#parseBinary(Path)
+	 */
+	public void toBinaryFile(Path file) throws IOException {
+		try (OutputStream out = Files.newOutputStream(file)) {
+			toBinaryFile(out);
+		}
+	}
+
 	@Override
 	public Iterator<TimedWord> iterator() {
 		checkCleared();
@@ -608,7 +907,14 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 		int result = 1;
 		result = prime * result + ((alphabet == null) ? 0 : alphabet.hashCode());
 		result = prime * result + ((alphabetRev == null) ? 0 : alphabetRev.hashCode());
-		result = prime * result + ((words == null) ? 0 : words.hashCode());
+		// same as words.hashCode(), but independent of the storage of the words
+		int wordsHash = 1;
+		if (!cleared) {
+			for (final TimedWord w : this) {
+				wordsHash = prime * wordsHash + w.hashCode();
+			}
+		}
+		result = prime * result + wordsHash;
 		return result;
 	}
 
@@ -638,12 +944,20 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 		} else if (!alphabetRev.equals(other.alphabetRev)) {
 			return false;
 		}
-		if (words == null) {
-			if (other.words != null) {
+		if (cleared || other.cleared) {
+			return cleared == other.cleared;
+		}
+		if (isCompact() && other.isCompact()) {
+			return Arrays.equals(wordOffsets, other.wordOffsets) && Arrays.equals(symbolIds, other.symbolIds) && Arrays.equals(timeDelays, other.timeDelays)
+					&& Arrays.equals(labels, other.labels);
+		}
+		if (size() != other.size()) {
+			return false;
+		}
+		for (int i = 0; i < size(); i++) {
+			if (!get(i).equals(other.get(i))) {
 				return false;
 			}
-		} else if (!words.equals(other.words)) {
-			return false;
 		}
 		return true;
 	}
@@ -656,21 +970,61 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 	 */
 	public void decreaseSamples(double d) {
 		if (d > 0 && d < 1) {
-			words = new ArrayList<>(words.subList(0, (int) (words.size() * d)));
+			if (isCompact()) {
+				final int newSize = (int) (labels.length * d);
+				final int eventCount = wordOffsets[newSize];
+				symbolIds = Arrays.copyOf(symbolIds, eventCount);
+				timeDelays = Arrays.copyOf(timeDelays, eventCount);
+				wordOffsets = Arrays.copyOf(wordOffsets, newSize + 1);
+				labels = Arrays.copyOf(labels, newSize);
+			} else {
+				words = new ArrayList<>(words.subList(0, (int) (words.size() * d)));
+			}
 		}
 	}
 
 	public List<TimedWord> getWords() {
+		if (isCompact()) {
+			return new CompactWordList();
+		}
 		return Collections.unmodifiableList(words);
 	}
 
+	/**
+	 * Read only list of the {@link TimedWord}s of a compact {@link TimedInput}
+	 */
+	private class CompactWordList extends AbstractList<TimedWord> implements RandomAccess {
+		@Override
+		public TimedWord get(int index) {
+			return TimedInput.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return TimedInput.this.size();
+		}
+	}
+
 	Random r = null;
 
+	/**
+	 * Creates a copy of this {@link TimedInput} where the given percentage of the {@link TimedWord}s is changed into anomalies. The words are changed in
+	 * parallel if {@link Settings#isParallel()} is set. Every word gets its own random numbers (see {@link MasterSeed#derive(long, long)}), so the result is
+	 * the same for any number of threads.
+	 * 
+	 * @param type
+	 *            the type of anomaly to insert or {@link AnomalyInsertionType#ALL} for a random type per word
+	 * @param anomalyPercentage
+	 *            the percentage of words to change
+	 * @return a copy with the inserted anomalies
+	 */
 	public TimedInput insertRandomAnomalies(AnomalyInsertionType type, double anomalyPercentage) {
 		if (r == null) {
 			r = MasterSeed.nextRandom();
 		}
 		final TimedInput result = SerializationUtils.clone(this);
+		// anomalies are inserted by changing the words in place
+		result.expand();
 		final int size = result.size();
 		final TIntList indexes = new TIntArrayList(size);
 		for (int i = 0; i < size; i++) {
@@ -678,51 +1032,64 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 		}
 		indexes.shuffle(r);
 		final int requestedAnomalies = (int) (size * anomalyPercentage);
-		for (int i = 0; i < requestedAnomalies; i++) {
+		if (requestedAnomalies > 0 && tpta == null && (type == AnomalyInsertionType.TYPE_TWO || type == AnomalyInsertionType.ALL)) {
+			// the TauPTA has to exist before the words are processed in parallel
+			final TauPtaLearner learner = new TauPtaLearner();
+			tpta = learner.train(this);
+		}
+		final long baseSeed = r.nextLong();
+		final TimedWord[] anomalies = new TimedWord[requestedAnomalies];
+		final IntConsumer f = (i -> {
 			final int index = indexes.get(i);
-			TimedWord word = result.getWord(index);
+			final Random wordRandom = MasterSeed.derive(baseSeed, index);
 			int typeInt;
 			if (type == AnomalyInsertionType.ALL) {
-				typeInt = r.nextInt(5) + 1;
+				typeInt = wordRandom.nextInt(5) + 1;
 			} else {
 				typeInt = type.getTypeIndex();
 			}
 			final AnomalyInsertionType newType = AnomalyInsertionType.getType(typeInt);
-			word = insertAnomaly(word, newType);
-			result.words.set(index, word);
+			anomalies[i] = insertAnomaly(result.getWord(index), newType, wordRandom);
+		});
+		if (Settings.isParallel()) {
+			IntStream.range(0, requestedAnomalies).parallel().forEach(f);
+		} else {
+			IntStream.range(0, requestedAnomalies).forEach(f);
+		}
+		for (int i = 0; i < requestedAnomalies; i++) {
+			result.words.set(indexes.get(i), anomalies[i]);
+		}
+		if (isCompact()) {
+			result.compact();
 		}
 		return result;
 	}
 
 	private TauPTA tpta = null;
-	private TimedWord insertAnomaly(TimedWord word, AnomalyInsertionType type) {
+	private TimedWord insertAnomaly(TimedWord word, AnomalyInsertionType type, Random mutation) {
 		if (type == AnomalyInsertionType.TYPE_ONE) {
-			final int changeIndex = r.nextInt(word.length());
+			final int changeIndex = mutation.nextInt(word.length());
 			final String event = word.getSymbol(changeIndex);
-			String newEvent = getSymbol(r.nextInt(getAlphSize()));
+			String newEvent = getSymbol(mutation.nextInt(getAlphSize()));
 			while (newEvent.equals(event)) {
-				newEvent = getSymbol(r.nextInt(getAlphSize()));
+				newEvent = getSymbol(mutation.nextInt(getAlphSize()));
 			}
 			word.symbols.set(changeIndex, newEvent);
 		} else if (type == AnomalyInsertionType.TYPE_TWO) {
-			if (tpta == null) {
-				final TauPtaLearner learner = new TauPtaLearner();
-				tpta = learner.train(this);
-			}
-			word = createAbnormalEventSequence(tpta, r);
+			word = createAbnormalEventSequence(tpta, mutation);
 		} else if (type == AnomalyInsertionType.TYPE_THREE) {
-			final int changeIndex = r.nextInt(word.length());
+			final int changeIndex = mutation.nextInt(word.length());
 			final TIntList timeValues = word.getTimeValues();
 			final double changePercent = HUGE_TIME_CHANGE;
-			changeTimeValue(r, timeValues, changePercent, changeIndex);
+			changeTimeValue(mutation, timeValues, changePercent, changeIndex);
 		} else if (type == AnomalyInsertionType.TYPE_FOUR) {
 			final TIntList timeValues = word.getTimeValues();
 			final double changePercent = SMALL_TIME_CHANGE;
 			for (int i = 0; i < timeValues.size(); i++) {
-				changeTimeValue(r, timeValues, changePercent, i);
+				changeTimeValue(mutation, timeValues, changePercent, i);
 			}
 		} else if(type==AnomalyInsertionType.TYPE_FIVE)		{
-			final int changeIndex = r.nextInt(word.length());
+			final int changeIndex = mutation.nextInt(word.length());
 			final List<String> symbols = new ArrayList<>();
 			final TIntList timeValues = new TIntArrayList();
 			for(int i = 0;i<changeIndex;i++){
@@ -778,7 +1145,8 @@ public class TimedInput implements Iterable<TimedWord>, Serializable {
 					// just do it again with other random sampling
 					return createAbnormalEventSequence(automaton, mutation);
 				}
-				final int timeValue = (int) d.sample(1, mutation)[0];
+				// samples of a kernel density may be slightly negative
+				final int timeValue = Math.max(0, (int) d.sample(1, mutation)[0]);
 				eventList.add(chosenTransition.getSymbol());
 				timeList.add(timeValue);
 			}
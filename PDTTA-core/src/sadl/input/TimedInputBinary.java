@@ -0,0 +1,224 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import sadl.constants.ClassLabel;
+
+/**
+ * Versioned binary format of a {@link TimedInput}. A file contains one or more blocks (e.g., a train and a test set) that are stored one after another.
+ * Each block is laid out as follows (all numbers are big endian):
+ * <ul>
+ * <li>the magic number {@code SADB} and the format version (one byte)</li>
+ * <li>the alphabet: the number of symbols followed by the length and the UTF-8 bytes of each symbol in index order</li>
+ * <li>the number of words followed by the word offset table, i.e., the position of the first event of each word and the total number of events</li>
+ * <li>one byte per word for the class label</li>
+ * <li>the number of bytes of the event data followed by the event data. For each event the symbol index and the time delay are stored as zig-zag varints
+ * of the difference to the previous event of the same word.</li>
+ * </ul>
+ * Blocks are read through a {@link MappedByteBuffer} directly into a compact {@link TimedInput}.
+ *
+ * @author Timo Klerx
+ *
+ */
+final class TimedInputBinary {
+
+	static final int MAGIC = 0x53414442;
+	static final byte VERSION = 1;
+
+	private TimedInputBinary() {
+	}
+
+	/**
+	 * States whether the given file starts with the magic number of the binary format.
+	 */
+	static boolean isBinary(Path file) throws IOException {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					return false;
+				}
+			}
+			buffer.flip();
+			return buffer.getInt() == MAGIC;
+		}
+	}
+
+	static void write(TimedInput input, OutputStream out) throws IOException {
+		final int size = input.size();
+		// the length of the event data is computed in a first pass
+		long dataLength = 0;
+		for (int i = 0; i < size; i++) {
+			final TimedWord w = input.get(i);
+			if (w.length() > 0 && w.getTimeValues() == null) {
+				throw new IllegalStateException("Only words with time values can be stored in the binary format");
+			}
+			int prevId = 0;
+			int prevDelay = 0;
+			for (int j = 0; j < w.length(); j++) {
+				final int id = input.getAlphIndex(w.getSymbol(j));
+				final int delay = w.getTimeValue(j);
+				dataLength += varIntSize(zigZag(id - prevId)) + varIntSize(zigZag(delay - prevDelay));
+				prevId = id;
+				prevDelay = delay;
+			}
+		}
+
+		final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		data.writeInt(input.getAlphSize());
+		for (int i = 0; i < input.getAlphSize(); i++) {
+			final byte[] symbol = input.getSymbol(i).getBytes(StandardCharsets.UTF_8);
+			data.writeInt(symbol.length);
+			data.write(symbol);
+		}
+		data.writeInt(size);
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			data.writeInt(offset);
+			offset += input.get(i).length();
+		}
+		data.writeInt(offset);
+		for (int i = 0; i < size; i++) {
+			data.writeByte(input.get(i).getLabel().getClassLabel());
+		}
+		data.writeLong(dataLength);
+		for (int i = 0; i < size; i++) {
+			final TimedWord w = input.get(i);
+			int prevId = 0;
+			int prevDelay = 0;
+			for (int j = 0; j < w.length(); j++) {
+				final int id = input.getAlphIndex(w.getSymbol(j));
+				final int delay = w.getTimeValue(j);
+				writeVarInt(data, zigZag(id - prevId));
+				writeVarInt(data, zigZag(delay - prevDelay));
+				prevId = id;
+				prevDelay = delay;
+			}
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads all blocks of the given file.
+	 */
+	static List<TimedInput> read(Path file) throws IOException {
+		final List<TimedInput> result = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			long pos = 0;
+			while (pos < size) {
+				final MappedByteBuffer header = channel.map(MapMode.READ_ONLY, pos, Math.min(size - pos, Integer.MAX_VALUE));
+				if (header.remaining() < Integer.BYTES + 1 || header.getInt() != MAGIC) {
+					throw new IOException("File " + file + " contains no timed sequences in binary format at position " + pos);
+				}
+				final byte version = header.get();
+				if (version != VERSION) {
+					throw new IOException("Unsupported version " + version + " of the binary format in file " + file);
+				}
+				final List<String> alphabet = new ArrayList<>();
+				final int alphSize = header.getInt();
+				for (int i = 0; i < alphSize; i++) {
+					final byte[] symbol = new byte[header.getInt()];
+					header.get(symbol);
+					alphabet.add(new String(symbol, StandardCharsets.UTF_8));
+				}
+				final int wordCount = header.getInt();
+				final int[] wordOffsets = new int[wordCount + 1];
+				for (int i = 0; i <= wordCount; i++) {
+					wordOffsets[i] = header.getInt();
+				}
+				final ClassLabel[] labels = new ClassLabel[wordCount];
+				for (int i = 0; i < wordCount; i++) {
+					labels[i] = header.get() == ClassLabel.ANOMALY.getClassLabel() ? ClassLabel.ANOMALY : ClassLabel.NORMAL;
+				}
+				final long dataLength = header.getLong();
+				if (dataLength > Integer.MAX_VALUE) {
+					throw new IOException("Event data of more than " + Integer.MAX_VALUE + " bytes is not supported (file " + file + ")");
+				}
+				final long dataStart = pos + header.position();
+				final MappedByteBuffer data = channel.map(MapMode.READ_ONLY, dataStart, dataLength);
+				final int[] symbolIds = new int[wordOffsets[wordCount]];
+				final int[] timeDelays = new int[wordOffsets[wordCount]];
+				for (int i = 0; i < wordCount; i++) {
+					int prevId = 0;
+					int prevDelay = 0;
+					for (int j = wordOffsets[i]; j < wordOffsets[i + 1]; j++) {
+						prevId += unZigZag(readVarInt(data));
+						prevDelay += unZigZag(readVarInt(data));
+						symbolIds[j] = prevId;
+						timeDelays[j] = prevDelay;
+					}
+				}
+				result.add(new TimedInput(alphabet, symbolIds, timeDelays, wordOffsets, labels));
+				pos = dataStart + dataLength;
+			}
+		}
+		return result;
+	}
+
+	private static int zigZag(int i) {
+		return (i << 1) ^ (i >> 31);
+	}
+
+	private static int unZigZag(int i) {
+		return (i >>> 1) ^ -(i & 1);
+	}
+
+	private static int varIntSize(int i) {
+		int size = 1;
+		while ((i & ~0x7F) != 0) {
+			i >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private static void writeVarInt(DataOutputStream out, int i) throws IOException {
+		while ((i & ~0x7F) != 0) {
+			out.writeByte((i & 0x7F) | 0x80);
+			i >>>= 7;
+		}
+		out.writeByte(i);
+	}
+
+	private static int readVarInt(ByteBuffer in) {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final byte b = in.get();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IllegalStateException("Malformed varint in binary format");
+	}
+
+}
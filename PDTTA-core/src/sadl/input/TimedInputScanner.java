@@ -0,0 +1,683 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import sadl.constants.ClassLabel;
+
+/**
+ * Single pass scanner for timed sequences in the standard and the alternative format (see {@link TimedInput#parse(java.nio.file.Path)} and
+ * {@link TimedInput#parseAlt(java.nio.file.Path)}). It accepts exactly the same input as the regular expressions used by
+ * {@link TimedInput#parseCustom(Reader, int, String, String, String, String, String, boolean)} for these formats, but does not create temporary
+ * {@link String}s. Symbols are directly translated to their index in the alphabet and the result is a compact {@link TimedInput}.
+ *
+ * @author Timo Klerx
+ *
+ */
+final class TimedInputScanner {
+
+	private static Logger logger = LoggerFactory.getLogger(TimedInputScanner.class);
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	enum Format {
+		/**
+		 * {@code (s_1,t_1) (s_2,t_2) ... (s_n,t_n) : label}
+		 */
+		STANDARD("\\s*,\\s*"),
+		/**
+		 * {@code n s_1 t_1  s_2 t_2 ... s_n t_n : label}
+		 */
+		ALT("\\s");
+
+		private final String valueSep;
+
+		private Format(String valueSep) {
+			this.valueSep = valueSep;
+		}
+	}
+
+	private final Format format;
+	private final boolean skipFirstElement;
+
+	// the alphabet in order of first occurrence
+	private final List<String> alphabet = new ArrayList<>();
+	private int[] symbolTable = new int[64];
+	private final TIntList symbolIds = new TIntArrayList();
+	private final TIntList timeDelays = new TIntArrayList();
+	private final TIntList wordOffsets = new TIntArrayList();
+	private final List<ClassLabel> labels = new ArrayList<>();
+
+	private char[] line = new char[256];
+	private int lineLength;
+	private int lineCount = 0;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int bufferPos = 0;
+	private int bufferEnd = 0;
+	private boolean skipLineFeed = false;
+
+	// token boundaries of the current line
+	private int[] tokens = new int[64];
+
+	// errors of a single chunk are not logged because the whole file is parsed again to report them
+	private boolean logErrors = true;
+
+	TimedInputScanner(Format format, boolean skipFirstElement) {
+		this.format = format;
+		this.skipFirstElement = skipFirstElement;
+		Arrays.fill(symbolTable, -1);
+	}
+
+	/**
+	 * Parses all timed sequences from the given {@link Reader}. The reader is closed afterwards.
+	 *
+	 * @param in
+	 *            the reader to parse
+	 * @param lineOffset
+	 *            The number of lines that will be skipped at the beginning
+	 * @return the parsed sequences as a compact {@link TimedInput}
+	 * @throws IOException
+	 */
+	TimedInput parse(Reader in, int lineOffset) throws IOException {
+		scan(in, lineOffset);
+		return toTimedInput();
+	}
+
+	private void scan(Reader in, int lineOffset) throws IOException {
+		try (Reader r = in) {
+			for (int i = 0; i < lineOffset; i++) {
+				readLine(r);
+			}
+			while (readLine(r)) {
+				if (lineLength == 0) {
+					continue;
+				}
+				parseLine();
+				lineCount++;
+			}
+		}
+	}
+
+	/**
+	 * Parses the next timed sequence from the given {@link Reader}. Only the alphabet is kept between calls, so arbitrarily many sequences can be
+	 * parsed with constant memory.
+	 *
+	 * @return the next timed sequence or {@code null} if the end of the stream was reached
+	 */
+	TimedWord nextWord(Reader r) throws IOException {
+		while (readLine(r)) {
+			if (lineLength == 0) {
+				continue;
+			}
+			symbolIds.resetQuick();
+			timeDelays.resetQuick();
+			wordOffsets.resetQuick();
+			labels.clear();
+			parseLine();
+			lineCount++;
+			final List<String> symbols = new ArrayList<>(symbolIds.size());
+			final TIntList timeValues = new TIntArrayList(symbolIds.size());
+			for (int i = 0; i < symbolIds.size(); i++) {
+				symbols.add(alphabet.get(symbolIds.get(i)));
+				timeValues.add(timeDelays.get(i));
+			}
+			return new TimedWord(symbols, timeValues, labels.get(0));
+		}
+		return null;
+	}
+
+	private TimedInput toTimedInput() {
+		wordOffsets.add(symbolIds.size());
+		return new TimedInput(alphabet, symbolIds.toArray(), timeDelays.toArray(), wordOffsets.toArray(), labels.toArray(new ClassLabel[labels.size()]));
+	}
+
+	/**
+	 * Parses all timed sequences from the given file. If the file is large enough, it is split into newline aligned byte ranges that are parsed
+	 * concurrently. The result is identical to a sequential parse with {@link #parse(Reader, int)}, including the order of the alphabet.
+	 *
+	 * @param in
+	 *            the file to parse
+	 * @param lineOffset
+	 *            The number of lines that will be skipped at the beginning
+	 * @param chunkSize
+	 *            the minimum number of bytes parsed by one task
+	 * @return the parsed sequences as a compact {@link TimedInput}
+	 * @throws IOException
+	 */
+	TimedInput parseParallel(Path in, int lineOffset, long chunkSize) throws IOException {
+		final long[] bounds = findChunkBounds(in, lineOffset, chunkSize);
+		if (bounds.length <= 2) {
+			return parse(Files.newBufferedReader(in), lineOffset);
+		}
+		final int chunks = bounds.length - 1;
+		final TimedInputScanner[] scanners = new TimedInputScanner[chunks];
+		try {
+			IntStream.range(0, chunks).parallel().forEach(i -> {
+				final TimedInputScanner scanner = new TimedInputScanner(format, skipFirstElement);
+				scanner.logErrors = false;
+				try {
+					scanner.scan(openRange(in, bounds[i], bounds[i + 1]), 0);
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				scanners[i] = scanner;
+			});
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		} catch (final IllegalArgumentException e) {
+			// the line numbers of a chunk are not the line numbers of the file, so the whole file is parsed again to report the error
+			return parse(Files.newBufferedReader(in), lineOffset);
+		}
+		return join(scanners);
+	}
+
+	/**
+	 * Joins the chunks in file order. Symbols get their index in the order of their first occurrence in the file like in a sequential parse.
+	 */
+	private TimedInput join(TimedInputScanner[] scanners) {
+		final int chunks = scanners.length;
+		final int[][] idMaps = new int[chunks][];
+		final int[] symbolStarts = new int[chunks + 1];
+		final int[] wordStarts = new int[chunks + 1];
+		for (int i = 0; i < chunks; i++) {
+			final TimedInputScanner scanner = scanners[i];
+			idMaps[i] = new int[scanner.alphabet.size()];
+			for (int id = 0; id < scanner.alphabet.size(); id++) {
+				final String symbol = scanner.alphabet.get(id);
+				idMaps[i][id] = getSymbolId(symbol.toCharArray(), 0, symbol.length());
+			}
+			symbolStarts[i + 1] = symbolStarts[i] + scanner.symbolIds.size();
+			wordStarts[i + 1] = wordStarts[i] + scanner.labels.size();
+		}
+		final int[] allSymbolIds = new int[symbolStarts[chunks]];
+		final int[] allTimeDelays = new int[symbolStarts[chunks]];
+		final int[] allWordOffsets = new int[wordStarts[chunks] + 1];
+		final ClassLabel[] allLabels = new ClassLabel[wordStarts[chunks]];
+		IntStream.range(0, chunks).parallel().forEach(i -> {
+			final TimedInputScanner scanner = scanners[i];
+			final int[] idMap = idMaps[i];
+			for (int j = 0; j < scanner.symbolIds.size(); j++) {
+				allSymbolIds[symbolStarts[i] + j] = idMap[scanner.symbolIds.get(j)];
+			}
+			scanner.timeDelays.toArray(allTimeDelays, 0, symbolStarts[i], scanner.timeDelays.size());
+			for (int j = 0; j < scanner.wordOffsets.size(); j++) {
+				allWordOffsets[wordStarts[i] + j] = symbolStarts[i] + scanner.wordOffsets.get(j);
+			}
+			for (int j = 0; j < scanner.labels.size(); j++) {
+				allLabels[wordStarts[i] + j] = scanner.labels.get(j);
+			}
+		});
+		allWordOffsets[wordStarts[chunks]] = symbolStarts[chunks];
+		return new TimedInput(alphabet, allSymbolIds, allTimeDelays, allWordOffsets, allLabels);
+	}
+
+	/**
+	 * Splits the file after the header into byte ranges that end directly after a '\n'. A '\n' byte is never part of a multi byte character, so each
+	 * range can be decoded on its own.
+	 *
+	 * @return the start of each range followed by the end of the file
+	 */
+	private static long[] findChunkBounds(Path in, int lineOffset, long chunkSize) throws IOException {
+		final TLongList bounds = new TLongArrayList();
+		try (FileChannel channel = FileChannel.open(in, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			long start = skipLines(channel, buffer, lineOffset);
+			while (start < size) {
+				bounds.add(start);
+				start = nextLineStart(channel, buffer, start + chunkSize, size);
+			}
+			bounds.add(size);
+		}
+		return bounds.toArray();
+	}
+
+	/**
+	 * Returns the position directly after the first '\n' at or after {@code pos} or {@code end} if there is no such '\n' before {@code end}.
+	 */
+	static long nextLineStart(FileChannel channel, ByteBuffer buffer, long pos, long end) throws IOException {
+		while (pos < end) {
+			buffer.clear();
+			final int read = channel.read(buffer, pos);
+			if (read <= 0) {
+				break;
+			}
+			final int newLine = indexOf(buffer, (byte) '\n', 0, (int) Math.min(read, end - pos));
+			if (newLine >= 0) {
+				return pos + newLine + 1;
+			}
+			pos += read;
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the position after the given number of lines, using the same line terminators as {@link java.io.BufferedReader#readLine()}.
+	 */
+	static long skipLines(FileChannel channel, ByteBuffer buffer, int lines) throws IOException {
+		long pos = 0;
+		boolean skipLineFeed = false;
+		int skipped = 0;
+		while (skipped < lines || skipLineFeed) {
+			buffer.clear();
+			final int read = channel.read(buffer, pos);
+			if (read <= 0) {
+				break;
+			}
+			int i = 0;
+			for (; i < read && (skipped < lines || skipLineFeed); i++) {
+				final byte b = buffer.get(i);
+				if (skipLineFeed) {
+					skipLineFeed = false;
+					if (b == '\n') {
+						continue;
+					}
+					if (skipped == lines) {
+						break;
+					}
+				}
+				if (b == '\n') {
+					skipped++;
+				} else if (b == '\r') {
+					skipped++;
+					skipLineFeed = true;
+				}
+			}
+			pos += i;
+			if (i < read) {
+				break;
+			}
+		}
+		return pos;
+	}
+
+	private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	static Reader openRange(Path in, long start, long end) throws IOException {
+		final FileChannel channel = FileChannel.open(in, StandardOpenOption.READ);
+		channel.position(start);
+		final InputStream range = new BoundedInputStream(Channels.newInputStream(channel), end - start);
+		return new InputStreamReader(range, StandardCharsets.UTF_8.newDecoder());
+	}
+
+	/**
+	 * Reads the next line into {@link #line} with the same line terminators as {@link java.io.BufferedReader#readLine()}.
+	 *
+	 * @return false if the end of the stream was reached and no line was read
+	 */
+	private boolean readLine(Reader r) throws IOException {
+		lineLength = 0;
+		boolean readSomething = false;
+		while (true) {
+			if (bufferPos >= bufferEnd) {
+				bufferEnd = r.read(buffer, 0, buffer.length);
+				bufferPos = 0;
+				if (bufferEnd <= 0) {
+					bufferEnd = 0;
+					return readSomething;
+				}
+			}
+			if (skipLineFeed) {
+				skipLineFeed = false;
+				if (buffer[bufferPos] == '\n') {
+					bufferPos++;
+					continue;
+				}
+			}
+			readSomething = true;
+			final char c = buffer[bufferPos++];
+			if (c == '\n') {
+				return true;
+			} else if (c == '\r') {
+				skipLineFeed = true;
+				return true;
+			}
+			if (lineLength == line.length) {
+				line = Arrays.copyOf(line, line.length * 2);
+			}
+			line[lineLength++] = c;
+		}
+	}
+
+	private void parseLine() {
+		final char[] c = line;
+		int end = lineLength;
+		ClassLabel label = ClassLabel.NORMAL;
+
+		// split and parse the class label (\s*:\s*)
+		for (int k = 0; k < end; k++) {
+			if (c[k] == ':') {
+				int labelStart = k + 1;
+				while (labelStart < lineLength && isWhitespace(c[labelStart])) {
+					labelStart++;
+				}
+				if (lineLength - labelStart == 1 && c[labelStart] == '1') {
+					label = ClassLabel.ANOMALY;
+				}
+				end = k;
+				while (end > 0 && isWhitespace(c[end - 1])) {
+					end--;
+				}
+				break;
+			}
+		}
+
+		// trim
+		int start = 0;
+		while (start < end && c[start] <= ' ') {
+			start++;
+		}
+		while (end > start && c[end - 1] <= ' ') {
+			end--;
+		}
+
+		if (format == Format.STANDARD) {
+			// remove ^\( and \)$
+			if (start < end && c[start] == '(') {
+				start++;
+			}
+			if (start < end) {
+				if (c[end - 1] == ')') {
+					end--;
+				} else if (end - start >= 2 && isLineTerminator(c[end - 1]) && c[end - 2] == ')') {
+					// $ also matches before a final line terminator
+					System.arraycopy(c, end - 1, c, end - 2, 1);
+					end--;
+				}
+			}
+		} else {
+			// remove ^\d+
+			int digitEnd = start;
+			while (digitEnd < end && c[digitEnd] >= '0' && c[digitEnd] <= '9') {
+				digitEnd++;
+			}
+			if (digitEnd > start && digitEnd < end && c[digitEnd] == ' ') {
+				start = digitEnd + 1;
+			}
+		}
+
+		wordOffsets.add(symbolIds.size());
+		labels.add(label);
+		if (start < end) {
+			final int tokenCount = splitPairs(start, end);
+			for (int i = skipFirstElement ? 1 : 0; i < tokenCount; i++) {
+				parsePair(tokens[2 * i], tokens[2 * i + 1]);
+			}
+		}
+	}
+
+	/**
+	 * Splits the given range of the line like {@link String#split(String)} with the pair separator of the format.
+	 *
+	 * @return the number of tokens stored in {@link #tokens}
+	 */
+	private int splitPairs(int start, int end) {
+		final char[] c = line;
+		int count = 0;
+		int tokenStart = start;
+		int i = start;
+		while (i < end) {
+			int matchEnd = -1;
+			if (format == Format.STANDARD) {
+				// \)\s+\(
+				if (c[i] == ')') {
+					int j = i + 1;
+					while (j < end && isWhitespace(c[j])) {
+						j++;
+					}
+					if (j > i + 1 && j < end && c[j] == '(') {
+						matchEnd = j + 1;
+					}
+				}
+			} else {
+				// \s{2}
+				if (i + 1 < end && isWhitespace(c[i]) && isWhitespace(c[i + 1])) {
+					matchEnd = i + 2;
+				}
+			}
+			if (matchEnd >= 0) {
+				count = addToken(count, tokenStart, i);
+				tokenStart = matchEnd;
+				i = matchEnd;
+			} else {
+				i++;
+			}
+		}
+		count = addToken(count, tokenStart, end);
+		// trailing empty strings are discarded
+		while (count > 0 && tokens[2 * count - 2] == tokens[2 * count - 1]) {
+			count--;
+		}
+		return count;
+	}
+
+	private int addToken(int count, int start, int end) {
+		if (2 * count + 2 > tokens.length) {
+			tokens = Arrays.copyOf(tokens, tokens.length * 2);
+		}
+		tokens[2 * count] = start;
+		tokens[2 * count + 1] = end;
+		return count + 1;
+	}
+
+	private void parsePair(int start, int end) {
+		final char[] c = line;
+		int symbolEnd = -1;
+		int valueStart = -1;
+		if (format == Format.STANDARD) {
+			// \s*,\s*
+			for (int k = start; k < end; k++) {
+				if (c[k] == ',') {
+					symbolEnd = k;
+					while (symbolEnd > start && isWhitespace(c[symbolEnd - 1])) {
+						symbolEnd--;
+					}
+					valueStart = k + 1;
+					while (valueStart < end && isWhitespace(c[valueStart])) {
+						valueStart++;
+					}
+					break;
+				}
+			}
+		} else {
+			// \s
+			for (int k = start; k < end; k++) {
+				if (isWhitespace(c[k])) {
+					symbolEnd = k;
+					valueStart = k + 1;
+					break;
+				}
+			}
+		}
+		if (symbolEnd < 0) {
+			final String errorMessage = "Pair \"" + new String(c, start, end - start) + "\" in line " + lineCount + " is in the wrong format. Separator \""
+					+ format.valueSep + "\" not found!";
+			throw parseError(errorMessage);
+		}
+		if (isSingleNonWordCodePoint(start, symbolEnd)) {
+			// Only characters, digits and underscores are allowed for event names ([a-zA-Z_0-9])
+			final String errorMessage = "Event name \"" + new String(c, start, symbolEnd - start) + "\" in line " + lineCount
+					+ " contains forbidden characters. " + "Only [a-zA-Z_0-9] are allowed.";
+			throw parseError(errorMessage);
+		}
+		final int timeDelay = parseInt(valueStart, end);
+		symbolIds.add(getSymbolId(start, symbolEnd));
+		timeDelays.add(timeDelay);
+	}
+
+	private IllegalArgumentException parseError(String errorMessage) {
+		final IllegalArgumentException e = new IllegalArgumentException(errorMessage);
+		if (logErrors) {
+			logger.error(errorMessage, e);
+		}
+		return e;
+	}
+
+	/**
+	 * Same as {@code symbol.matches("\\W")}
+	 */
+	private boolean isSingleNonWordCodePoint(int start, int end) {
+		final char[] c = line;
+		if (end - start == 1) {
+			return !isWordChar(c[start]);
+		}
+		return end - start == 2 && Character.isHighSurrogate(c[start]) && Character.isLowSurrogate(c[start + 1]);
+	}
+
+	/**
+	 * Parses the trimmed range like {@link Integer#parseInt(String)}.
+	 */
+	private int parseInt(int start, int end) {
+		final char[] c = line;
+		while (start < end && c[start] <= ' ') {
+			start++;
+		}
+		while (end > start && c[end - 1] <= ' ') {
+			end--;
+		}
+		int i = start;
+		boolean negative = false;
+		if (i < end && (c[i] == '-' || c[i] == '+')) {
+			negative = c[i] == '-';
+			i++;
+		}
+		// the fast path only handles ASCII digits that cannot overflow
+		if (i < end && end - i <= 9) {
+			int result = 0;
+			for (; i < end; i++) {
+				final char d = c[i];
+				if (d < '0' || d > '9') {
+					break;
+				}
+				result = result * 10 + (d - '0');
+			}
+			if (i == end) {
+				return negative ? -result : result;
+			}
+		}
+		return Integer.parseInt(new String(c, start, end - start));
+	}
+
+	/**
+	 * Returns the index of the symbol in the given range of the line and adds the symbol to the alphabet if it is new.
+	 */
+	private int getSymbolId(int start, int end) {
+		return getSymbolId(line, start, end);
+	}
+
+	private int getSymbolId(char[] c, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + c[i];
+		}
+		final int mask = symbolTable.length - 1;
+		int slot = mix(hash) & mask;
+		while (symbolTable[slot] >= 0) {
+			final String s = alphabet.get(symbolTable[slot]);
+			if (equals(s, c, start, end)) {
+				return symbolTable[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		final int id = alphabet.size();
+		alphabet.add(new String(c, start, end - start));
+		symbolTable[slot] = id;
+		if (2 * alphabet.size() > symbolTable.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void rehash() {
+		symbolTable = new int[symbolTable.length * 2];
+		Arrays.fill(symbolTable, -1);
+		final int mask = symbolTable.length - 1;
+		for (int id = 0; id < alphabet.size(); id++) {
+			int slot = mix(alphabet.get(id).hashCode()) & mask;
+			while (symbolTable[slot] >= 0) {
+				slot = (slot + 1) & mask;
+			}
+			symbolTable[slot] = id;
+		}
+	}
+
+	private static int mix(int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equals(String s, char[] c, int start, int end) {
+		if (s.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) != c[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * \s in {@link java.util.regex.Pattern}
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * \w in {@link java.util.regex.Pattern}
+	 */
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * The line terminators in {@link java.util.regex.Pattern} that are not removed by {@link String#trim()}
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+}
@@ -109,7 +109,7 @@ public class TimedWord implements Serializable{
 	 * @return {@code true} if and only if the value of the class label is {@link ClassLabel#ANOMALY}
 	 */
 	public boolean isAnomaly() {
-		return label.equals(ClassLabel.ANOMALY);
+		return getLabel().equals(ClassLabel.ANOMALY);
 	}
 
 	/**
@@ -119,7 +119,7 @@ public class TimedWord implements Serializable{
 	 */
 	@Deprecated
 	public int getLength() {
-		return symbols.size();
+		return length();
 	}
 
 	/**
@@ -208,13 +208,19 @@ public class TimedWord implements Serializable{
 		return sb.toString();
 	}
 
+	// hashCode and equals only use the accessors s.t. words of a compact TimedInput are equal to the words they were created from
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((label == null) ? 0 : label.hashCode());
-		result = prime * result + ((symbols == null) ? 0 : symbols.hashCode());
-		result = prime * result + ((timeValues == null) ? 0 : timeValues.hashCode());
+		result = prime * result + ((getLabel() == null) ? 0 : getLabel().hashCode());
+		int symbolsHash = 1;
+		for (int i = 0; i < length(); i++) {
+			symbolsHash = prime * symbolsHash + getSymbol(i).hashCode();
+		}
+		result = prime * result + symbolsHash;
+		final TIntList times = getTimeValues();
+		result = prime * result + ((times == null) ? 0 : times.hashCode());
 		return result;
 	}
 
@@ -226,25 +232,28 @@ public class TimedWord implements Serializable{
 		if (obj == null) {
 			return false;
 		}
-		if (getClass() != obj.getClass()) {
+		if (!(obj instanceof TimedWord)) {
 			return false;
 		}
 		final TimedWord other = (TimedWord) obj;
-		if (label != other.label) {
+		if (getLabel() != other.getLabel()) {
 			return false;
 		}
-		if (symbols == null) {
-			if (other.symbols != null) {
+		if (length() != other.length()) {
+			return false;
+		}
+		for (int i = 0; i < length(); i++) {
+			if (!getSymbol(i).equals(other.getSymbol(i))) {
 				return false;
 			}
-		} else if (!symbols.equals(other.symbols)) {
-			return false;
 		}
-		if (timeValues == null) {
-			if (other.timeValues != null) {
+		final TIntList times = getTimeValues();
+		final TIntList otherTimes = other.getTimeValues();
+		if (times == null) {
+			if (otherTimes != null) {
 				return false;
 			}
-		} else if (!timeValues.equals(other.timeValues)) {
+		} else if (!times.equals(otherTimes)) {
 			return false;
 		}
 		return true;
@@ -13,6 +13,8 @@ package sadl.integration;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.util.Precision;
@@ -21,23 +23,33 @@ import org.slf4j.LoggerFactory;
 
 import jsat.distributions.ContinuousDistribution;
 import jsat.distributions.SingleValueDistribution;
-import sadl.integration.MonteCarloPoint.MonteCarloPointComparator;
 import sadl.utils.MasterSeed;
 import sadl.utils.Settings;
 
+/**
+ * Monte Carlo integration of a density. The pdf values of the points that are accepted by rejection sampling are stored in a sorted array, so the proportion
+ * of the area with smaller pdf values can be found with a binary search.
+ *
+ * The points are sampled in chunks of a fixed size with a {@link Random} for every chunk that is derived from a seed drawn once per preprocessing. So the
+ * chunks can be sampled in parallel and the result is the same as for a sequential run.
+ *
+ * @author Timo Klerx
+ *
+ */
 public class MonteCarloIntegration implements Serializable {
-	private static final long serialVersionUID = -7798039596284260123L;
+	private static final long serialVersionUID = 3371960457613285710L;
 	private static Logger logger = LoggerFactory.getLogger(MonteCarloIntegration.class);
+	private static final int CHUNK_SIZE = 1 << 12;
 	int pointsToStore;
-	MonteCarloPoint[] integral;
+	// sorted pdf values of the accepted points
+	double[] integral;
 	boolean preprocessed = false;
 	private boolean singleValueDis = false;
-	final Random xRandom;
-	final Random yRandom;
+	final Random random;
+
 	public MonteCarloIntegration(int pointsToStore) {
 		this.pointsToStore = pointsToStore;
-		xRandom = MasterSeed.nextRandom();
-		yRandom = MasterSeed.nextRandom();
+		random = MasterSeed.nextRandom();
 	}
 
 	public void preprocess(ContinuousDistribution d, double stepSize, double xMin, double xMax) {
@@ -55,34 +67,41 @@ public class MonteCarloIntegration implements Serializable {
 		final Pair<Double, Double> minMax = findExtreme(d, xMin, xMax, stepSize);
 		final double yMin = minMax.getLeft().doubleValue();
 		final double yMax = minMax.getRight().doubleValue();
+		final double xStart = xMin;
 		final double xDiff = xMax - xMin;
 		final double yDiff = yMax - yMin;
 
-		int pointsFound = 0;
-		int pointsRejected = 0;
-		integral = new MonteCarloPoint[pointsToStore];
-		while (pointsFound < pointsToStore) {
-			final double xSampled = xMin + (xDiff * xRandom.nextDouble());
-			final double ySampled = yMin + (yDiff * yRandom.nextDouble());
-			final double pdfValue = d.pdf(xSampled);
-			if (pdfValue > 0 && ySampled <= pdfValue) {
-				// store the point because the sampled y value is smaller than the pdf value at the x value
-				integral[pointsFound] = new MonteCarloPoint(xSampled, pdfValue);
-				pointsFound++;
-			} else {
-				pointsRejected++;
+		final double[] pdfValues = new double[pointsToStore];
+		final int chunks = (pointsToStore + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final long[] pointsRejected = new long[chunks];
+		final long baseSeed = random.nextLong();
+		final IntConsumer f = chunk -> {
+			final Random chunkRandom = MasterSeed.derive(baseSeed, chunk);
+			final int end = Math.min(pointsToStore, (chunk + 1) * CHUNK_SIZE);
+			int pointsFound = chunk * CHUNK_SIZE;
+			while (pointsFound < end) {
+				final double xSampled = xStart + (xDiff * chunkRandom.nextDouble());
+				final double ySampled = yMin + (yDiff * chunkRandom.nextDouble());
+				final double pdfValue = d.pdf(xSampled);
+				if (pdfValue > 0 && ySampled <= pdfValue) {
+					// store the point because the sampled y value is smaller than the pdf value at the x value
+					pdfValues[pointsFound] = pdfValue;
+					pointsFound++;
+				} else {
+					pointsRejected[chunk]++;
+				}
 			}
-		}
-		logger.debug("Rejected {} points", pointsRejected);
-		logger.debug("Accepted {} points", pointsFound);
+		};
 		if (Settings.isParallel()) {
-			Arrays.parallelSort(integral, new MonteCarloPointComparator());
+			IntStream.range(0, chunks).parallel().forEach(f);
+			Arrays.parallelSort(pdfValues);
 		} else {
-			Arrays.sort(integral, new MonteCarloPointComparator());
+			IntStream.range(0, chunks).forEach(f);
+			Arrays.sort(pdfValues);
 		}
-
-		// Collections.sort(integral2);
-		// integral2.sort((m1, m2) -> Double.compare(m1.getX(), m2.getX()));
+		logger.debug("Rejected {} points", Arrays.stream(pointsRejected).sum());
+		logger.debug("Accepted {} points", pointsToStore);
+		integral = pdfValues;
 		preprocessed = true;
 	}
 
@@ -90,6 +109,10 @@ public class MonteCarloIntegration implements Serializable {
 		return preprocessed;
 	}
 
+	boolean isSingleValueDistribution() {
+		return singleValueDis;
+	}
+
 	public void preprocess(ContinuousDistribution d, int numberOfSteps, double xMin, double xMax) {
 		preprocess(d, (xMax - xMin) / numberOfSteps, xMin, xMax);
 	}
@@ -123,11 +146,10 @@ public class MonteCarloIntegration implements Serializable {
 				return 0;
 			}
 		}
-		// x value of monte carlo point does not matter, we search for the pdf value
-		int foundIndex = Arrays.binarySearch(integral, new MonteCarloPoint(0, pdfValue));
+		int foundIndex = Arrays.binarySearch(integral, pdfValue);
 		if (foundIndex > 0) {
 			// Check whether there are the same pdf values right to the found one (is just done because of binary search)
-			while (foundIndex + 1 < integral.length && Precision.equals(pdfValue, integral[foundIndex + 1].getPdfValue())) {
+			while (foundIndex + 1 < integral.length && Precision.equals(pdfValue, integral[foundIndex + 1])) {
 				foundIndex++;
 			}
 		} else if (foundIndex < 0) {
@@ -137,18 +159,20 @@ public class MonteCarloIntegration implements Serializable {
 				foundIndex--;
 			}
 		}
-		logger.debug("FoundIndex={}", foundIndex);
-		if (foundIndex - 1 >= 0) {
-			logger.debug("Pdf value one index before={}", integral[foundIndex - 1].getPdfValue());
-		}
-		logger.debug("Pdf value to look for={}", pdfValue);
-		logger.debug("Pdf value at index={}", integral[foundIndex].getPdfValue());
-		if (foundIndex + 1 < integral.length) {
-			logger.debug("Pdf value one index after={}", integral[foundIndex + 1].getPdfValue());
-		}
 		final int numberOfPoints = foundIndex;
-
-		logger.debug("number of Points found={}", numberOfPoints);
+		if (logger.isDebugEnabled()) {
+			// only log if enabled, so the pdf values are not boxed for every call
+			logger.debug("FoundIndex={}", foundIndex);
+			if (foundIndex - 1 >= 0) {
+				logger.debug("Pdf value one index before={}", integral[foundIndex - 1]);
+			}
+			logger.debug("Pdf value to look for={}", pdfValue);
+			logger.debug("Pdf value at index={}", integral[foundIndex]);
+			if (foundIndex + 1 < integral.length) {
+				logger.debug("Pdf value one index after={}", integral[foundIndex + 1]);
+			}
+			logger.debug("number of Points found={}", numberOfPoints);
+		}
 		return numberOfPoints / (double) pointsToStore;
 	}
 
@@ -0,0 +1,178 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.integration;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.apache.commons.math3.util.Precision;
+
+/**
+ * Interpolated lookup table that maps a pdf value to the value of {@link MonteCarloIntegration#integrate(double)} with a constant number of operations.
+ *
+ * The table stores the integral for pdf values {@code max * (1 - s * s)} with {@code s} evenly spaced in [0, 1] and {@code max} being the largest stored pdf
+ * value. Close to the maximum of a smooth density, the integral grows with the square root of the distance to the maximum, so it is almost linear in
+ * {@code s} and the linear interpolation between two entries stays accurate. More entries make the table more accurate. The largest difference to
+ * {@link MonteCarloIntegration#integrate(double)} is computed when the table is created (see {@link #getMaxError()}).
+ *
+ * @author Timo Klerx
+ *
+ */
+public final class TauLookupTable implements Serializable {
+
+	private static final long serialVersionUID = 2915768035011452981L;
+
+	private static final int MIN_SIZE = 256;
+	private static final int MAX_SIZE = 1 << 14;
+
+	private final boolean singleValueDis;
+	private final double maxPdfValue;
+	private final double[] integrals;
+	// the integral for pdf values that are not smaller than the maximum
+	private final double maxIntegral;
+	private final double maxError;
+
+	/**
+	 * Creates the smallest lookup table (with a power of two entries) whose error is not larger than the given one. The table size is limited, so for
+	 * densities with many modes the error of the returned table may be larger.
+	 *
+	 * @param mc
+	 *            the preprocessed integration
+	 * @param maxError
+	 *            the largest allowed difference to {@link MonteCarloIntegration#integrate(double)}
+	 * @return the lookup table
+	 */
+	public static TauLookupTable create(MonteCarloIntegration mc, double maxError) {
+		int size = MIN_SIZE;
+		TauLookupTable table = new TauLookupTable(mc, size);
+		while (table.getMaxError() > maxError && size < MAX_SIZE) {
+			size *= 2;
+			table = new TauLookupTable(mc, size);
+		}
+		return table;
+	}
+
+	/**
+	 * Creates the lookup table for the given integration.
+	 *
+	 * @param mc
+	 *            the preprocessed integration
+	 * @param size
+	 *            the number of entries; must be at least two
+	 */
+	public TauLookupTable(MonteCarloIntegration mc, int size) {
+		if (!mc.isPreprocessed()) {
+			throw new IllegalStateException("Preprocess before creating a lookup table!");
+		}
+		if (size < 2) {
+			throw new IllegalArgumentException("The lookup table needs at least two entries, but size=" + size);
+		}
+		singleValueDis = mc.isSingleValueDistribution();
+		if (singleValueDis) {
+			maxPdfValue = 0;
+			integrals = new double[0];
+			maxIntegral = 0;
+			maxError = 0;
+			return;
+		}
+		maxPdfValue = mc.integral[mc.integral.length - 1];
+		integrals = new double[size];
+		// pdf values that are not smaller than the maximum are handled separately, so the first entry is the integral just below the maximum. Otherwise
+		// densities with a flat maximum (e.g. uniform distributions) would be interpolated across the jump of the integral at the maximum
+		integrals[0] = mc.integrate(Math.nextDown(maxPdfValue));
+		for (int i = 1; i < size; i++) {
+			final double s = i / (double) (size - 1);
+			integrals[i] = mc.integrate(maxPdfValue * (1 - s * s));
+		}
+		maxIntegral = mc.integrate(maxPdfValue);
+		// the integral only changes at the stored pdf values and the interpolation is monotone in between, so the largest error is found at these values
+		double error = 0;
+		for (final double pdfValue : mc.integral) {
+			final double below = Math.nextDown(pdfValue);
+			error = Math.max(error, Math.abs(lookup(pdfValue) - mc.integrate(pdfValue)));
+			error = Math.max(error, Math.abs(lookup(below) - mc.integrate(below)));
+		}
+		maxError = error;
+	}
+
+	/**
+	 * Computes the same value as {@link MonteCarloIntegration#integrate(double)} up to the interpolation error of the table.
+	 *
+	 * @param pdfValue
+	 *            the density value
+	 * @return the proportion of the area with smaller pdf values
+	 */
+	public double lookup(double pdfValue) {
+		if (singleValueDis) {
+			return Precision.equals(pdfValue, 1) ? 1 : 0;
+		}
+		if (!(pdfValue < maxPdfValue)) {
+			return maxIntegral;
+		}
+		if (pdfValue <= 0) {
+			return integrals[integrals.length - 1];
+		}
+		final double s = Math.sqrt(1 - pdfValue / maxPdfValue) * (integrals.length - 1);
+		final int index = (int) s;
+		if (index >= integrals.length - 1) {
+			return integrals[integrals.length - 1];
+		}
+		return integrals[index] + (s - index) * (integrals[index + 1] - integrals[index]);
+	}
+
+	public int getSize() {
+		return integrals.length;
+	}
+
+	/**
+	 * @return the largest difference between {@link #lookup(double)} and {@link MonteCarloIntegration#integrate(double)} for any pdf value
+	 */
+	public double getMaxError() {
+		return maxError;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(integrals);
+		long temp;
+		temp = Double.doubleToLongBits(maxPdfValue);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result + (singleValueDis ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final TauLookupTable other = (TauLookupTable) obj;
+		if (!Arrays.equals(integrals, other.integrals)) {
+			return false;
+		}
+		if (Double.doubleToLongBits(maxPdfValue) != Double.doubleToLongBits(other.maxPdfValue)) {
+			return false;
+		}
+		if (singleValueDis != other.singleValueDis) {
+			return false;
+		}
+		return true;
+	}
+
+}
@@ -10,13 +10,18 @@
  */
 package sadl.interfaces;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 import org.apache.commons.math3.util.Pair;
 
 import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import sadl.constants.ClassLabel;
 import sadl.input.TimedWord;
 
 /**
@@ -33,6 +38,57 @@ public interface ProbabilisticModel extends Model {
 	 */
 	Pair<TDoubleList, TDoubleList> calculateProbabilities(TimedWord s);
 
+	/**
+	 * Calculates the same probabilities as {@link #calculateProbabilities(TimedWord)}, but appends them to the given lists instead of creating new ones. So a
+	 * caller that scores many words can reuse its lists and clear them before every word (e.g. with
+	 * {@link gnu.trove.list.array.TDoubleArrayList#resetQuick()}, which keeps the allocated array).
+	 *
+	 * @param s
+	 *            the timed word
+	 * @param eventLikelihoods
+	 *            the list the symbol probabilities are appended to
+	 * @param timeLikelihoods
+	 *            the list the time value probabilities are appended to
+	 */
+	default void calculateProbabilities(TimedWord s, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		final Pair<TDoubleList, TDoubleList> p = calculateProbabilities(s);
+		eventLikelihoods.addAll(p.getKey());
+		timeLikelihoods.addAll(p.getValue());
+	}
+
+	/**
+	 * Creates a cursor that computes the same likelihoods as {@link #calculateProbabilities(TimedWord, TDoubleList, TDoubleList)} for a word whose events
+	 * arrive one by one. The default cursor keeps the events and computes all likelihoods when the word ends, so models that can follow a word event by
+	 * event should override this method.
+	 * 
+	 * @return the cursor for one word
+	 */
+	default ProbabilityCursor createCursor() {
+		final List<String> symbols = new ArrayList<>();
+		final TIntList timeValues = new TIntArrayList();
+		return new ProbabilityCursor() {
+			private boolean ended = false;
+
+			@Override
+			public boolean next(String symbol, int timeDelay, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+				if (ended) {
+					return false;
+				}
+				symbols.add(symbol);
+				timeValues.add(timeDelay);
+				return true;
+			}
+
+			@Override
+			public void end(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+				if (!ended) {
+					calculateProbabilities(new TimedWord(symbols, timeValues, ClassLabel.NORMAL), eventLikelihoods, timeLikelihoods);
+					ended = true;
+				}
+			}
+		};
+	}
+
 	default Map<String, Function<TimedWord, Pair<TDoubleList, TDoubleList>>> getAvailableCalcMethods() {
 		final Map<String, Function<TimedWord, Pair<TDoubleList, TDoubleList>>> m = new HashMap<>();
 		m.put("default", this::calculateProbabilities);
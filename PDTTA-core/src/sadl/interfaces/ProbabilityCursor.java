@@ -0,0 +1,52 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.interfaces;
+
+import gnu.trove.list.TDoubleList;
+
+/**
+ * Computes the likelihoods of a {@link ProbabilisticModel} for a word whose events arrive one by one. After all events of a word were passed to
+ * {@link #next(String, int, TDoubleList, TDoubleList)} and {@link #end(TDoubleList, TDoubleList)} was called, the lists contain the same likelihoods as
+ * {@link ProbabilisticModel#calculateProbabilities(sadl.input.TimedWord, TDoubleList, TDoubleList)} would have appended for the word. The same lists have to
+ * be passed to every call, because a cursor may change the likelihoods it appended before (e.g. if the word cannot be parsed).
+ * 
+ * A cursor is used for a single word by a single thread.
+ * 
+ * @author Timo Klerx
+ *
+ */
+public interface ProbabilityCursor {
+
+	/**
+	 * Appends the likelihoods of the next event of the word.
+	 * 
+	 * @param symbol
+	 *            the symbol of the event
+	 * @param timeDelay
+	 *            the time delay of the event
+	 * @param eventLikelihoods
+	 *            the list of the event likelihoods of the word
+	 * @param timeLikelihoods
+	 *            the list of the time likelihoods of the word
+	 * @return false if the word cannot be parsed; then the lists contain the final likelihoods and all further events are ignored
+	 */
+	boolean next(String symbol, int timeDelay, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods);
+
+	/**
+	 * Appends the likelihoods for ending the word after the events that were passed so far. Afterwards, the cursor ignores all calls.
+	 * 
+	 * @param eventLikelihoods
+	 *            the list of the event likelihoods of the word
+	 * @param timeLikelihoods
+	 *            the list of the time likelihoods of the word
+	 */
+	void end(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods);
+}
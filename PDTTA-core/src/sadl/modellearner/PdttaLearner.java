@@ -49,6 +49,8 @@ public class PdttaLearner implements ProbabilisticModelLearner {
 	private static Logger logger = LoggerFactory.getLogger(PdttaLearner.class);
 	KernelFunction kdeKernelFunction;
 	double kdeBandwidth;
+	// allowed error of the binned evaluation of the fitted KDEs (see MyKernelDensityEstimator.setMaxBinningError); if not positive, they are exact
+	double kdeMaxBinningError;
 	private final PdfaLearner pdfaLearner;
 	protected final TauEstimator tauEstimator;
 
@@ -69,8 +71,14 @@ public class PdttaLearner implements ProbabilisticModelLearner {
 	}
 
 	public PdttaLearner(PdfaLearner pdfaLearner, KernelFunction kdeKernelFunction, double kdeBandwidth, TauEstimator tauEstimation) {
+		this(pdfaLearner, kdeKernelFunction, kdeBandwidth, 0, tauEstimation);
+	}
+
+	public PdttaLearner(PdfaLearner pdfaLearner, KernelFunction kdeKernelFunction, double kdeBandwidth, double kdeMaxBinningError,
+			TauEstimator tauEstimation) {
 		this.kdeKernelFunction = kdeKernelFunction;
 		this.kdeBandwidth = kdeBandwidth;
+		this.kdeMaxBinningError = kdeMaxBinningError;
 		this.pdfaLearner = pdfaLearner;
 		this.tauEstimator = tauEstimation;
 	}
@@ -101,6 +109,12 @@ public class PdttaLearner implements ProbabilisticModelLearner {
 
 	}
 
+	public PdttaLearner(double mergeAlpha, boolean recursiveMergeTest, KernelFunction kdeKernelFunction, double kdeBandwidth, double kdeMaxBinningError,
+			MergeTest mergeTest, double smoothingPrior, int mergeT0, TauEstimator tauEstimation) {
+		this(new TrebaPdfaLearner(mergeAlpha, recursiveMergeTest, mergeTest, smoothingPrior, mergeT0), kdeKernelFunction, kdeBandwidth, kdeMaxBinningError,
+				tauEstimation);
+	}
+
 	public PdttaLearner(double mergeAlpha, boolean recursiveMergeTest, MergeTest mergeTest) {
 		this(mergeAlpha, recursiveMergeTest, null, -1, mergeTest);
 	}
@@ -236,7 +250,9 @@ public class PdttaLearner implements ProbabilisticModelLearner {
 			if (newKdeBandwidth <= 0) {
 				newKdeBandwidth = MyKernelDensityEstimator.BandwithGuassEstimate(v);
 			}
-			final MyKernelDensityEstimator kde = new MyKernelDensityEstimator(v, newKernelFunction, newKdeBandwidth);
+			// time values are integers and often repeated, so each distinct value is only stored once
+			final MyKernelDensityEstimator kde = MyKernelDensityEstimator.withRepeatedValues(v, newKernelFunction, newKdeBandwidth);
+			kde.setMaxBinningError(kdeMaxBinningError);
 			return kde;
 		}
 	}
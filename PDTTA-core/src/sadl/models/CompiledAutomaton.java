@@ -0,0 +1,257 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.models;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import jsat.distributions.ContinuousDistribution;
+import sadl.input.TimedWord;
+import sadl.structure.Transition;
+
+/**
+ * Immutable scoring form of a {@link PDFA} or {@link PDTTA}. The states are numbered densely and the outgoing transitions of all states are stored in
+ * compressed sparse row (CSR) form in flat arrays, sorted by symbol index within each state. Every transition has its probability, its log-probability and
+ * (for a {@link PDTTA}) its time distribution. The stop symbol {@link Transition#STOP_TRAVERSING_SYMBOL} is stored as a self loop with the final state
+ * probability, so looking up a symbol gives the same transition as {@link PDFA#getTransition(int, String)}.
+ *
+ * The automaton is only read after construction, so it can be used by several threads concurrently.
+ *
+ * @author Timo Klerx
+ *
+ */
+public final class CompiledAutomaton {
+
+	public static final int NO_TRANSITION = -1;
+
+	private final TObjectIntMap<String> symbolIds;
+	private final int startState;
+	private final double[] finalStateProbabilities;
+	// the transitions of state s are at the indexes rowStart[s] (inclusive) to rowStart[s + 1] (exclusive)
+	private final int[] rowStart;
+	private final int[] symbols;
+	private final int[] targets;
+	private final double[] probabilities;
+	private final double[] logProbabilities;
+	private final ContinuousDistribution[] distributions;
+
+	/**
+	 * Compiles the given automaton.
+	 *
+	 * @param pdfa
+	 *            the automaton to compile
+	 * @param distributions
+	 *            gives the time distribution of a transition or {@code null} if there is none
+	 */
+	CompiledAutomaton(PDFA pdfa, Function<Transition, ContinuousDistribution> distributions) {
+		symbolIds = new TObjectIntHashMap<>(11, 0.5f, NO_TRANSITION);
+		final int stopSymbol = symbolId(Transition.STOP_TRAVERSING_SYMBOL);
+		final TIntIntMap stateIds = new TIntIntHashMap(11, 0.5f, -1, -1);
+		final TIntList originalStates = new TIntArrayList();
+		final int[] states = pdfa.getStates();
+		Arrays.sort(states);
+		addState(PDFA.START_STATE, stateIds, originalStates);
+		for (final int state : states) {
+			addState(state, stateIds, originalStates);
+		}
+		// transitions may lead to states that are not contained in the set of states anymore
+		for (int s = 0; s < originalStates.size(); s++) {
+			for (final Transition t : pdfa.getOutTransitions(originalStates.get(s), false)) {
+				addState(t.getToState(), stateIds, originalStates);
+			}
+		}
+		final int stateCount = originalStates.size();
+		startState = stateIds.get(PDFA.START_STATE);
+		finalStateProbabilities = new double[stateCount];
+		rowStart = new int[stateCount + 1];
+		int transitionCount = 0;
+		for (int s = 0; s < stateCount; s++) {
+			finalStateProbabilities[s] = pdfa.getFinalStateProbability(originalStates.get(s));
+			transitionCount += pdfa.getOutTransitions(originalStates.get(s), false).size() + 1;
+		}
+		final int[] rowSymbols = new int[transitionCount];
+		final int[] rowTargets = new int[transitionCount];
+		final double[] rowProbabilities = new double[transitionCount];
+		final ContinuousDistribution[] rowDistributions = new ContinuousDistribution[transitionCount];
+		int pos = 0;
+		for (int s = 0; s < stateCount; s++) {
+			rowStart[s] = pos;
+			final int state = originalStates.get(s);
+			final List<Transition> out = pdfa.getOutTransitions(state, false);
+			final Transition[] row = new Transition[out.size() + 1];
+			int rowLength = 0;
+			row[rowLength++] = pdfa.getTransition(state, Transition.STOP_TRAVERSING_SYMBOL);
+			for (final Transition t : out) {
+				// for several transitions with the same symbol, the one that getTransition returns is used
+				if (!t.getSymbol().equals(Transition.STOP_TRAVERSING_SYMBOL) && t == pdfa.getTransition(state, t.getSymbol())) {
+					row[rowLength++] = t;
+				}
+			}
+			final int[] rowSymbolIds = new int[rowLength];
+			final Integer[] order = new Integer[rowLength];
+			for (int i = 0; i < rowLength; i++) {
+				rowSymbolIds[i] = i == 0 ? stopSymbol : symbolId(row[i].getSymbol());
+				order[i] = Integer.valueOf(i);
+			}
+			Arrays.sort(order, (i1, i2) -> Integer.compare(rowSymbolIds[i1.intValue()], rowSymbolIds[i2.intValue()]));
+			for (final Integer i : order) {
+				final Transition t = row[i.intValue()];
+				rowSymbols[pos] = rowSymbolIds[i.intValue()];
+				rowTargets[pos] = stateIds.get(t.getToState());
+				rowProbabilities[pos] = t.getProbability();
+				rowDistributions[pos] = distributions.apply(t);
+				pos++;
+			}
+		}
+		rowStart[stateCount] = pos;
+		symbols = Arrays.copyOf(rowSymbols, pos);
+		targets = Arrays.copyOf(rowTargets, pos);
+		probabilities = Arrays.copyOf(rowProbabilities, pos);
+		this.distributions = Arrays.copyOf(rowDistributions, pos);
+		logProbabilities = new double[pos];
+		for (int i = 0; i < pos; i++) {
+			logProbabilities[i] = Math.log(probabilities[i]);
+		}
+	}
+
+	private static void addState(int state, TIntIntMap stateIds, TIntList originalStates) {
+		if (!stateIds.containsKey(state)) {
+			stateIds.put(state, originalStates.size());
+			originalStates.add(state);
+		}
+	}
+
+	private int symbolId(String symbol) {
+		int id = symbolIds.get(symbol);
+		if (id == NO_TRANSITION) {
+			id = symbolIds.size();
+			symbolIds.put(symbol, id);
+		}
+		return id;
+	}
+
+	public int getStartState() {
+		return startState;
+	}
+
+	public int getStateCount() {
+		return finalStateProbabilities.length;
+	}
+
+	public int getTransitionCount() {
+		return symbols.length;
+	}
+
+	/**
+	 * Returns the index of the transition for the given state and symbol.
+	 *
+	 * @param state
+	 *            the dense index of the state
+	 * @param symbol
+	 *            the symbol
+	 * @return the index of the transition or {@link #NO_TRANSITION} if there is none
+	 */
+	public int getTransition(int state, String symbol) {
+		final int symbolId = symbolIds.get(symbol);
+		if (symbolId == NO_TRANSITION) {
+			return NO_TRANSITION;
+		}
+		final int index = Arrays.binarySearch(symbols, rowStart[state], rowStart[state + 1], symbolId);
+		return index < 0 ? NO_TRANSITION : index;
+	}
+
+	public int getTarget(int transition) {
+		return targets[transition];
+	}
+
+	public double getProbability(int transition) {
+		return probabilities[transition];
+	}
+
+	public double getLogProbability(int transition) {
+		return logProbabilities[transition];
+	}
+
+	/**
+	 * @return the time distribution of the transition or {@code null} if there is none
+	 */
+	public ContinuousDistribution getDistribution(int transition) {
+		return distributions[transition];
+	}
+
+	public double getFinalStateProbability(int state) {
+		return finalStateProbabilities[state];
+	}
+
+	/**
+	 * Follows the transitions for the symbols of the given sequence until there is no transition for a symbol.
+	 *
+	 * @param s
+	 *            the sequence
+	 * @return the indexes of the traversed transitions
+	 */
+	public int[] traverse(TimedWord s) {
+		final int[] result = new int[s.length()];
+		int state = startState;
+		for (int i = 0; i < s.length(); i++) {
+			final int t = getTransition(state, s.getSymbol(i));
+			if (t == NO_TRANSITION) {
+				return Arrays.copyOf(result, i);
+			}
+			result[i] = t;
+			state = targets[t];
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the event probabilities in the same way as {@link PDFA#computeEventLikelihoods(TimedWord)}.
+	 *
+	 * @return the list up to the last probability that exists. list may be shorter than the events list, iff there is an event which has no transition
+	 */
+	public TDoubleList computeEventLikelihoods(TimedWord s) {
+		final TDoubleList list = new TDoubleArrayList(s.length() + 1);
+		computeEventLikelihoods(s, list);
+		return list;
+	}
+
+	/**
+	 * Computes the event probabilities in the same way as {@link #computeEventLikelihoods(TimedWord)}, but appends them to the given list.
+	 *
+	 * @param s
+	 *            the timed word
+	 * @param list
+	 *            the list the probabilities are appended to
+	 */
+	public void computeEventLikelihoods(TimedWord s, TDoubleList list) {
+		int state = startState;
+		for (int i = 0; i < s.length(); i++) {
+			final int t = getTransition(state, s.getSymbol(i));
+			if (t == NO_TRANSITION) {
+				list.add(0);
+				return;
+			}
+			list.add(probabilities[t]);
+			state = targets[t];
+		}
+		list.add(finalStateProbabilities[state]);
+	}
+
+}
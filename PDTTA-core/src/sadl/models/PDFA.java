@@ -13,17 +13,22 @@ package sadl.models;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.math3.exception.MathArithmeticException;
@@ -48,10 +53,12 @@ import sadl.constants.ClassLabel;
 import sadl.input.TimedInput;
 import sadl.input.TimedWord;
 import sadl.interfaces.AutomatonModel;
+import sadl.interfaces.ProbabilityCursor;
 import sadl.structure.AbnormalTransition;
 import sadl.structure.Transition;
 import sadl.structure.UntimedSequence;
 import sadl.utils.MasterSeed;
+import sadl.utils.Settings;
 
 /**
  * A Probabilistic Deterministic Finite Automaton (PDFA).
@@ -67,25 +74,40 @@ public class PDFA implements AutomatonModel, Serializable {
 	public static final int START_STATE = 0;
 
 	transient private static Logger logger = LoggerFactory.getLogger(PDFA.class);
-	// TODO maybe change Set<Transition> transitions to Map<State,Set<Transition>>
 	protected Random r = MasterSeed.nextRandom();
 
 	public static final double NO_TRANSITION_PROBABILITY = 0;
 
 	protected TimedInput alphabet;
 	protected Set<Transition> transitions = new HashSet<>();
+	/**
+	 * Mirrors {@link #transitions} keyed by state and symbol. Must only be changed together with {@link #transitions}.
+	 */
+	transient private TransitionIndex transitionIndex = new TransitionIndex();
 	protected TIntDoubleMap finalStateProbabilities = new TIntDoubleHashMap(11, 0.5f, -1, -1d);
 	protected TIntSet abnormalFinalStates = new TIntHashSet();
 	protected TIntIntMap stateOcurrenceCount = new TIntIntHashMap(11, 0.5f, -1, -1);
 
 	protected boolean immutable = false;
+	/**
+	 * Scoring form of this automaton, which is compiled on first use after the automaton was made immutable.
+	 */
+	transient private volatile CompiledAutomaton compiled = null;
+	/**
+	 * Alias tables for sampling, which are created on first use after the automaton was made immutable.
+	 */
+	transient private volatile TransitionAliasTable aliasTable = null;
 
 	protected void makeMutable() {
 		immutable = false;
+		compiled = null;
+		aliasTable = null;
 	}
 
 	public void makeImmutable() {
 		immutable = true;
+		compiled = null;
+		aliasTable = null;
 	}
 
 	public boolean isImmutable() {
@@ -238,6 +260,7 @@ public class PDFA implements AutomatonModel, Serializable {
 	protected PDFA(PDFA pdfa) {
 		this.alphabet = pdfa.alphabet;
 		this.transitions = pdfa.transitions;
+		this.transitionIndex = pdfa.transitionIndex;
 		this.finalStateProbabilities = pdfa.finalStateProbabilities;
 		this.abnormalFinalStates = pdfa.abnormalFinalStates;
 		this.stateOcurrenceCount = pdfa.stateOcurrenceCount;
@@ -255,6 +278,7 @@ public class PDFA implements AutomatonModel, Serializable {
 			TIntIntMap stateOccCount) {
 		this.alphabet = alphabet;
 		this.transitions = transitions;
+		this.transitionIndex = new TransitionIndex(transitions);
 		this.finalStateProbabilities = finalStateProbabilities;
 		if (abnormalFinalStates == null) {
 			this.abnormalFinalStates = new TIntHashSet();
@@ -274,16 +298,32 @@ public class PDFA implements AutomatonModel, Serializable {
 		addState(fromState);
 		addState(toState);
 		final Transition t = new Transition(fromState, toState, symbol, probability);
-		transitions.add(t);
+		insertTransition(t);
 		return t;
 	}
 
+	/**
+	 * Adds the given transition to the transition set and the transition index. The states of the transition are not added.
+	 * 
+	 * @param t
+	 *            the transition to add
+	 * @return true if the transition was not contained before
+	 */
+	protected boolean insertTransition(Transition t) {
+		checkImmutable();
+		final boolean wasAdded = transitions.add(t);
+		if (wasAdded) {
+			transitionIndex.add(t);
+		}
+		return wasAdded;
+	}
+
 	protected Transition addAbnormalTransition(int fromState, int toState, String symbol, double probability, AnomalyInsertionType anomalyType) {
 		checkImmutable();
 		addState(fromState);
 		addState(toState);
 		final Transition t = new AbnormalTransition(fromState, toState, symbol, probability, anomalyType);
-		transitions.add(t);
+		insertTransition(t);
 		return t;
 	}
 
@@ -440,29 +480,24 @@ public class PDFA implements AutomatonModel, Serializable {
 	}
 
 	public double getTransitionProbability(int fromState, int toState, String symbol) {
-		for (final Transition t : transitions) {
-			if (t.getFromState() == fromState && t.getToState() == toState && t.getSymbol().equals(symbol)) {
-				return t.getProbability();
+		final Transition t = transitionIndex.get(fromState, symbol);
+		if (t != null && t.getToState() == toState) {
+			return t.getProbability();
+		}
+		// there may be more than one transition for the symbol in a non-deterministic automaton
+		for (final Transition other : transitionIndex.getOut(fromState)) {
+			if (other.getToState() == toState && other.getSymbol().equals(symbol)) {
+				return other.getProbability();
 			}
 		}
 		return NO_TRANSITION_PROBABILITY;
 	}
 
 	public Transition getTransition(int currentState, String event) {
-		Transition result = null;
 		if (event.equals(Transition.STOP_TRAVERSING_SYMBOL)) {
-			result = getFinalTransition(currentState);
-		} else {
-			for (final Transition t : transitions) {
-				if (t.getFromState() == currentState && t.getSymbol().equals(event)) {
-					if (result != null) {
-						logger.error("Found more than one transition for state " + currentState + " and event " + event);
-					}
-					result = t;
-				}
-			}
+			return getFinalTransition(currentState);
 		}
-		return result;
+		return transitionIndex.get(currentState, event);
 	}
 
 	protected List<Transition> getTransitions(int state, String event) {
@@ -470,8 +505,8 @@ public class PDFA implements AutomatonModel, Serializable {
 		if (event.equals(Transition.STOP_TRAVERSING_SYMBOL)) {
 			result.add(getFinalTransition(state));
 		} else {
-			for (final Transition t : transitions) {
-				if (t.getFromState() == state && t.getSymbol().equals(event)) {
+			for (final Transition t : transitionIndex.getOut(state)) {
+				if (t.getSymbol().equals(event)) {
 					result.add(t);
 				}
 			}
@@ -489,18 +524,9 @@ public class PDFA implements AutomatonModel, Serializable {
 	 * @return the outgoing transitions
 	 */
 	public List<Transition> getOutTransitions(int currentState, boolean includeStoppingTransition) {
-		final List<Transition> result = new ArrayList<>();
-		for (final Transition t : transitions) {
-			if (t.getFromState() == currentState) {
-				result.add(t);
-			}
-		}
-		if (includeStoppingTransition) {
-			for (final int state : finalStateProbabilities.keys()) {
-				if (state == currentState) {
-					result.add(getFinalTransition(state));
-				}
-			}
+		final List<Transition> result = new ArrayList<>(transitionIndex.getOut(currentState));
+		if (includeStoppingTransition && finalStateProbabilities.containsKey(currentState)) {
+			result.add(getFinalTransition(currentState));
 		}
 		return result;
 	}
@@ -508,21 +534,57 @@ public class PDFA implements AutomatonModel, Serializable {
 	public boolean removeTransition(Transition t) {
 		checkImmutable();
 		final boolean wasRemoved = transitions.remove(t);
-		if (!wasRemoved) {
+		if (wasRemoved) {
+			transitionIndex.remove(t);
+		} else {
 			logger.warn("Tried to remove a non existing transition={}", t);
 		}
 		return wasRemoved;
 	}
 
+	/**
+	 * Removes all transitions that satisfy the given predicate.
+	 * 
+	 * @param filter
+	 *            the predicate which returns true for transitions to be removed
+	 * @return true if any transition was removed
+	 */
+	protected boolean removeTransitionsIf(Predicate<Transition> filter) {
+		checkImmutable();
+		final List<Transition> toRemove = new ArrayList<>();
+		for (final Transition t : transitions) {
+			if (filter.test(t)) {
+				toRemove.add(t);
+			}
+		}
+		for (final Transition t : toRemove) {
+			transitions.remove(t);
+			transitionIndex.remove(t);
+		}
+		return !toRemove.isEmpty();
+	}
+
 	protected static final int MAX_SEQUENCE_LENGTH = 1000;
 
 	public TimedWord sampleSequence() {
+		return sampleSequence(r);
+	}
+
+	/**
+	 * Samples a sequence with the given {@link Random} instead of the one of this automaton. The automaton is only read, so sequences can be sampled
+	 * concurrently with different {@link Random}s.
+	 * 
+	 * @param random
+	 *            the source of the random numbers
+	 * @return the sampled sequence
+	 */
+	public TimedWord sampleSequence(Random random) {
 		int currentState = START_STATE;
 
 		final List<String> eventList = new ArrayList<>();
 		boolean choseFinalState = false;
 		while (!choseFinalState) {
-			final Transition chosenTransition = chooseNextTransition(currentState);
+			final Transition chosenTransition = chooseNextTransition(currentState, random);
 			if (chosenTransition.isStopTraversingTransition()) {
 				choseFinalState = true;
 			} else if (eventList.size() > MAX_SEQUENCE_LENGTH) {
@@ -535,15 +597,65 @@ public class PDFA implements AutomatonModel, Serializable {
 		return new TimedWord(eventList, null, ClassLabel.NORMAL);
 	}
 
-	protected Transition chooseNextTransition(int currentState) {
+	/**
+	 * Samples the given number of sequences in parallel if {@link Settings#isParallel()} is set. Every sequence gets its own random numbers (see
+	 * {@link MasterSeed#derive(long, long)}), so the result is the same for any number of threads.
+	 * 
+	 * @param count
+	 *            the number of sequences to sample
+	 * @return the sampled sequences
+	 */
+	public List<TimedWord> sampleSequences(int count) {
+		return sampleSequences(count, word -> true);
+	}
+
+	/**
+	 * Samples the given number of sequences like {@link #sampleSequences(int)}, but every sequence is sampled again with its own random numbers until it
+	 * is accepted, e.g., to sample only abnormal sequences from an abnormal automaton.
+	 * 
+	 * @param count
+	 *            the number of sequences to sample
+	 * @param accept
+	 *            the condition that every returned sequence fulfills
+	 * @return the sampled sequences
+	 */
+	public List<TimedWord> sampleSequences(int count, Predicate<TimedWord> accept) {
+		final long baseSeed = r.nextLong();
+		final TimedWord[] result = new TimedWord[count];
+		final IntConsumer f = i -> {
+			final Random random = MasterSeed.derive(baseSeed, i);
+			TimedWord word;
+			do {
+				word = sampleSequence(random);
+			} while (!accept.test(word));
+			result[i] = word;
+		};
+		if (Settings.isParallel()) {
+			IntStream.range(0, count).parallel().forEach(f);
+		} else {
+			IntStream.range(0, count).forEach(f);
+		}
+		return new ArrayList<>(Arrays.asList(result));
+	}
+
+	protected Transition chooseNextTransition(int currentState, Random random) {
+		final TransitionAliasTable table = getAliasTable();
+		if (table != null) {
+			return table.sample(currentState, random);
+		}
+		// mutable automata may change between two calls, so the transitions are collected for every step
 		final List<Transition> possibleTransitions = getOutTransitions(currentState, true);
-		Collections.sort(possibleTransitions, (t1, t2) -> -Double.compare(t2.getProbability(), t1.getProbability()));
-		final double random = r.nextDouble();
+		// ties are broken by the natural order s.t. sampling does not depend on the insertion order of the transitions
+		Collections.sort(possibleTransitions, (t1, t2) -> {
+			final int probCompare = -Double.compare(t2.getProbability(), t1.getProbability());
+			return probCompare != 0 ? probCompare : t1.compareTo(t2);
+		});
+		final double randomValue = random.nextDouble();
 		double summedProbs = 0;
 		int index = -1;
 		for (int i = 0; i < possibleTransitions.size(); i++) {
 			summedProbs += possibleTransitions.get(i).getProbability();
-			if (random < summedProbs) {
+			if (randomValue < summedProbs) {
 				index = i;
 				break;
 			}
@@ -563,24 +675,8 @@ public class PDFA implements AutomatonModel, Serializable {
 	 * @return the outgoing transitions
 	 */
 	public Pair<List<Transition>, List<Transition>> getInOutTransitions(int currentState, boolean includeStoppingTransition) {
-		final List<Transition> outTransitions = new ArrayList<>();
-		final List<Transition> inTransitions = new ArrayList<>();
-
-		for (final Transition t : transitions) {
-			if (t.getFromState() == currentState) {
-				outTransitions.add(t);
-			}
-			if (t.getToState() == currentState) {
-				inTransitions.add(t);
-			}
-		}
-		if (includeStoppingTransition) {
-			for (final int state : finalStateProbabilities.keys()) {
-				if (state == currentState) {
-					outTransitions.add(getFinalTransition(state));
-				}
-			}
-		}
+		final List<Transition> outTransitions = getOutTransitions(currentState, includeStoppingTransition);
+		final List<Transition> inTransitions = new ArrayList<>(transitionIndex.getIn(currentState));
 		return Pair.create(inTransitions, outTransitions);
 	}
 
@@ -805,8 +901,26 @@ public class PDFA implements AutomatonModel, Serializable {
 	 * @return the list up to the last probability that exists. list may be shorter than the events list, iff there is an event which has no transition
 	 */
 	protected TDoubleList computeEventLikelihoods(TimedWord s) {
+		final TDoubleList list = new TDoubleArrayList(s.length() + 1);
+		computeEventLikelihoods(s, list);
+		return list;
+	}
+
+	/**
+	 * Computes the same event likelihoods as {@link #computeEventLikelihoods(TimedWord)}, but appends them to the given list.
+	 * 
+	 * @param s
+	 *            the timed word
+	 * @param list
+	 *            the list the likelihoods are appended to
+	 */
+	protected void computeEventLikelihoods(TimedWord s, TDoubleList list) {
+		final CompiledAutomaton c = getCompiled();
+		if (c != null) {
+			c.computeEventLikelihoods(s, list);
+			return;
+		}
 
-		final TDoubleList list = new TDoubleArrayList();
 		int currentState = START_STATE;
 		for (int i = 0; i < s.length(); i++) {
 			final Transition t = getTransition(currentState, s.getSymbol(i));
@@ -814,13 +928,12 @@ public class PDFA implements AutomatonModel, Serializable {
 			// last slot.
 			if (t == null) {
 				list.add(0);
-				return list;
+				return;
 			}
 			list.add(t.getProbability());
 			currentState = t.getToState();
 		}
 		list.add(getFinalStateProbability(currentState));
-		return list;
 	}
 
 	@Override
@@ -828,6 +941,147 @@ public class PDFA implements AutomatonModel, Serializable {
 		return Pair.create(computeEventLikelihoods(s), new TDoubleArrayList());
 	}
 
+	@Override
+	public void calculateProbabilities(TimedWord s, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		computeEventLikelihoods(s, eventLikelihoods);
+	}
+
+	@Override
+	public ProbabilityCursor createCursor() {
+		return new PdfaCursor();
+	}
+
+	/**
+	 * Follows the transitions of a word event by event and appends the same event likelihoods as {@link #computeEventLikelihoods(TimedWord, TDoubleList)}.
+	 * The compiled form is used if this automaton is immutable when the cursor is created.
+	 * 
+	 * @author Timo Klerx
+	 *
+	 */
+	protected class PdfaCursor implements ProbabilityCursor {
+		protected final CompiledAutomaton c = getCompiled();
+		private int state = c != null ? c.getStartState() : START_STATE;
+		private boolean parsing = true;
+
+		@Override
+		public boolean next(String symbol, int timeDelay, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+			if (!parsing) {
+				return false;
+			}
+			if (c != null) {
+				final int t = c.getTransition(state, symbol);
+				if (t == CompiledAutomaton.NO_TRANSITION) {
+					return reject(eventLikelihoods);
+				}
+				eventLikelihoods.add(c.getProbability(t));
+				addTimeLikelihood(null, t, timeDelay, timeLikelihoods);
+				state = c.getTarget(t);
+			} else {
+				final Transition t = getTransition(state, symbol);
+				if (t == null) {
+					return reject(eventLikelihoods);
+				}
+				eventLikelihoods.add(t.getProbability());
+				addTimeLikelihood(t, CompiledAutomaton.NO_TRANSITION, timeDelay, timeLikelihoods);
+				state = t.getToState();
+			}
+			return true;
+		}
+
+		private boolean reject(TDoubleList eventLikelihoods) {
+			eventLikelihoods.add(0);
+			parsing = false;
+			return false;
+		}
+
+		/**
+		 * Appends the time likelihood of the transition that was taken for the last event. A PDFA has no time likelihoods.
+		 * 
+		 * @param t
+		 *            the transition or {@code null} if the compiled form is used
+		 * @param compiledTransition
+		 *            the index of the transition in the compiled form or {@link CompiledAutomaton#NO_TRANSITION} if it is not used
+		 * @param timeDelay
+		 *            the time delay of the event
+		 * @param timeLikelihoods
+		 *            the list the time likelihood is appended to
+		 */
+		protected void addTimeLikelihood(Transition t, int compiledTransition, int timeDelay, TDoubleList timeLikelihoods) {
+			// no time likelihoods
+		}
+
+		@Override
+		public void end(TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+			if (parsing) {
+				eventLikelihoods.add(c != null ? c.getFinalStateProbability(state) : getFinalStateProbability(state));
+				parsing = false;
+			}
+		}
+	}
+
+	/**
+	 * Compiles this automaton into an immutable form with flat arrays that is used for scoring. Later changes of this automaton are not reflected in the
+	 * compiled form.
+	 * 
+	 * @return the compiled automaton
+	 */
+	public CompiledAutomaton compile() {
+		return new CompiledAutomaton(this, t -> null);
+	}
+
+	/**
+	 * Creates the alias tables that are used for sampling the next transition of every state.
+	 * 
+	 * @return the alias tables over all outgoing transitions
+	 */
+	TransitionAliasTable createAliasTable() {
+		return new TransitionAliasTable(this, t -> true);
+	}
+
+	/**
+	 * Returns the alias tables of this automaton if it is immutable. The tables are created once and shared by all threads.
+	 * 
+	 * @return the alias tables or {@code null} if this automaton is mutable
+	 */
+	TransitionAliasTable getAliasTable() {
+		if (!isImmutable()) {
+			return null;
+		}
+		TransitionAliasTable result = aliasTable;
+		if (result == null) {
+			synchronized (this) {
+				result = aliasTable;
+				if (result == null) {
+					result = createAliasTable();
+					aliasTable = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the compiled form of this automaton if it is immutable. The compiled form is created once and shared by all threads.
+	 * 
+	 * @return the compiled automaton or {@code null} if this automaton is mutable
+	 */
+	protected CompiledAutomaton getCompiled() {
+		if (!isImmutable()) {
+			return null;
+		}
+		CompiledAutomaton result = compiled;
+		if (result == null) {
+			synchronized (this) {
+				result = compiled;
+				if (result == null) {
+					result = compile();
+					compiled = result;
+				}
+			}
+		}
+		return result;
+	}
+
 	// public boolean isConnected2() {
 	// final TIntStack openList = new TIntArrayStack();
 	// final TIntSet closedList = new TIntHashSet();
@@ -880,7 +1134,12 @@ public class PDFA implements AutomatonModel, Serializable {
 	}
 
 	public Set<Transition> getTransitions() {
-		return transitions;
+		return Collections.unmodifiableSet(transitions);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		transitionIndex = new TransitionIndex(transitions);
 	}
 
 }
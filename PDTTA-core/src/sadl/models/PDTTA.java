@@ -14,8 +14,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 
 import org.apache.commons.math3.util.Pair;
@@ -30,6 +32,7 @@ import jsat.distributions.ContinuousDistribution;
 import jsat.distributions.Distribution;
 import sadl.constants.ClassLabel;
 import sadl.input.TimedWord;
+import sadl.interfaces.ProbabilityCursor;
 import sadl.interfaces.TauEstimator;
 import sadl.structure.Transition;
 import sadl.structure.ZeroProbTransition;
@@ -84,6 +87,12 @@ public class PDTTA extends PDFA {
 		return Pair.create(computeEventLikelihoods(s), computeTimeLikelihoods(s));
 	}
 
+	@Override
+	public void calculateProbabilities(TimedWord s, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		computeEventLikelihoods(s, eventLikelihoods);
+		computeTimeLikelihoods(s, timeLikelihoods);
+	}
+
 	@Override
 	protected void changeTransitionProbability(Transition transition, double newProbability) {
 		changeTransitionProbability(transition, newProbability, true);
@@ -105,7 +114,7 @@ public class PDTTA extends PDFA {
 			ContinuousDistribution d = null;
 			d = removeTimedTransition(transition, bindTimeInformation);
 			final Transition t = new Transition(transition.getFromState(), transition.getToState(), transition.getSymbol(), newProbability);
-			transitions.add(t);
+			insertTransition(t);
 			if (bindTimeInformation) {
 				bindTransitionDistribution(t, d);
 			}
@@ -115,8 +124,49 @@ public class PDTTA extends PDFA {
 		}
 	}
 
+	@Override
+	public ProbabilityCursor createCursor() {
+		return new PdttaCursor();
+	}
+
+	/**
+	 * Appends the same time likelihoods as {@link PDTTA#computeTimeLikelihoods(TimedWord, TDoubleList)} for every event.
+	 * 
+	 * @author Timo Klerx
+	 *
+	 */
+	protected class PdttaCursor extends PdfaCursor {
+		@Override
+		protected void addTimeLikelihood(Transition t, int compiledTransition, int timeDelay, TDoubleList timeLikelihoods) {
+			final ContinuousDistribution d = c != null ? c.getDistribution(compiledTransition) : getTransitionDistributions().get(t.toZeroProbTransition());
+			if (d == null) {
+				logger.warn("Found no time distribution for transition {}", t != null ? t : Integer.valueOf(compiledTransition));
+				timeLikelihoods.add(0);
+			} else {
+				final double timeLikelihood = tauEstimator.estimateTau(d, timeDelay);
+				if (timeLikelihood < 0) {
+					throw new IllegalStateException("Time likelihood must not be negative");
+				}
+				timeLikelihoods.add(timeLikelihood);
+			}
+		}
+	}
+
 	protected TDoubleList computeTimeLikelihoods(TimedWord ts) {
 		final TDoubleList list = new TDoubleArrayList(ts.length());
+		computeTimeLikelihoods(ts, list);
+		return list;
+	}
+
+	/**
+	 * Computes the same time likelihoods as {@link #computeTimeLikelihoods(TimedWord)}, but appends them to the given list.
+	 * 
+	 * @param ts
+	 *            the timed word
+	 * @param list
+	 *            the list the likelihoods are appended to
+	 */
+	protected void computeTimeLikelihoods(TimedWord ts, TDoubleList list) {
 		int currentState = START_STATE;
 		//sequential
 		// for (int i = 0; i < ts.length(); i++) {
@@ -137,40 +187,47 @@ public class PDTTA extends PDFA {
 		// currentState = t.getToState();
 		// }
 		// parallel (does not change determinism)
-		final List<Transition> traversedTransitions = new ArrayList<>();
-		for (int i = 0; i < ts.length(); i++) {
-			final Transition t = getTransition(currentState, ts.getSymbol(i));
-			if (t == null) {
-				break;
+		final int traversedCount;
+		final IntFunction<ContinuousDistribution> distributions;
+		final CompiledAutomaton c = getCompiled();
+		if (c != null) {
+			final int[] traversedTransitions = c.traverse(ts);
+			traversedCount = traversedTransitions.length;
+			distributions = i -> c.getDistribution(traversedTransitions[i]);
+		} else {
+			final List<Transition> traversedTransitions = new ArrayList<>();
+			for (int i = 0; i < ts.length(); i++) {
+				final Transition t = getTransition(currentState, ts.getSymbol(i));
+				if (t == null) {
+					break;
+				}
+				traversedTransitions.add(t);
+				currentState = t.getToState();
 			}
-			traversedTransitions.add(t);
-			currentState = t.getToState();
+			traversedCount = traversedTransitions.size();
+			distributions = i -> getTransitionDistributions().get(traversedTransitions.get(i).toZeroProbTransition());
 		}
-		list.fill(0, traversedTransitions.size(), 0);
+		// the likelihoods are written behind the elements that are already in the list
+		final int start = list.size();
+		list.fill(start, start + traversedCount, 0);
 		final IntConsumer f = i -> {
-			final Transition t = traversedTransitions.get(i);
-			if (t == null) {
-				list.set(i, 0);
-				return;
-			}
-			final ContinuousDistribution d = getTransitionDistributions().get(t.toZeroProbTransition());
+			final ContinuousDistribution d = distributions.apply(i);
 			if (d == null) {
-				logger.warn("Found no time distribution for Transition " + t);
-				list.set(i, 0);
+				logger.warn("Found no time distribution for the transition of event {} of sequence {}", i, ts);
+				list.set(start + i, 0);
 			} else {
 				final double timeLikelihood = tauEstimator.estimateTau(d, ts.getTimeValue(i));
 				if (timeLikelihood < 0) {
 					throw new IllegalStateException("Time likelihood must not be negative");
 				}
-				list.set(i, timeLikelihood);
+				list.set(start + i, timeLikelihood);
 			}
 		};
 		if (Settings.isParallel()) {
-			IntStream.range(0, traversedTransitions.size()).parallel().forEach(f);
+			IntStream.range(0, traversedCount).parallel().forEach(f);
 		} else {
-			IntStream.range(0, traversedTransitions.size()).forEach(f);
+			IntStream.range(0, traversedCount).forEach(f);
 		}
-		return list;
 	}
 
 	/**
@@ -180,7 +237,7 @@ public class PDTTA extends PDFA {
 	private boolean deleteIrrelevantTransitions() {
 		logger.debug("There are {} many transitions before removing irrelevant ones", getTransitionCount());
 		// there may be more transitions than transitionDistributions
-		final boolean removedTransitions = transitions.removeIf(t -> !transitionDistributions.containsKey(t.toZeroProbTransition()));
+		final boolean removedTransitions = removeTransitionsIf(t -> !transitionDistributions.containsKey(t.toZeroProbTransition()));
 		if (removedTransitions) {
 			logger.info("Removed some unnecessary transitions");
 		}
@@ -256,6 +313,11 @@ public class PDTTA extends PDFA {
 		return transitionDistributions;
 	}
 
+	@Override
+	public CompiledAutomaton compile() {
+		return new CompiledAutomaton(this, t -> transitionDistributions == null ? null : transitionDistributions.get(t.toZeroProbTransition()));
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -308,13 +370,13 @@ public class PDTTA extends PDFA {
 	}
 
 	@Override
-	public TimedWord sampleSequence() {
+	public TimedWord sampleSequence(Random random) {
 		int currentState = START_STATE;
 		final List<String> eventList = new ArrayList<>();
 		final TIntList timeList = new TIntArrayList();
 		boolean choseFinalState = false;
 		while (!choseFinalState) {
-			final Transition chosenTransition = chooseNextTransition(currentState);
+			final Transition chosenTransition = chooseNextTransition(currentState, random);
 			if (chosenTransition.isStopTraversingTransition()) {
 				choseFinalState = true;
 			} else if (eventList.size() > MAX_SEQUENCE_LENGTH) {
@@ -327,7 +389,7 @@ public class PDTTA extends PDFA {
 					// the training data.
 					throw new IllegalStateException("This should never happen for transition " + chosenTransition);
 				}
-				int timeValue = (int) d.sample(1, r)[0];
+				int timeValue = (int) d.sample(1, random)[0];
 				eventList.add(chosenTransition.getSymbol());
 				if (timeValue < 0) {
 					timeValue = 0;
@@ -17,13 +17,13 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.IntFunction;
 import java.util.function.IntUnaryOperator;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.math3.util.Precision;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,9 +34,11 @@ import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TDoubleArrayList;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TLongIntMap;
 import gnu.trove.map.TObjectDoubleMap;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.set.TIntSet;
@@ -153,112 +155,161 @@ public class TauPTA extends PDTTA {
 		this.finalStateCount = finalStateCount;
 	}
 
-	private TauPTA() {
+	/**
+	 * The input is not changed.
+	 * 
+	 * @param trainingSequences
+	 */
+	@Deprecated
+	public TauPTA(TimedInput trainingSequences) {
+		this(trainingSequences, 0);
 	}
 
 	/**
-	 * WARNING: The input is changed (transformed to TimedIntWords)
+	 * The input is not changed.
 	 * 
 	 * @param trainingSequences
+	 * @param kdeMaxBinningError
+	 *            the allowed error of the binned evaluation of the fitted kernel density estimators (see
+	 *            {@link MyKernelDensityEstimator#setMaxBinningError(double)}); if not positive, they are computed exactly
 	 */
 	@Deprecated
-	public TauPTA(TimedInput trainingSequences) {
+	public TauPTA(TimedInput trainingSequences, double kdeMaxBinningError) {
 		super();
-		trainingSequences = SerializationUtils.clone(trainingSequences);
-		final TauPTA initialPta = new TauPTA();
-		initialPta.addState(START_STATE);
-
-		for (final TimedWord s : trainingSequences) {
-			initialPta.addEventSequence(s);
-		}
-
-		// remove transitions and ending states with less than X occurences
-		final double threshold = SEQUENCE_OMMIT_THRESHOLD * trainingSequences.size();
-		for (final int state : initialPta.finalStateProbabilities.keys()) {
-			final List<Transition> stateTransitions = initialPta.getOutTransitions(state, false);
-			for (final Transition t : stateTransitions) {
-				if (initialPta.transitionCount.get(t.toZeroProbTransition()) < threshold) {
-					initialPta.removeTimedTransition(t, false);
+		final Map<ZeroProbTransition, TDoubleList> timeValueBuckets = addFrequentSequences(trainingSequences);
+		logger.info("OmmitedSequenceCount={} out of {} sequences at a threshold of less than {} absolute occurences.", ommitedSequenceCount,
+				trainingSequences.size(), SEQUENCE_OMMIT_THRESHOLD * trainingSequences.size());
+		final Map<ZeroProbTransition, ContinuousDistribution> distributions = fit(timeValueBuckets, kdeMaxBinningError);
+		setTransitionDistributions(distributions);
+		if (distributions.size() != getTransitionCount()) {
+			final List<Transition> missingDistributions = new ArrayList<>();
+			for (final Transition t : transitions) {
+				if (distributions.get(t.toZeroProbTransition()) == null) {
+					missingDistributions.add(t);
 				}
 			}
-			if (initialPta.finalStateCount.get(state) < threshold) {
-				initialPta.finalStateCount.put(state, 0);
-			}
+			System.out.println(missingDistributions);
+			throw new IllegalStateException("It is not possible to more/less distributions than transitions (" + distributions.size() + "/"
+					+ getTransitionCount() + ").");
+			// compute what is missing in the distribution set
 		}
+		setAlphabet(trainingSequences);
+	}
 
-		// compute event probabilities from counts
-		for (final int state : initialPta.finalStateProbabilities.keys()) {
-			final List<Transition> stateTransitions = initialPta.getOutTransitions(state, false);
-			int occurenceCount = 0;
-			for (final Transition t : stateTransitions) {
-				occurenceCount += initialPta.transitionCount.get(t.toZeroProbTransition());
-			}
-			occurenceCount += initialPta.finalStateCount.get(state);
-			for (final Transition t : stateTransitions) {
-				initialPta.changeTransitionProbability(t, initialPta.transitionCount.get(t.toZeroProbTransition()) / (double) occurenceCount, false);
+	/**
+	 * Adds the sequences to this empty TauPTA whose transitions and ending occur at least {@link #SEQUENCE_OMMIT_THRESHOLD} times the number of sequences.
+	 * The transition counts and probabilities are computed only from the added sequences. The prefix tree of all sequences is counted once in plain arrays,
+	 * so the given input is only read and the states of this TauPTA are numbered in the order in which the added sequences reach them.
+	 * 
+	 * @param trainingSequences
+	 *            the sequences to build the TauPTA from
+	 * @return the time values of the added sequences for every transition
+	 */
+	public Map<ZeroProbTransition, TDoubleList> addFrequentSequences(TimedInput trainingSequences) {
+		checkImmutable();
+		final int size = trainingSequences.size();
+		final double threshold = SEQUENCE_OMMIT_THRESHOLD * size;
+		// the nodes of the prefix tree are numbered in the order of their creation, so parents have smaller numbers than their children
+		final TObjectIntMap<String> symbolIds = new TObjectIntHashMap<>(11, 0.5f, -1);
+		final TLongIntMap children = new TLongIntHashMap(11, 0.5f, -1, -1);
+		final TIntList parents = new TIntArrayList();
+		final TIntList nodeCounts = new TIntArrayList();
+		final TIntList finalCounts = new TIntArrayList();
+		parents.add(-1);
+		nodeCounts.add(size);
+		finalCounts.add(0);
+		final int[] endNodes = new int[size];
+		for (int i = 0; i < size; i++) {
+			final TimedWord s = trainingSequences.get(i);
+			int node = 0;
+			for (int j = 0; j < s.length(); j++) {
+				final long key = prefixTreeKey(node, symbolIds, s.getSymbol(j));
+				int child = children.get(key);
+				if (child < 0) {
+					child = parents.size();
+					children.put(key, child);
+					parents.add(node);
+					nodeCounts.add(0);
+					finalCounts.add(0);
+				}
+				nodeCounts.set(child, nodeCounts.get(child) + 1);
+				node = child;
 			}
-			initialPta.addFinalState(state, initialPta.finalStateCount.get(state) / (double) occurenceCount);
+			finalCounts.set(node, finalCounts.get(node) + 1);
+			endNodes[i] = node;
 		}
-		// now the whole stuff again but only with those sequences that are in the initialPta
-		// do not remove any sequences because they should occur more often than the specified threshold
-		addState(START_STATE);
 
-		for (final TimedWord s : trainingSequences) {
-			if (initialPta.isInAutomaton(s)) {
-				addEventSequence(s);
-			}
+		// a sequence is kept if none of its transitions and not its ending occurs less than threshold times
+		final int nodeCount = parents.size();
+		final boolean[] frequent = new boolean[nodeCount];
+		frequent[0] = true;
+		for (int n = 1; n < nodeCount; n++) {
+			frequent[n] = frequent[parents.get(n)] && nodeCounts.get(n) >= threshold;
 		}
-
-		// compute event probabilities from counts
-		for (final int state : finalStateProbabilities.keys()) {
-			final List<Transition> stateTransitions = getOutTransitions(state, false);
-			int occurenceCount = 0;
-			for (final Transition t : stateTransitions) {
-				occurenceCount += transitionCount.get(t.toZeroProbTransition());
+		final boolean[] keep = new boolean[size];
+		final int[] keptFinalCounts = new int[nodeCount];
+		for (int i = 0; i < size; i++) {
+			final int end = endNodes[i];
+			keep[i] = frequent[end] && finalCounts.get(end) >= threshold && finalCounts.get(end) > 0;
+			if (keep[i]) {
+				keptFinalCounts[end]++;
 			}
-			occurenceCount += finalStateCount.get(state);
-			for (final Transition t : stateTransitions) {
-				changeTransitionProbability(t, transitionCount.get(t.toZeroProbTransition()) / (double) occurenceCount, false);
+		}
+		// the number of kept sequences that pass a node
+		final int[] keptCounts = new int[nodeCount];
+		for (int n = nodeCount - 1; n >= 0; n--) {
+			keptCounts[n] += keptFinalCounts[n];
+			if (n > 0) {
+				keptCounts[parents.get(n)] += keptCounts[n];
 			}
-			addFinalState(state, finalStateCount.get(state) / (double) occurenceCount);
 		}
 
-		// compute time probabilities
+		final int[] states = new int[nodeCount];
+		Arrays.fill(states, -1);
+		states[0] = START_STATE;
+		addState(START_STATE);
 		final Map<ZeroProbTransition, TDoubleList> timeValueBuckets = new HashMap<>();
-		for (final TimedWord s : trainingSequences) {
-			if (isInAutomaton(s)) {
-				int currentState = START_STATE;
-				for (int i = 0; i < s.length(); i++) {
-					final String nextEvent = s.getSymbol(i);
-					final Transition t = getTransition(currentState, nextEvent);
-					if (t == null) {
-						// this should never happen!
-						throw new IllegalStateException("Did not get a transition, but checked before that there must be transitions for this sequence " + s);
-					}
-					addTimeValue(timeValueBuckets, t.getFromState(), t.getToState(), t.getSymbol(), s.getTimeValue(i));
-					currentState = t.getToState();
-				}
-			} else {
+		for (int i = 0; i < size; i++) {
+			if (!keep[i]) {
 				ommitedSequenceCount++;
+				continue;
+			}
+			final TimedWord s = trainingSequences.get(i);
+			int node = 0;
+			for (int j = 0; j < s.length(); j++) {
+				final String event = s.getSymbol(j);
+				final int child = children.get(prefixTreeKey(node, symbolIds, event));
+				if (states[child] < 0) {
+					states[child] = getStateCount();
+					final Transition t = addTransition(states[node], states[child], event, keptCounts[child] / (double) keptCounts[node]);
+					transitionCount.put(t.toZeroProbTransition(), keptCounts[child]);
+				}
+				addTimeValue(timeValueBuckets, states[node], states[child], event, s.getTimeValue(j));
+				node = child;
 			}
 		}
-		logger.info("OmmitedSequenceCount={} out of {} sequences at a threshold of less than {} absolute occurences.", ommitedSequenceCount,
-				trainingSequences.size(), SEQUENCE_OMMIT_THRESHOLD * trainingSequences.size());
-		final Map<ZeroProbTransition, ContinuousDistribution> distributions = fit(timeValueBuckets);
-		setTransitionDistributions(distributions);
-		if (distributions.size() != getTransitionCount()) {
-			final List<Transition> missingDistributions = new ArrayList<>();
-			for (final Transition t : transitions) {
-				if (distributions.get(t.toZeroProbTransition()) == null) {
-					missingDistributions.add(t);
+		for (int n = 0; n < nodeCount; n++) {
+			if (states[n] >= 0) {
+				if (keptFinalCounts[n] > 0) {
+					finalStateCount.put(states[n], keptFinalCounts[n]);
 				}
+				addFinalState(states[n], keptFinalCounts[n] / (double) keptCounts[n]);
 			}
-			System.out.println(missingDistributions);
-			throw new IllegalStateException("It is not possible to more/less distributions than transitions (" + distributions.size() + "/"
-					+ getTransitionCount() + ").");
-			// compute what is missing in the distribution set
 		}
-		setAlphabet(trainingSequences);
+		return timeValueBuckets;
+	}
+
+	private static long prefixTreeKey(int node, TObjectIntMap<String> symbolIds, String symbol) {
+		int symbolId = symbolIds.get(symbol);
+		if (symbolId < 0) {
+			symbolId = symbolIds.size();
+			symbolIds.put(symbol, symbolId);
+		}
+		return ((long) node << Integer.SIZE) | symbolId;
+	}
+
+	public int getOmmitedSequenceCount() {
+		return ommitedSequenceCount;
 	}
 
 	private void addTimeValue(Map<ZeroProbTransition, TDoubleList> result, int currentState, int followingState, String event, double timeValue) {
@@ -273,44 +324,30 @@ public class TauPTA extends PDTTA {
 		}
 	}
 
-	private Map<ZeroProbTransition, ContinuousDistribution> fit(Map<ZeroProbTransition, TDoubleList> timeValueBuckets) {
+	private Map<ZeroProbTransition, ContinuousDistribution> fit(Map<ZeroProbTransition, TDoubleList> timeValueBuckets, double kdeMaxBinningError) {
 		final Map<ZeroProbTransition, ContinuousDistribution> result = new HashMap<>();
 		logger.debug("timevalueBuckets.size={}", timeValueBuckets.size());
 		for (final ZeroProbTransition t : timeValueBuckets.keySet()) {
-			result.put(t, fitDistribution(timeValueBuckets.get(t)));
+			result.put(t, fitDistribution(timeValueBuckets.get(t), kdeMaxBinningError));
 		}
 		return result;
 	}
 
-	private ContinuousDistribution fitDistribution(TDoubleList transitionTimes) {
+	private ContinuousDistribution fitDistribution(TDoubleList transitionTimes, double kdeMaxBinningError) {
 		final Vec v = new DenseVector(transitionTimes.toArray());
 		final jsat.utils.Pair<Boolean, Double> sameValues = MyDistributionSearch.checkForDifferentValues(v);
 		if (sameValues.getFirstItem().booleanValue()) {
 			final ContinuousDistribution d = new SingleValueDistribution(sameValues.getSecondItem().doubleValue());
 			return d;
 		} else {
-			final MyKernelDensityEstimator kde = new MyKernelDensityEstimator(v);
+			// time values are integers and often repeated, so each distinct value is only stored once
+			final MyKernelDensityEstimator kde = MyKernelDensityEstimator.withRepeatedValues(v, MyKernelDensityEstimator.autoKernel(v),
+					MyKernelDensityEstimator.BandwithGuassEstimate(v));
+			kde.setMaxBinningError(kdeMaxBinningError);
 			return kde;
 		}
 	}
 
-	private void addEventSequence(TimedWord s) {
-		int currentState = START_STATE;
-
-		for (int i = 0; i < s.length(); i++) {
-			final String nextEvent = s.getSymbol(i);
-			Transition t = getTransition(currentState, nextEvent);
-			if (t == null) {
-				t = addTransition(currentState, getStateCount(), nextEvent, NO_TRANSITION_PROBABILITY);
-				transitionCount.put(t.toZeroProbTransition(), 0);
-			}
-			transitionCount.increment(t.toZeroProbTransition());
-			currentState = t.getToState();
-		}
-		// add final state count
-		finalStateCount.adjustOrPutValue(currentState, 1, 1);
-	}
-
 	// now change the pta to generate anomalies of type 1-4
 	// type 1: Auf jeder Ebene des Baumes: Wähle einen zufälligen Zustand und ändere bei einer zufälligen Ausgangstransition das Symbol in ein zufälliges
 	// anderes
@@ -343,7 +380,7 @@ public class TauPTA extends PDTTA {
 					this.anomalyType, anomalyType);
 			return;
 		}
-		immutable = false;
+		makeMutable();
 		setAnomalyType(newAnomalyType);
 		if (anomalyType == AnomalyInsertionType.TYPE_ONE) {
 			logger.debug("TransitionCount before inserting {} anomalies={}", anomalyType, getTransitionCount());
@@ -368,7 +405,7 @@ public class TauPTA extends PDTTA {
 		}
 		checkForAbnormalTransitions();
 		this.checkAndRestoreConsistency();
-		immutable = true;
+		makeImmutable();
 	}
 
 	private void checkForAbnormalTransitions() {
@@ -645,9 +682,9 @@ public class TauPTA extends PDTTA {
 	}
 
 	@Override
-	public TimedWord sampleSequence() {
+	public TimedWord sampleSequence(Random random) {
 		if (getAnomalyType() == AnomalyInsertionType.NONE) {
-			return super.sampleSequence();
+			return super.sampleSequence(random);
 		}
 		// this TauPTA should sample anomalies of the one specified type
 		int currentState = START_STATE;
@@ -659,42 +696,7 @@ public class TauPTA extends PDTTA {
 		AnomalyInsertionType anomalyType = AnomalyInsertionType.NONE;
 		int timedAnomalyCounter = 0;
 		while (!choseFinalState) {
-			List<Transition> possibleTransitions = getOutTransitions(currentState, true);
-			double random = r.nextDouble();
-			double newProbSum = -1;
-			if (getAnomalyType() == AnomalyInsertionType.TYPE_TWO || getAnomalyType() == AnomalyInsertionType.TYPE_FOUR) {
-				// Filter out all transitions that do not belong to the sequential anomaly type and are no stopping transitions
-				// The TauPTA should have a field containing its anomaly type. So if the TauPTA is of anomaly type 2, then only transitions with anomaly type 2
-				// are allowed to be chosen.
-				possibleTransitions = possibleTransitions.stream()
-						.filter(t -> (t.getAnomalyInsertionType() == getAnomalyType() || t.isStopTraversingTransition())).collect(Collectors.toList());
-				// after that normalize s.t. the remaining transition probs sum up to one (or make the random value smaller)
-				newProbSum = possibleTransitions.stream().mapToDouble(t -> t.getProbability()).sum();
-				if (!Precision.equals(newProbSum, 1)) {
-					logger.debug("New ProbSum={}, so decreasing random value from {} to {}", newProbSum, random, random * newProbSum);
-					random *= newProbSum;
-				}
-			}
-			// the most probable transition (with the highest probability) should be at index 0
-			// should be right in this way
-			Collections.sort(possibleTransitions, (t1, t2) -> -Double.compare(t1.getProbability(), t2.getProbability()));
-			if (possibleTransitions.size() <= 0) {
-				logger.error("There are no transitions for state {} with newProbSum={} and randomValue={}. This is not possible.", currentState, newProbSum,
-						random);
-			}
-			double summedProbs = 0;
-			int index = -1;
-			for (int i = 0; i < possibleTransitions.size(); i++) {
-				summedProbs += possibleTransitions.get(i).getProbability();
-				if (random < summedProbs) {
-					index = i;
-					break;
-				}
-			}
-			if (index == -1) {
-				logger.error("Found no possible transition from {}", possibleTransitions);
-			}
-			final Transition chosenTransition = possibleTransitions.get(index);
+			final Transition chosenTransition = chooseAbnormalTransition(currentState, random);
 			if (chosenTransition.isAbnormal()) {
 				if (getAnomalyType() != chosenTransition.getAnomalyInsertionType()) {
 					// This is a conflict because the anomalyType was already set to anomaly. This should never happen!
@@ -716,16 +718,16 @@ public class TauPTA extends PDTTA {
 					// the training data.
 					throw new IllegalStateException("This should never happen for transition " + chosenTransition);
 				}
-				int timeValue = (int) d.sample(1, r)[0];
+				int timeValue = (int) d.sample(1, random)[0];
 				if (anomalyType == AnomalyInsertionType.TYPE_THREE) {
 					if (chosenTransition.isAbnormal()) {
-						timeValue = changeTimeValue(timeValue, ANOMALY_3_CHANGE_RATE);
+						timeValue = changeTimeValue(timeValue, ANOMALY_3_CHANGE_RATE, random);
 						timedAnomalyCounter++;
 					}
 				} else if (anomalyType == AnomalyInsertionType.TYPE_FOUR) {
 					if (chosenTransition.isAbnormal()) {
 						timedAnomalyCounter++;
-						timeValue = changeTimeValue(timeValue, ANOMALY_4_CHANGE_RATE);
+						timeValue = changeTimeValue(timeValue, ANOMALY_4_CHANGE_RATE, random);
 					}
 				}
 				eventList.add(chosenTransition.getSymbol());
@@ -745,9 +747,64 @@ public class TauPTA extends PDTTA {
 		}
 	}
 
-	private int changeTimeValue(int value, double factor) {
+	@Override
+	TransitionAliasTable createAliasTable() {
+		if (getAnomalyType() == AnomalyInsertionType.TYPE_TWO || getAnomalyType() == AnomalyInsertionType.TYPE_FOUR) {
+			// only transitions of the sequential anomaly type and stopping transitions are allowed to be chosen
+			return new TransitionAliasTable(this, t -> (t.getAnomalyInsertionType() == getAnomalyType() || t.isStopTraversingTransition()));
+		}
+		return super.createAliasTable();
+	}
+
+	private Transition chooseAbnormalTransition(int currentState, Random random) {
+		final TransitionAliasTable table = getAliasTable();
+		if (table != null) {
+			return table.sample(currentState, random);
+		}
+		List<Transition> possibleTransitions = getOutTransitions(currentState, true);
+		double randomValue = random.nextDouble();
+		double newProbSum = -1;
+		if (getAnomalyType() == AnomalyInsertionType.TYPE_TWO || getAnomalyType() == AnomalyInsertionType.TYPE_FOUR) {
+			// Filter out all transitions that do not belong to the sequential anomaly type and are no stopping transitions
+			// The TauPTA should have a field containing its anomaly type. So if the TauPTA is of anomaly type 2, then only transitions with anomaly type 2
+			// are allowed to be chosen.
+			possibleTransitions = possibleTransitions.stream()
+					.filter(t -> (t.getAnomalyInsertionType() == getAnomalyType() || t.isStopTraversingTransition())).collect(Collectors.toList());
+			// after that normalize s.t. the remaining transition probs sum up to one (or make the random value smaller)
+			newProbSum = possibleTransitions.stream().mapToDouble(t -> t.getProbability()).sum();
+			if (!Precision.equals(newProbSum, 1)) {
+				logger.debug("New ProbSum={}, so decreasing random value from {} to {}", newProbSum, randomValue, randomValue * newProbSum);
+				randomValue *= newProbSum;
+			}
+		}
+		// the most probable transition (with the highest probability) should be at index 0
+		// should be right in this way
+		Collections.sort(possibleTransitions, (t1, t2) -> {
+			final int probCompare = -Double.compare(t1.getProbability(), t2.getProbability());
+			return probCompare != 0 ? probCompare : t1.compareTo(t2);
+		});
+		if (possibleTransitions.size() <= 0) {
+			logger.error("There are no transitions for state {} with newProbSum={} and randomValue={}. This is not possible.", currentState, newProbSum,
+					randomValue);
+		}
+		double summedProbs = 0;
+		int index = -1;
+		for (int i = 0; i < possibleTransitions.size(); i++) {
+			summedProbs += possibleTransitions.get(i).getProbability();
+			if (randomValue < summedProbs) {
+				index = i;
+				break;
+			}
+		}
+		if (index == -1) {
+			logger.error("Found no possible transition from {}", possibleTransitions);
+		}
+		return possibleTransitions.get(index);
+	}
+
+	private int changeTimeValue(int value, double factor, Random random) {
 		int result = 0;
-		if (r.nextBoolean()) {
+		if (random.nextBoolean()) {
 			result = (int) ((1 - factor) * value);
 		} else {
 			result = (int) ((1 + factor) * value);
@@ -759,7 +816,7 @@ public class TauPTA extends PDTTA {
 	}
 
 	public Set<Transition> getAllTransitions() {
-		return transitions;
+		return getTransitions();
 	}
 
 	/**
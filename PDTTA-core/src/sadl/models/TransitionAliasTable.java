@@ -0,0 +1,144 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import sadl.structure.Transition;
+
+/**
+ * Walker alias tables for drawing the next transition of a {@link PDFA} in constant time. For every state there is one table over its outgoing transitions
+ * (including the stopping transition) that were accepted by a filter. The transitions are drawn with a probability proportional to their transition
+ * probability. The transitions of a state are put into the table in their natural order, so the drawn transitions only depend on the {@link Random}.
+ *
+ * The tables are only read after construction, so they can be used by several threads concurrently.
+ *
+ * @author Timo Klerx
+ *
+ */
+final class TransitionAliasTable {
+
+	private final TIntObjectMap<Row> rows = new TIntObjectHashMap<>();
+
+	private static class Row {
+		final Transition[] transitions;
+		// probability of keeping the transition of a column instead of taking its alias
+		final double[] keep;
+		final int[] alias;
+
+		Row(List<Transition> transitions) {
+			final int n = transitions.size();
+			this.transitions = transitions.toArray(new Transition[n]);
+			keep = new double[n];
+			alias = new int[n];
+			double sum = 0;
+			for (final Transition t : transitions) {
+				sum += Math.max(0, t.getProbability());
+			}
+			// Vose's construction of the alias table
+			final double[] scaled = new double[n];
+			final int[] small = new int[n];
+			final int[] large = new int[n];
+			int smallCount = 0;
+			int largeCount = 0;
+			for (int i = 0; i < n; i++) {
+				scaled[i] = sum > 0 ? Math.max(0, this.transitions[i].getProbability()) * n / sum : 1;
+				if (scaled[i] < 1) {
+					small[smallCount++] = i;
+				} else {
+					large[largeCount++] = i;
+				}
+			}
+			while (smallCount > 0 && largeCount > 0) {
+				final int s = small[--smallCount];
+				final int l = large[--largeCount];
+				keep[s] = scaled[s];
+				alias[s] = l;
+				scaled[l] = (scaled[l] + scaled[s]) - 1;
+				if (scaled[l] < 1) {
+					small[smallCount++] = l;
+				} else {
+					large[largeCount++] = l;
+				}
+			}
+			// the remaining columns are only left because of rounding errors
+			while (largeCount > 0) {
+				final int l = large[--largeCount];
+				keep[l] = 1;
+				alias[l] = l;
+			}
+			while (smallCount > 0) {
+				final int s = small[--smallCount];
+				keep[s] = 1;
+				alias[s] = s;
+			}
+		}
+
+		Transition sample(Random random) {
+			final double x = random.nextDouble() * transitions.length;
+			final int column = (int) x;
+			return x - column < keep[column] ? transitions[column] : transitions[alias[column]];
+		}
+	}
+
+	/**
+	 * Creates the alias tables for all states of the given automaton and all states that are reached by a transition.
+	 *
+	 * @param pdfa
+	 *            the automaton
+	 * @param filter
+	 *            the transitions that may be drawn
+	 */
+	TransitionAliasTable(PDFA pdfa, Predicate<Transition> filter) {
+		final TIntList open = new TIntArrayList();
+		open.add(PDFA.START_STATE);
+		open.add(pdfa.getStates());
+		// transitions may lead to states that are not contained in the set of states anymore
+		while (!open.isEmpty()) {
+			final int state = open.removeAt(open.size() - 1);
+			if (rows.containsKey(state)) {
+				continue;
+			}
+			final List<Transition> transitions = pdfa.getOutTransitions(state, true).stream().filter(filter).collect(Collectors.toList());
+			Collections.sort(transitions);
+			rows.put(state, new Row(transitions));
+			for (final Transition t : transitions) {
+				open.add(t.getToState());
+			}
+		}
+	}
+
+	/**
+	 * Draws the next transition for the given state.
+	 *
+	 * @param state
+	 *            the current state
+	 * @param random
+	 *            the source of the random numbers
+	 * @return the drawn transition
+	 */
+	Transition sample(int state, Random random) {
+		final Row row = rows.get(state);
+		if (row == null || row.transitions.length == 0) {
+			throw new IllegalStateException("There are no transitions for state " + state + " to sample from");
+		}
+		return row.sample(random);
+	}
+
+}
@@ -0,0 +1,128 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import sadl.structure.Transition;
+
+/**
+ * Index of the transitions of a {@link PDFA} keyed by state and then by symbol. It mirrors the transition set of the automaton and allows constant time
+ * lookups of the transition for a given state and symbol.
+ *
+ * @author Timo Klerx
+ *
+ */
+class TransitionIndex {
+
+	private final TIntObjectMap<Map<String, Transition>> symbolTransitions = new TIntObjectHashMap<>();
+	private final TIntObjectMap<List<Transition>> outTransitions = new TIntObjectHashMap<>();
+	private final TIntObjectMap<List<Transition>> inTransitions = new TIntObjectHashMap<>();
+
+	TransitionIndex() {
+	}
+
+	TransitionIndex(Iterable<Transition> transitions) {
+		for (final Transition t : transitions) {
+			add(t);
+		}
+	}
+
+	void add(Transition t) {
+		Map<String, Transition> stateSymbols = symbolTransitions.get(t.getFromState());
+		if (stateSymbols == null) {
+			stateSymbols = new HashMap<>();
+			symbolTransitions.put(t.getFromState(), stateSymbols);
+		}
+		stateSymbols.put(t.getSymbol(), t);
+		addToList(outTransitions, t.getFromState(), t);
+		addToList(inTransitions, t.getToState(), t);
+	}
+
+	void remove(Transition t) {
+		removeFromList(inTransitions, t.getToState(), t);
+		final List<Transition> stateOut = removeFromList(outTransitions, t.getFromState(), t);
+		final Map<String, Transition> stateSymbols = symbolTransitions.get(t.getFromState());
+		if (stateSymbols != null && t.equals(stateSymbols.get(t.getSymbol()))) {
+			stateSymbols.remove(t.getSymbol());
+			// a (non-deterministic) transition with the same symbol may still exist
+			if (stateOut != null) {
+				for (final Transition other : stateOut) {
+					if (other.getSymbol().equals(t.getSymbol())) {
+						stateSymbols.put(other.getSymbol(), other);
+					}
+				}
+			}
+			if (stateSymbols.isEmpty()) {
+				symbolTransitions.remove(t.getFromState());
+			}
+		}
+	}
+
+	Transition get(int state, String symbol) {
+		final Map<String, Transition> stateSymbols = symbolTransitions.get(state);
+		if (stateSymbols == null) {
+			return null;
+		}
+		return stateSymbols.get(symbol);
+	}
+
+	/**
+	 * Returns the outgoing transitions of the given state. The returned list must not be modified.
+	 */
+	List<Transition> getOut(int state) {
+		final List<Transition> result = outTransitions.get(state);
+		if (result == null) {
+			return Collections.emptyList();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the incoming transitions of the given state. The returned list must not be modified.
+	 */
+	List<Transition> getIn(int state) {
+		final List<Transition> result = inTransitions.get(state);
+		if (result == null) {
+			return Collections.emptyList();
+		}
+		return result;
+	}
+
+	private static void addToList(TIntObjectMap<List<Transition>> map, int state, Transition t) {
+		List<Transition> list = map.get(state);
+		if (list == null) {
+			list = new ArrayList<>(2);
+			map.put(state, list);
+		}
+		list.add(t);
+	}
+
+	private static List<Transition> removeFromList(TIntObjectMap<List<Transition>> map, int state, Transition t) {
+		final List<Transition> list = map.get(state);
+		if (list == null) {
+			return null;
+		}
+		list.remove(t);
+		if (list.isEmpty()) {
+			map.remove(state);
+			return null;
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,349 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.models.pdrta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Optional;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import sadl.input.TimedWord;
+import sadl.interfaces.ProbabilityCursor;
+
+/**
+ * Immutable scoring form of a {@link PDRTA}. The states are numbered densely with the root as state 0. For every state and symbol the intervals are stored in
+ * compressed sparse row (CSR) form in flat arrays, sorted by their inclusive end. Gaps between intervals are stored with {@link #NO_TRANSITION} as target, so
+ * looking up a time delay with a binary search over the ends gives the same interval as {@link PDRTAState#getInterval(int, int)}. The symbol probabilities,
+ * the histogram bin probabilities and the transition probabilities of the {@link StateStatistic}s are precomputed. A {@link TimedWord} is scored directly
+ * from its symbols and time delays, so no {@link TimedTail}s are created.
+ *
+ * The automaton is only read after construction, so it can be used by several threads concurrently.
+ *
+ * @author Timo Klerx
+ *
+ */
+public final class CompiledPDRTA {
+
+	public static final int NO_TRANSITION = -1;
+
+	private final TObjectIntMap<String> symbolIds;
+	private final int alphSize;
+	private final int minTimeDelay;
+	private final int maxTimeDelay;
+	private final int[] histBorders;
+	private final int numHistBars;
+	private final double[] endProbs;
+	// the probability of symbol a in state s is at index s * alphSize + a
+	private final double[] symbolProbs;
+	// the probability of a single time delay of histogram bin b in state s is at index s * numHistBars + b
+	private final double[] timeProbs;
+	// the intervals of state s and symbol a are at the indexes rowStart[s * alphSize + a] (inclusive) to rowStart[s * alphSize + a + 1] (exclusive)
+	private final int[] rowStart;
+	private final int[] ends;
+	private final int[] targets;
+	private final double[] transProbs;
+
+	/**
+	 * Compiles the given automaton.
+	 *
+	 * @param a
+	 *            the automaton to compile
+	 */
+	CompiledPDRTA(PDRTA a) {
+
+		alphSize = a.getAlphSize();
+		symbolIds = new TObjectIntHashMap<>(11, 0.5f, NO_TRANSITION);
+		for (int i = 0; i < alphSize; i++) {
+			symbolIds.put(a.getSymbol(i), i);
+		}
+		minTimeDelay = a.getMinTimeDelay();
+		maxTimeDelay = a.getMaxTimeDelay();
+		histBorders = a.getInput().getHistBorders().clone();
+		numHistBars = a.getNumHistogramBars();
+		// number the states in the order they are reached from the root
+		final TIntIntMap stateIds = new TIntIntHashMap(11, 0.5f, -1, NO_TRANSITION);
+		final List<PDRTAState> states = new ArrayList<>();
+		addState(a.getRoot(), stateIds, states);
+		for (int s = 0; s < states.size(); s++) {
+			for (final NavigableMap<Integer, Interval> m : states.get(s).getIntervals()) {
+				if (m != null) {
+					m.values().stream().filter(in -> in != null && in.getTarget() != null).forEach(in -> addState(in.getTarget(), stateIds, states));
+				}
+			}
+		}
+		final int stateCount = states.size();
+		endProbs = new double[stateCount];
+		symbolProbs = new double[stateCount * alphSize];
+		timeProbs = new double[stateCount * numHistBars];
+		rowStart = new int[(stateCount * alphSize) + 1];
+		final TIntArrayList rowEnds = new TIntArrayList();
+		final TIntArrayList rowTargets = new TIntArrayList();
+		final TDoubleArrayList rowTransProbs = new TDoubleArrayList();
+		for (int s = 0; s < stateCount; s++) {
+			final PDRTAState state = states.get(s);
+			final StateStatistic stat = state.getStat();
+			endProbs[s] = stat.getTailEndProb();
+			for (int b = 0; b < numHistBars; b++) {
+				timeProbs[(s * numHistBars) + b] = stat.getTimeProb(b);
+			}
+			for (int sym = 0; sym < alphSize; sym++) {
+				symbolProbs[(s * alphSize) + sym] = stat.getSymbolProb(sym);
+				rowStart[(s * alphSize) + sym] = rowEnds.size();
+				final Optional<NavigableMap<Integer, Interval>> ins = state.getIntervals(sym);
+				if (ins.isPresent()) {
+					for (final Entry<Integer, Interval> eIn : ins.get().entrySet()) {
+						final Interval in = eIn.getValue();
+						rowEnds.add(eIn.getKey().intValue());
+						if (in != null && in.getTarget() != null) {
+							rowTargets.add(stateIds.get(in.getTarget().getIndex()));
+							rowTransProbs.add(stat.getTransProb(sym, in));
+						} else {
+							rowTargets.add(NO_TRANSITION);
+							rowTransProbs.add(0.0);
+						}
+					}
+				}
+			}
+		}
+		rowStart[stateCount * alphSize] = rowEnds.size();
+		ends = rowEnds.toArray();
+		targets = rowTargets.toArray();
+		transProbs = rowTransProbs.toArray();
+	}
+
+	private static void addState(PDRTAState state, TIntIntMap stateIds, List<PDRTAState> states) {
+		if (!stateIds.containsKey(state.getIndex())) {
+			stateIds.put(state.getIndex(), states.size());
+			states.add(state);
+		}
+	}
+
+	public int getStartState() {
+		return 0;
+	}
+
+	public int getStateCount() {
+		return endProbs.length;
+	}
+
+	/**
+	 * @return the index of the symbol or {@link #NO_TRANSITION} if the symbol is not part of the alphabet
+	 */
+	public int getSymbolIndex(String symbol) {
+		return symbolIds.get(symbol);
+	}
+
+	/**
+	 * Returns the index of the histogram bin for a given time delay in the same way as {@link PDRTAInput#getHistBarIdx(int)}.
+	 *
+	 * @param timeDel
+	 *            the time delay
+	 * @return the index of the histogram bin or {@link #NO_TRANSITION} if the time delay is not between the minimum and maximum time delay
+	 */
+	public int getHistBarIndex(int timeDel) {
+
+		if (timeDel < minTimeDelay || timeDel > maxTimeDelay) {
+			return NO_TRANSITION;
+		}
+		// the borders are sorted and distinct, so the first border that is not smaller than the time delay is found with a binary search
+		final int index = Arrays.binarySearch(histBorders, timeDel);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * Returns the index of the interval that contains the given time delay.
+	 *
+	 * @param state
+	 *            the dense index of the state
+	 * @param symAlphIdx
+	 *            the index of the symbol
+	 * @param timeDel
+	 *            the time delay
+	 * @return the index of the interval or {@link #NO_TRANSITION} if there is none
+	 */
+	public int getTransition(int state, int symAlphIdx, int timeDel) {
+
+		if (symAlphIdx < 0 || symAlphIdx >= alphSize) {
+			return NO_TRANSITION;
+		}
+		final int row = (state * alphSize) + symAlphIdx;
+		final int to = rowStart[row + 1];
+		int index = Arrays.binarySearch(ends, rowStart[row], to, timeDel);
+		if (index < 0) {
+			// index of the smallest end that is larger than the time delay
+			index = -index - 1;
+		}
+		if (index == to || targets[index] == NO_TRANSITION) {
+			return NO_TRANSITION;
+		}
+		return index;
+	}
+
+	public int getTarget(int transition) {
+		return targets[transition];
+	}
+
+	public double getTransProb(int transition) {
+		return transProbs[transition];
+	}
+
+	public double getSymbolProb(int state, int symAlphIdx) {
+		return symbolProbs[(state * alphSize) + symAlphIdx];
+	}
+
+	public double getTimeProb(int state, int histBarIdx) {
+		return timeProbs[(state * numHistBars) + histBarIdx];
+	}
+
+	public double getTailEndProb(int state) {
+		return endProbs[state];
+	}
+
+	/**
+	 * Computes the symbol and time probabilities in the same way as the histogram based test of {@link PDRTA#calculateProbabilities(TimedWord)}, but
+	 * appends them to the given lists.
+	 *
+	 * @param word
+	 *            the sequence to test
+	 * @param symP
+	 *            the list the symbol probabilities (including the probability to end) are appended to
+	 * @param timeP
+	 *            the list the time probabilities are appended to
+	 */
+	void testSeqHisto(TimedWord word, TDoubleList symP, TDoubleList timeP) {
+
+		final int symStart = symP.size();
+		final int timeStart = timeP.size();
+		int s = 0;
+		for (int i = 0; i < word.length(); i++) {
+			final int symIdx = symbolIds.get(word.getSymbol(i));
+			final int timeDel = word.getTimeValue(i);
+			final int histBarIdx = getHistBarIndex(timeDel);
+			final int in = symIdx < 0 || histBarIdx < 0 ? NO_TRANSITION : getTransition(s, symIdx, timeDel);
+			if (in == NO_TRANSITION) {
+				reject(symP, symStart);
+				truncate(timeP, timeStart);
+				return;
+			}
+			symP.add(getSymbolProb(s, symIdx));
+			timeP.add(getTimeProb(s, histBarIdx));
+			s = targets[in];
+		}
+		symP.add(endProbs[s]);
+	}
+
+	/**
+	 * Computes the transition probabilities in the same way as {@link PDRTA#calculateProbsTrans(TimedWord)}, but appends them to the given list.
+	 *
+	 * @param word
+	 *            the sequence to test
+	 * @param transP
+	 *            the list the transition probabilities (including the probability to end) are appended to
+	 */
+	void testSeqTrans(TimedWord word, TDoubleList transP) {
+
+		final int transStart = transP.size();
+		int s = 0;
+		for (int i = 0; i < word.length(); i++) {
+			final int symIdx = symbolIds.get(word.getSymbol(i));
+			final int timeDel = word.getTimeValue(i);
+			final int in = symIdx < 0 || getHistBarIndex(timeDel) < 0 ? NO_TRANSITION : getTransition(s, symIdx, timeDel);
+			if (in == NO_TRANSITION) {
+				reject(transP, transStart);
+				return;
+			}
+			transP.add(transProbs[in]);
+			s = targets[in];
+		}
+		transP.add(endProbs[s]);
+	}
+
+	/**
+	 * Creates a cursor that appends the same symbol and time probabilities as {@link #testSeqHisto(TimedWord, TDoubleList, TDoubleList)} for a sequence whose
+	 * events arrive one by one. If an event cannot be parsed, the probabilities that were appended for the sequence are replaced by a single zero probability
+	 * like in the histogram based test, so the lists become shorter.
+	 *
+	 * @return the cursor for one sequence
+	 */
+	ProbabilityCursor createCursor() {
+		return new ProbabilityCursor() {
+			private int s = 0;
+			private int symStart = -1;
+			private int timeStart;
+			private boolean parsing = true;
+
+			@Override
+			public boolean next(String symbol, int timeDelay, TDoubleList symP, TDoubleList timeP) {
+				if (!parsing) {
+					return false;
+				}
+				start(symP, timeP);
+				final int symIdx = symbolIds.get(symbol);
+				final int histBarIdx = getHistBarIndex(timeDelay);
+				final int in = symIdx < 0 || histBarIdx < 0 ? NO_TRANSITION : getTransition(s, symIdx, timeDelay);
+				if (in == NO_TRANSITION) {
+					reject(symP, symStart);
+					truncate(timeP, timeStart);
+					parsing = false;
+					return false;
+				}
+				symP.add(getSymbolProb(s, symIdx));
+				timeP.add(getTimeProb(s, histBarIdx));
+				s = targets[in];
+				return true;
+			}
+
+			@Override
+			public void end(TDoubleList symP, TDoubleList timeP) {
+				if (parsing) {
+					symP.add(endProbs[s]);
+					parsing = false;
+				}
+			}
+
+			private void start(TDoubleList symP, TDoubleList timeP) {
+				if (symStart < 0) {
+					symStart = symP.size();
+					timeStart = timeP.size();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Replaces the probabilities that were appended for a sequence that cannot be parsed by a single zero probability.
+	 *
+	 * @param list
+	 *            the list the probabilities were appended to
+	 * @param start
+	 *            the size of the list before the sequence was tested
+	 */
+	static void reject(TDoubleList list, int start) {
+		truncate(list, start);
+		list.add(0.0);
+	}
+
+	static void truncate(TDoubleList list, int size) {
+		if (list.size() > size) {
+			list.remove(size, list.size() - size);
+		}
+	}
+
+}
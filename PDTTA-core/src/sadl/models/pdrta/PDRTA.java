@@ -45,6 +45,7 @@ import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import sadl.input.TimedWord;
 import sadl.interfaces.AutomatonModel;
+import sadl.interfaces.ProbabilityCursor;
 import sadl.modellearner.rtiplus.StateColoring;
 
 /**
@@ -64,6 +65,10 @@ public class PDRTA implements AutomatonModel, Serializable {
 	private final TIntLinkedList recycledStatesQueue;
 	private final PDRTAState root;
 	private final PDRTAInput input;
+	/**
+	 * Scoring form of this automaton, which is compiled on first use after the training input was cleaned up.
+	 */
+	private transient volatile CompiledPDRTA compiled = null;
 
 	public static PDRTA parse(File file) throws IOException {
 
@@ -139,66 +144,114 @@ public class PDRTA implements AutomatonModel, Serializable {
 
 	}
 
-	private Pair<TDoubleList, TDoubleList> testSeqHisto(TimedTail tail) {
+	private void testSeqHisto(TimedWord word, TDoubleList symP, TDoubleList timeP) {
 
-		final TDoubleList symP = new TDoubleArrayList();
-		final TDoubleList timeP = new TDoubleArrayList();
-		double[] p;
-		TimedTail t = tail.getNextTail();
+		final CompiledPDRTA c = getCompiled();
+		if (c != null) {
+			c.testSeqHisto(word, symP, timeP);
+			return;
+		}
+
+		final int symStart = symP.size();
+		final int timeStart = timeP.size();
 		PDRTAState s = root;
-		while (t != null) {
-			if (t.getSymbolAlphIndex() < 0) {
+		for (int i = 0; i < word.length(); i++) {
+			final int symIdx = input.getAlphIndex(word.getSymbol(i));
+			final int timeDel = word.getTimeValue(i);
+			final int histBarIdx = input.getHistBarIdx(timeDel);
+			if (symIdx < 0) {
 				// return Pair.create(new TDoubleArrayList(new double[] { -1.0 }), new TDoubleArrayList(0));
-				return Pair.create(new TDoubleArrayList(new double[] { 0.0 }), new TDoubleArrayList(0));
+				CompiledPDRTA.reject(symP, symStart);
+				CompiledPDRTA.truncate(timeP, timeStart);
+				return;
 			}
-			if (t.getHistBarIndex() < 0) {
+			if (histBarIdx < 0) {
 				// return Pair.create(new TDoubleArrayList(new double[] { -2.0 }), new TDoubleArrayList(0));
-				return Pair.create(new TDoubleArrayList(new double[] { 0.0 }), new TDoubleArrayList(0));
+				CompiledPDRTA.reject(symP, symStart);
+				CompiledPDRTA.truncate(timeP, timeStart);
+				return;
 			}
-			p = s.getStat().getHistProb(t);
-			symP.add(p[0]);
-			timeP.add(p[1]);
-			final Optional<Interval> in = s.getInterval(t.getSymbolAlphIndex(), t.getTimeDelay());
+			symP.add(s.getStat().getSymbolProb(symIdx));
+			timeP.add(s.getStat().getTimeProb(histBarIdx));
+			final Optional<Interval> in = s.getInterval(symIdx, timeDel);
 			if (in.isPresent()) {
 				s = in.get().getTarget();
-				t = t.getNextTail();
 			} else {
 				// return Pair.create(new TDoubleArrayList(0), new TDoubleArrayList(new double[] { -3.0 }));
-				return Pair.create(new TDoubleArrayList(new double[] { 0.0 }), new TDoubleArrayList(0));
+				CompiledPDRTA.reject(symP, symStart);
+				CompiledPDRTA.truncate(timeP, timeStart);
+				return;
 			}
 		}
 		symP.add(s.getStat().getTailEndProb());
-
-		return Pair.create(symP, timeP);
 	}
 
-	private TDoubleList testSeqTrans(TimedTail tail) {
+	private void testSeqTrans(TimedWord word, TDoubleList transP) {
+
+		final CompiledPDRTA c = getCompiled();
+		if (c != null) {
+			c.testSeqTrans(word, transP);
+			return;
+		}
 
-		final TDoubleList transP = new TDoubleArrayList();
-		TimedTail t = tail.getNextTail();
+		final int transStart = transP.size();
 		PDRTAState s = root;
-		while (t != null) {
-			if (t.getSymbolAlphIndex() < 0) {
+		for (int i = 0; i < word.length(); i++) {
+			final int symIdx = input.getAlphIndex(word.getSymbol(i));
+			final int timeDel = word.getTimeValue(i);
+			if (symIdx < 0) {
 				// return new TDoubleArrayList(new double[] { -1.0 });
-				return new TDoubleArrayList(new double[] { 0.0 });
+				CompiledPDRTA.reject(transP, transStart);
+				return;
 			}
-			if (t.getHistBarIndex() < 0) {
+			if (input.getHistBarIdx(timeDel) < 0) {
 				// return new TDoubleArrayList(new double[] { -2.0 });
-				return new TDoubleArrayList(new double[] { 0.0 });
+				CompiledPDRTA.reject(transP, transStart);
+				return;
 			}
-			final Optional<Interval> in = s.getInterval(t.getSymbolAlphIndex(), t.getTimeDelay());
-			transP.add(s.getStat().getTransProb(t.getSymbolAlphIndex(), in));
+			final Optional<Interval> in = s.getInterval(symIdx, timeDel);
+			transP.add(s.getStat().getTransProb(symIdx, in));
 			if (in.isPresent()) {
 				s = in.get().getTarget();
-				t = t.getNextTail();
 			} else {
 				// return new TDoubleArrayList(new double[] { -3.0 });
-				return new TDoubleArrayList(new double[] { 0.0 });
+				CompiledPDRTA.reject(transP, transStart);
+				return;
 			}
 		}
 		transP.add(s.getStat().getTailEndProb());
+	}
 
-		return transP;
+	/**
+	 * Compiles this automaton into an immutable form with flat arrays that is used for scoring. Later changes of this automaton are not reflected in the
+	 * compiled form.
+	 * 
+	 * @return the compiled automaton
+	 */
+	public CompiledPDRTA compile() {
+		return new CompiledPDRTA(this);
+	}
+
+	/**
+	 * Returns the compiled form of this automaton if the training input was cleaned up. The compiled form is created once and shared by all threads.
+	 * 
+	 * @return the compiled automaton or {@code null} if this automaton is still trained
+	 */
+	protected CompiledPDRTA getCompiled() {
+		if (hasInput()) {
+			return null;
+		}
+		CompiledPDRTA result = compiled;
+		if (result == null) {
+			synchronized (this) {
+				result = compiled;
+				if (result == null) {
+					result = compile();
+					compiled = result;
+				}
+			}
+		}
+		return result;
 	}
 
 	public Collection<PDRTAState> getStates() {
@@ -655,15 +708,34 @@ public class PDRTA implements AutomatonModel, Serializable {
 
 	@Override
 	public Pair<TDoubleList, TDoubleList> calculateProbabilities(TimedWord seq) {
+		final TDoubleList symP = new TDoubleArrayList(seq.length() + 1);
+		final TDoubleList timeP = new TDoubleArrayList(seq.length());
+		testSeqHisto(seq, symP, timeP);
+		return Pair.create(symP, timeP);
+	}
 
-		final TimedTail t = input.toTestTailChain(seq);
-		return testSeqHisto(t);
+	@Override
+	public void calculateProbabilities(TimedWord seq, TDoubleList eventLikelihoods, TDoubleList timeLikelihoods) {
+		testSeqHisto(seq, eventLikelihoods, timeLikelihoods);
 	}
 
-	public Pair<TDoubleList, TDoubleList> calculateProbsTrans(TimedWord seq) {
+	/**
+	 * Creates a cursor that follows a sequence event by event if the training input was cleaned up. Otherwise the events are kept and the probabilities are
+	 * computed when the sequence ends.
+	 */
+	@Override
+	public ProbabilityCursor createCursor() {
+		final CompiledPDRTA c = getCompiled();
+		if (c != null) {
+			return c.createCursor();
+		}
+		return AutomatonModel.super.createCursor();
+	}
 
-		final TimedTail t = input.toTestTailChain(seq);
-		return Pair.create(testSeqTrans(t), new TDoubleArrayList(0));
+	public Pair<TDoubleList, TDoubleList> calculateProbsTrans(TimedWord seq) {
+		final TDoubleList transP = new TDoubleArrayList(seq.length() + 1);
+		testSeqTrans(seq, transP);
+		return Pair.create(transP, new TDoubleArrayList(0));
 	}
 
 	@Override
@@ -733,6 +805,7 @@ public class PDRTA implements AutomatonModel, Serializable {
 		for (final PDRTAState s : states.valueCollection()) {
 			s.cleanUp();
 		}
+		compiled = null;
 	}
 
 	@Override
@@ -283,7 +283,14 @@ public class PDRTAInput implements Serializable {
 		// }
 	}
 
-	private int getHistBarIdx(int time) {
+	/**
+	 * Returns the index of the histogram bin for a given time delay.
+	 * 
+	 * @param time
+	 *            The time delay
+	 * @return The index of the histogram bin or {@code -1} if the time delay is not between the minimum and maximum time delay
+	 */
+	int getHistBarIdx(int time) {
 
 		if (time < minTimeDelay || time > maxTimeDelay) {
 			return -1;
@@ -297,10 +304,6 @@ public class PDRTAInput implements Serializable {
 		}
 	}
 
-	TimedTail toTestTailChain(TimedWord word) {
-		return createTailChain(-1, word);
-	}
-
 	static PDRTAInput parse(List<String> data) {
 
 		if (data.size() != 4) {
@@ -475,33 +475,44 @@ public class StateStatistic implements Serializable {
 	}
 
 	/**
-	 * Returns the probability for a given {@link TimedTail} according to the independent symbol and histogram bin probabilities
+	 * Returns the probability for outgoing {@link TimedTail}s to have the given symbol
 	 * 
-	 * @param t
-	 *            The {@link TimedTail} to get the probability for
-	 * @return The probability for a given {@link TimedTail} according to the independent symbol and histogram bin probabilities
+	 * @param symIdx
+	 *            The index of the symbol
+	 * @return The probability for outgoing {@link TimedTail}s to have the given symbol
 	 */
-	protected double[] getHistProb(TimedTail t) {
+	protected double getSymbolProb(int symIdx) {
 
-		if (t.getHistBarIndex() < 0 || t.getSymbolAlphIndex() < 0) {
-			return new double[] { 0.0, 0.0 };
+		if (trainMode) {
+			if (totalOutCount > 0) {
+				return (double) symbolCount[symIdx] / (double) totalOutCount;
+			} else {
+				return 0.0;
+			}
+		} else {
+			return symbolProbs[symIdx];
 		}
+	}
+
+	/**
+	 * Returns the probability for outgoing {@link TimedTail}s to have a time delay in the given histogram bin divided by the width of the bin
+	 * 
+	 * @param histBarIdx
+	 *            The index of the histogram bin
+	 * @return The probability for a single time delay of the given histogram bin
+	 */
+	protected double getTimeProb(int histBarIdx) {
 
 		if (trainMode) {
 			final double timeP;
-			final double symP;
 			if (totalOutCount > 0) {
-				timeP = (double) timeCount[t.getHistBarIndex()] / (double) totalOutCount;
-				symP = (double) symbolCount[t.getSymbolAlphIndex()] / (double) totalOutCount;
+				timeP = (double) timeCount[histBarIdx] / (double) totalOutCount;
 			} else {
 				timeP = 0.0;
-				symP = 0.0;
 			}
-			return new double[] { symP, (timeP / histBarSizes[t.getHistBarIndex()]) };
+			return timeP / histBarSizes[histBarIdx];
 		} else {
-			final double timeP = (timeProbs[t.getHistBarIndex()] / histBarSizes[t.getHistBarIndex()]);
-			final double symP = symbolProbs[t.getSymbolAlphIndex()];
-			return new double[] { symP, timeP };
+			return timeProbs[histBarIdx] / histBarSizes[histBarIdx];
 		}
 	}
 
@@ -16,9 +16,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Random;
-import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.util.Pair;
 
@@ -34,6 +37,8 @@ import sadl.models.PDFA;
 import sadl.models.pta.Event;
 import sadl.models.pta.HalfClosedInterval;
 import sadl.models.pta.SubEvent;
+import sadl.utils.MasterSeed;
+import sadl.utils.Settings;
 
 public class PDTA implements AutomatonModel {
 
@@ -86,34 +91,45 @@ public class PDTA implements AutomatonModel {
 		return states;
 	}
 
+	/**
+	 * Generates the given number of words in parallel if {@link Settings#isParallel()} is set. Every word gets its own random numbers (see
+	 * {@link MasterSeed#derive(long, long)}), so the result is the same for any number of threads.
+	 */
 	public TimedInput generateRandomSequences(boolean allowAnomaly, int count) {
 
-		final ArrayList<TimedWord> words = new ArrayList<>();
-
-		for (int i = 0; i < count; i++) {
-
-			words.add(generateRandomWord(allowAnomaly));
-		}
-
-		return new TimedInput(words);
-
+		return generateSequences(count, random -> generateRandomWord(allowAnomaly, random));
 	}
 
+	/**
+	 * Generates the given number of anomalies in parallel if {@link Settings#isParallel()} is set. Every word gets its own random numbers (see
+	 * {@link MasterSeed#derive(long, long)}), so the result is the same for any number of threads.
+	 */
 	public TimedInput generateAnomalySequences(int eventAnomaliesCount, int count) {
 
-		final ArrayList<TimedWord> words = new ArrayList<>();
+		return generateSequences(count, random -> generateAnomalyWord(eventAnomaliesCount, random));
+	}
 
-		for (int i = 0; i < count; i++) {
+	private TimedInput generateSequences(int count, Function<Random, TimedWord> generator) {
 
-			words.add(generateAnomalyWord(eventAnomaliesCount));
+		final long baseSeed = MasterSeed.nextLong();
+		final TimedWord[] words = new TimedWord[count];
+		final IntConsumer f = (i -> words[i] = generator.apply(MasterSeed.derive(baseSeed, i)));
+		if (Settings.isParallel()) {
+			IntStream.range(0, count).parallel().forEach(f);
+		} else {
+			IntStream.range(0, count).forEach(f);
 		}
 
-		return new TimedInput(words);
-
+		return new TimedInput(Arrays.asList(words));
 	}
 
 	public TimedWord generateRandomWord(boolean allowAnomaly) {
 
+		return generateRandomWord(allowAnomaly, MasterSeed.nextRandom());
+	}
+
+	public TimedWord generateRandomWord(boolean allowAnomaly, Random random) {
+
 		final ArrayList<String> symbols = new ArrayList<>();
 		final TIntLinkedList timeValues = new TIntLinkedList();
 
@@ -121,7 +137,7 @@ public class PDTA implements AutomatonModel {
 
 		while (currentState != null) {
 
-			final PDTATransition nextTransition = currentState.getRandomTransition();
+			final PDTATransition nextTransition = currentState.getRandomTransition(random);
 
 			if (nextTransition != null) {
 				final SubEvent event = nextTransition.getEvent();
@@ -134,7 +150,7 @@ public class PDTA implements AutomatonModel {
 					allowedInterval = nextTransition.getInterval();
 				}
 
-				final double time = event.generateRandomTime(allowedInterval);
+				final double time = event.generateRandomTime(allowedInterval, random);
 				symbols.add(eventSymbol);
 				timeValues.add((int) time);
 
@@ -150,14 +166,18 @@ public class PDTA implements AutomatonModel {
 
 	public TimedWord generateAnomalyWord(int anomaliesMaxCount) {
 
-		final TimedWord word = generateRandomWord(false);
+		return generateAnomalyWord(anomaliesMaxCount, MasterSeed.nextRandom());
+	}
+
+	public TimedWord generateAnomalyWord(int anomaliesMaxCount, Random random) {
+
+		final TimedWord word = generateRandomWord(false, random);
 		final boolean anomalyPositions[] = new boolean[word.length()];
 
 		if (anomaliesMaxCount > anomalyPositions.length) {
 			anomaliesMaxCount = anomalyPositions.length;
 		}
 
-		final Random random = new Random();
 		final Event eventsArray[] = events.values().toArray(new Event[0]);
 
 		final ArrayList<String> symbols = new ArrayList<>();
@@ -179,9 +199,9 @@ public class PDTA implements AutomatonModel {
 			}
 			else{
 				final Event randomEvent = eventsArray[random.nextInt(eventsArray.length)];
-				final SubEvent randomSubEvent = randomEvent.getRandomSubEvent();
+				final SubEvent randomSubEvent = randomEvent.getRandomSubEvent(random);
 				symbols.add(randomSubEvent.getEvent().getSymbol());
-				timeValues.add((int) randomSubEvent.generateRandomTime(randomSubEvent.getAnomalyBounds()));
+				timeValues.add((int) randomSubEvent.generateRandomTime(randomSubEvent.getAnomalyBounds(), random));
 			}
 		}
 
@@ -190,7 +210,7 @@ public class PDTA implements AutomatonModel {
 		if (this.hasAnomaly(wordAnomaly)) {
 			return wordAnomaly;
 		} else {
-			return generateAnomalyWord(anomaliesMaxCount);
+			return generateAnomalyWord(anomaliesMaxCount, random);
 		}
 	}
 
@@ -249,11 +269,9 @@ public class PDTA implements AutomatonModel {
 			}
 
 			for (final PDTAState state : states.valueCollection()) {
-				for (final TreeMap<Double, PDTATransition> transitions : state.getTransitions().values()) {
-					for (final PDTATransition transition : transitions.values()) {
-						writer.write(Integer.toString(state.getId()) + "->" + Integer.toString(transition.getTarget().getId()) + " [label=<"
-								+ transition.getEvent().getSymbol() + ">;];\n");
-					}
+				for (final PDTATransition transition : state.getTransitions()) {
+					writer.write(Integer.toString(state.getId()) + "->" + Integer.toString(transition.getTarget().getId()) + " [label=<"
+							+ transition.getEvent().getSymbol() + ">;];\n");
 				}
 			}
 
@@ -270,9 +288,7 @@ public class PDTA implements AutomatonModel {
 	public int getTransitionCount() {
 		int result = 0;
 		for (final PDTAState state : states.valueCollection()) {
-			for (final TreeMap<Double, PDTATransition> transitions : state.getTransitions().values()) {
-				result += transitions.size();
-			}
+			result += state.getTransitions().size();
 		}
 		return result;
 	}
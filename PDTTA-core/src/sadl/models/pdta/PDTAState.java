@@ -10,21 +10,39 @@
  */
 package sadl.models.pdta;
 
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
-import java.util.TreeMap;
 
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import sadl.models.pta.HalfClosedInterval;
 import sadl.models.pta.SubEvent;
 import sadl.utils.MasterSeed;
 
+/**
+ * State of a {@link PDTA}. The outgoing transitions are stored per symbol in flat arrays: every symbol gets an int id and the transitions of a symbol are
+ * sorted by the minimum of their interval, so the transition for a symbol and a time value is found with a binary search on primitive values.
+ *
+ * @author Timo Klerx
+ *
+ */
 public class PDTAState {
 
+	private static final int NO_SYMBOL = -1;
+
 	protected int id;
 	protected double endProbability;
-	protected HashMap<String, TreeMap<Double, PDTATransition>> transitions = new HashMap<>();
-	protected TreeMap<Double, PDTATransition> transitionsProbability = new TreeMap<>();
+	protected TObjectIntMap<String> symbolIds = new TObjectIntHashMap<>(11, 0.5f, NO_SYMBOL);
+	// for every symbol id the sorted minimums of the intervals and the transitions with these intervals
+	protected double[][] intervalMinimums = new double[0][];
+	protected PDTATransition[][] transitions = new PDTATransition[0][];
+	// the sum of the probabilities before each transition (in the order the transitions were added) for drawing random transitions
+	protected TDoubleList probabilityStarts = new TDoubleArrayList();
+	protected List<PDTATransition> probabilityTransitions = new ArrayList<>();
 
 	protected double sumProbabilities = 0.0d;
 	Random rand;
@@ -51,26 +69,33 @@ public class PDTAState {
 		return null;
 	}
 
-	public HashMap<String, TreeMap<Double, PDTATransition>> getTransitions() {
+	/**
+	 * @return all outgoing transitions, grouped by symbol and sorted by the minimum of their interval
+	 */
+	public List<PDTATransition> getTransitions() {
 
-		return transitions;
+		final List<PDTATransition> result = new ArrayList<>();
+		for (final PDTATransition[] eventTransitions : transitions) {
+			result.addAll(Arrays.asList(eventTransitions));
+		}
+		return result;
 	}
 
 	public PDTATransition getTransition(String eventSymbol, double time) {
 
-		final TreeMap<Double, PDTATransition> eventTransitions = transitions.get(eventSymbol);
+		final int symbolId = symbolIds.get(eventSymbol);
 
-		if (eventTransitions == null) {
+		if (symbolId == NO_SYMBOL) {
 			return null;
 		}
 
-		final Entry<Double, PDTATransition> transitionEntry = eventTransitions.floorEntry(new Double(time));
+		final int index = floorIndex(intervalMinimums[symbolId], time);
 
-		if (transitionEntry == null) {
+		if (index < 0) {
 			return null;
 		}
 
-		final PDTATransition transition = transitionEntry.getValue();
+		final PDTATransition transition = transitions[symbolId][index];
 
 		if (transition.inInterval(time)) {
 			return transition;
@@ -89,15 +114,15 @@ public class PDTAState {
 		PDTATransition probablyTransition = getTransition(eventSymbol, time);
 
 		if (probablyTransition == null) {
-			final TreeMap<Double, PDTATransition> eventTransitions = transitions.get(eventSymbol);
+			final int symbolId = symbolIds.get(eventSymbol);
 
-			if (eventTransitions == null) {
+			if (symbolId == NO_SYMBOL) {
 				return null;
 			}
 
 			double maxProbability = 0.0;
 
-			for (final PDTATransition transition : eventTransitions.values()){
+			for (final PDTATransition transition : transitions[symbolId]) {
 
 				final double probability = transition.getEvent().calculateProbability(time);
 
@@ -112,26 +137,34 @@ public class PDTAState {
 	}
 
 	public PDTATransition getRandomTransition() {
+		return getRandomTransition(rand);
+	}
+
+	public PDTATransition getRandomTransition(Random random) {
 
 		if (sumProbabilities < 1.0d) {
 			throw new IllegalStateException("Probability not 1.0");
 		}
 
-		final double random = rand.nextDouble();
+		final double randomValue = random.nextDouble();
 
-		if (random <= endProbability) {
+		if (randomValue <= endProbability) {
 			return null;
 		}
 
-		final Entry<Double, PDTATransition> transitionEntry = transitionsProbability.floorEntry(new Double(random));
+		int index = probabilityStarts.binarySearch(randomValue);
+		if (index < 0) {
+			// index of the largest start that is smaller than the random value
+			index = -index - 2;
+		}
 
-		if (transitionEntry == null) {
-			throw new IllegalStateException("No transition selected(" + random + ")" + this);
+		if (index < 0) {
+			throw new IllegalStateException("No transition selected(" + randomValue + ")" + this);
 		}
 
-		final PDTATransition transition = transitionEntry.getValue();
+		final PDTATransition transition = probabilityTransitions.get(index);
 
-		if (transitionEntry.getKey().doubleValue() + transition.getPropability() < random) {
+		if (probabilityStarts.get(index) + transition.getPropability() < randomValue) {
 			throw new IllegalStateException("No transition selected.");
 		}
 
@@ -143,15 +176,41 @@ public class PDTAState {
 		final PDTATransition transition = new PDTATransition(event, target, interval, probability);
 		final String eventSymbol = event.getEvent().getSymbol();
 
-		TreeMap<Double, PDTATransition> eventTransitions = transitions.get(eventSymbol);
+		int symbolId = symbolIds.get(eventSymbol);
+
+		if (symbolId == NO_SYMBOL) {
+			symbolId = transitions.length;
+			symbolIds.put(eventSymbol, symbolId);
+			intervalMinimums = Arrays.copyOf(intervalMinimums, symbolId + 1);
+			transitions = Arrays.copyOf(transitions, symbolId + 1);
+			intervalMinimums[symbolId] = new double[0];
+			transitions[symbolId] = new PDTATransition[0];
+		}
 
-		if (eventTransitions == null) {
-			eventTransitions = new TreeMap<>();
-			transitions.put(eventSymbol, eventTransitions);
+		final double minimum = interval.getMinimum();
+		final double[] minimums = intervalMinimums[symbolId];
+		final PDTATransition[] eventTransitions = transitions[symbolId];
+		final int index = Arrays.binarySearch(minimums, minimum);
+
+		if (index >= 0) {
+			// a transition with an interval that has the same minimum is replaced
+			eventTransitions[index] = transition;
+		} else {
+			final int insertion = -index - 1;
+			final double[] newMinimums = new double[minimums.length + 1];
+			final PDTATransition[] newTransitions = new PDTATransition[eventTransitions.length + 1];
+			System.arraycopy(minimums, 0, newMinimums, 0, insertion);
+			System.arraycopy(eventTransitions, 0, newTransitions, 0, insertion);
+			newMinimums[insertion] = minimum;
+			newTransitions[insertion] = transition;
+			System.arraycopy(minimums, insertion, newMinimums, insertion + 1, minimums.length - insertion);
+			System.arraycopy(eventTransitions, insertion, newTransitions, insertion + 1, eventTransitions.length - insertion);
+			intervalMinimums[symbolId] = newMinimums;
+			transitions[symbolId] = newTransitions;
 		}
 
-		eventTransitions.put(new Double(interval.getMinimum()), transition);
-		transitionsProbability.put(new Double(sumProbabilities), transition);
+		probabilityStarts.add(sumProbabilities);
+		probabilityTransitions.add(transition);
 		sumProbabilities += probability;
 
 		if (sumProbabilities > 1.0001d) {
@@ -159,6 +218,20 @@ public class PDTAState {
 		}
 	}
 
+	/**
+	 * Returns the index of the largest value that is not larger than the given one.
+	 *
+	 * @param sortedValues
+	 *            the values in ascending order
+	 * @param value
+	 *            the value to look for
+	 * @return the index or -1 if all values are larger
+	 */
+	private static int floorIndex(double[] sortedValues, double value) {
+		final int index = Arrays.binarySearch(sortedValues, value);
+		return index >= 0 ? index : -index - 2;
+	}
+
 	public boolean isFinalState() {
 
 		return endProbability > 0.0d;
@@ -174,10 +247,8 @@ public class PDTAState {
 		final StringBuilder stringBuilder = new StringBuilder();
 		stringBuilder.append("State " + this.id + "(");
 
-		for (final TreeMap<Double, PDTATransition> event : transitions.values()) {
-			for (final PDTATransition transition : event.values()) {
-				stringBuilder.append(transition + " ");
-			}
+		for (final PDTATransition transition : getTransitions()) {
+			stringBuilder.append(transition + " ");
 		}
 
 		stringBuilder.append(")");
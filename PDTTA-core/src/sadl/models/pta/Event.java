@@ -60,7 +60,11 @@ public class Event implements Iterable<SubEvent> {
 	}
 
 	public SubEvent getRandomSubEvent() {
-		return (SubEvent) subEvents.values().toArray()[rand.nextInt(subEvents.size())];
+		return getRandomSubEvent(rand);
+	}
+
+	public SubEvent getRandomSubEvent(Random random) {
+		return (SubEvent) subEvents.values().toArray()[random.nextInt(subEvents.size())];
 	}
 
 
@@ -10,6 +10,8 @@
  */
 package sadl.models.pta;
 
+import java.util.Random;
+
 import jsat.distributions.empirical.NormalRandomized;
 
 import org.apache.commons.math3.util.Precision;
@@ -335,6 +337,10 @@ public class SubEvent {
 	}
 
 	public double generateRandomTime(HalfClosedInterval allowedInterval) {
+		return generateRandomTime(allowedInterval, new Random());
+	}
+
+	public double generateRandomTime(HalfClosedInterval allowedInterval, Random random) {
 
 		if (Precision.equals(deviation, 0)) {
 			if (allowedInterval.contains(expectedValue)) {
@@ -353,7 +359,7 @@ public class SubEvent {
 		double randomTime = 0.0d;
 
 		do {
-			randomTime = normalFunction.getRandomPoint();
+			randomTime = normalFunction.getRandomPoint(random);
 
 			if (allowedInterval.contains(randomTime)) {
 				return randomTime;
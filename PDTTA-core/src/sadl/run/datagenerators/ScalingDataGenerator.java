@@ -128,9 +128,7 @@ public class ScalingDataGenerator {
 		final PDTTA initialAutomaton = new PDTTA(structure, transitionDistributions, new IdentityEstimator());
 		// sample data from the initial automaton
 		final List<TimedWord> initialWords = new ArrayList<>();
-		for (int j = 0; j < INITIAL_SAMPLES; j++) {
-			initialWords.add(initialAutomaton.sampleSequence());
-		}
+		initialWords.addAll(initialAutomaton.sampleSequences(INITIAL_SAMPLES));
 		TimedInput input = new TimedInput(initialWords);
 		try (BufferedWriter bw = Files.newBufferedWriter(outputFolder.resolve("initial-data.txt"))) {
 			input.toFile(bw, true);
@@ -139,9 +137,7 @@ public class ScalingDataGenerator {
 			final double scalingStepSize = (double) (MAX_SAMPLES - INITIAL_SAMPLES) / (SCALING_STEPS - 1);
 			logger.info("Scaling step size for more data samples={}", scalingStepSize);
 			for (int i = 1; i < SCALING_STEPS; i++) {
-				for (int j = 0; j < scalingStepSize; j++) {
-					initialWords.add(initialAutomaton.sampleSequence());
-				}
+				initialWords.addAll(initialAutomaton.sampleSequences((int) Math.ceil(scalingStepSize)));
 				input = new TimedInput(initialWords);
 				try (BufferedWriter bw = Files.newBufferedWriter(outputFolder.resolve("data-inc-samples-" + i + ".txt"))) {
 					input.toFile(bw, true);
@@ -189,9 +185,7 @@ public class ScalingDataGenerator {
 				}
 				final PDTTA eventPdtta = new PDTTA(newStructure, distributions, new IdentityEstimator());
 				initialWords.clear();
-				for (int j = 0; j < INITIAL_SAMPLES; j++) {
-					initialWords.add(eventPdtta.sampleSequence());
-				}
+				initialWords.addAll(eventPdtta.sampleSequences(INITIAL_SAMPLES));
 				input = new TimedInput(initialWords);
 				try (BufferedWriter bw = Files.newBufferedWriter(outputFolder.resolve("data-event-transitions-" + i + ".txt"))) {
 					input.toFile(bw, true);
@@ -242,9 +236,7 @@ public class ScalingDataGenerator {
 
 				final PDTTA eventPdtta = new PDTTA(newStructure, distributions, new IdentityEstimator());
 				initialWords.clear();
-				for (int j = 0; j < INITIAL_SAMPLES; j++) {
-					initialWords.add(eventPdtta.sampleSequence());
-				}
+				initialWords.addAll(eventPdtta.sampleSequences(INITIAL_SAMPLES));
 				input = new TimedInput(initialWords);
 				try (BufferedWriter bw = Files.newBufferedWriter(outputFolder.resolve("data-time-transitions-" + i + ".txt"))) {
 					input.toFile(bw, true);
@@ -302,9 +294,7 @@ public class ScalingDataGenerator {
 				}
 				final PDTTA eventPdtta = new PDTTA(newStructure, distributions, new IdentityEstimator());
 				initialWords.clear();
-				for (int j = 0; j < INITIAL_SAMPLES; j++) {
-					initialWords.add(eventPdtta.sampleSequence());
-				}
+				initialWords.addAll(eventPdtta.sampleSequences(INITIAL_SAMPLES));
 				input = new TimedInput(initialWords);
 				try (BufferedWriter bw = Files.newBufferedWriter(outputFolder.resolve("data-alphabet-" + i + ".txt"))) {
 					input.toFile(bw, true);
@@ -368,9 +358,7 @@ public class ScalingDataGenerator {
 				final PDTTA statePdtta = new PDTTA(newStructure, distributions, new IdentityEstimator());
 				logger.info("statePdtta has {} states", statePdtta.getStateCount());
 				initialWords.clear();
-				for (int j = 0; j < INITIAL_SAMPLES; j++) {
-					initialWords.add(statePdtta.sampleSequence());
-				}
+				initialWords.addAll(statePdtta.sampleSequences(INITIAL_SAMPLES));
 				input = new TimedInput(initialWords);
 				try (BufferedWriter bw = Files.newBufferedWriter(outputFolder.resolve("data-states-" + i + ".txt"))) {
 					input.toFile(bw, true);
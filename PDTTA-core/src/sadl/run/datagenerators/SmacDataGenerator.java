@@ -119,25 +119,11 @@ public class SmacDataGenerator implements Serializable {
 						if (type == AnomalyInsertionType.TYPE_TWO) {
 							anomaly.removeAbnormalSequences(currentPta);
 						}
-						for (int i = 0; i < TRAIN_SIZE; i++) {
-							trainSequences.add(currentPta.sampleSequence());
-						}
+						trainSequences.addAll(currentPta.sampleSequences(TRAIN_SIZE));
 						// PTAs of Type 2 and 4 always produce abnormal sequences
 						// it is possible to sample abnormal and normal sequences with abnormal ptas of the other types (1,3,5).
 						// but I don't know how the distribution is, so to be fair, i sample all anomalies the same
-						for (int i = 0; i < TEST_SIZE; i++) {
-							if (r.nextDouble() < ANOMALY_PERCENTAGE) {
-								boolean wasAnormal = false;
-								TimedWord seq = null;
-								while (!wasAnormal) {
-									seq = anomaly.sampleSequence();
-									wasAnormal = seq.isAnomaly();
-								}
-								testSequences.add(seq);
-							} else {
-								testSequences.add(currentPta.sampleSequence());
-							}
-						}
+						testSequences.addAll(TestSetSampler.sampleTestSequences(currentPta, () -> anomaly, ANOMALY_PERCENTAGE, TEST_SIZE, r));
 						final TimedInput trainset = new TimedInput(trainSequences);
 						final TimedInput testset = new TimedInput(testSequences);
 						final String prep = split == EventsCreationStrategy.SplitEvents ? "prep" : "noPrep";
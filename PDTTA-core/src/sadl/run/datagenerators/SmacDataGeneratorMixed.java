@@ -125,24 +125,12 @@ public class SmacDataGeneratorMixed implements Serializable {
 			while (k < SAMPLE_FILES) {
 				trainSequences.clear();
 				testSequences.clear();
-				for (int i = 0; i < TRAIN_SIZE; i++) {
-					trainSequences.add(pta.sampleSequence());
-				}
-				for (int i = 0; i < TEST_SIZE; i++) {
-					if (r.nextDouble() < ANOMALY_PERCENTAGE) {
-						boolean wasAnormal = false;
-						TimedWord seq = null;
-						final TauPTA chosen = CollectionUtils.chooseRandomObject(abnormalPtas, anomalyChooser);
-						while (!wasAnormal) {
-							seq = chosen.sampleSequence();
-							wasAnormal = seq.isAnomaly();
-						}
-						anomalyOccurences.adjustOrPutValue(chosen, 1, 1);
-						testSequences.add(seq);
-					} else {
-						testSequences.add(pta.sampleSequence());
-					}
-				}
+				trainSequences.addAll(pta.sampleSequences(TRAIN_SIZE));
+				testSequences.addAll(TestSetSampler.sampleTestSequences(pta, () -> {
+					final TauPTA chosen = CollectionUtils.chooseRandomObject(abnormalPtas, anomalyChooser);
+					anomalyOccurences.adjustOrPutValue(chosen, 1, 1);
+					return chosen;
+				}, ANOMALY_PERCENTAGE, TEST_SIZE, r));
 				final TimedInput trainset = new TimedInput(trainSequences);
 				final TimedInput testset = new TimedInput(testSequences);
 				final String prep = split == EventsCreationStrategy.SplitEvents ? "prep" : "noPrep";
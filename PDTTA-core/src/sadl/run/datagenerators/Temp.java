@@ -205,25 +205,12 @@ public class Temp {
 			pta = result.getKey();
 			anomaly = result.getValue();
 		}
-		for (int i = 0; i < TRAIN_SIZE; i++) {
-			trainSequences.add(pta.sampleSequence());
-		}
+		trainSequences.addAll(pta.sampleSequences(TRAIN_SIZE));
 		// PTAs of Type 2 and 4 always produce abnormal sequences
 		// it is possible to sample abnormal and normal sequences with abnormal ptas of the other types (1,3,5).
 		// but I don't know how the distribution is, so to be fair, i sample all anomalies the same
-		for (int i = 0; i < TEST_SIZE; i++) {
-			if (r.nextDouble() < ANOMALY_PERCENTAGE) {
-				boolean wasAnormal = false;
-				TimedWord seq = null;
-				while (!wasAnormal) {
-					seq = anomaly.sampleSequence();
-					wasAnormal = seq.isAnomaly();
-				}
-				testSequences.add(seq);
-			} else {
-				testSequences.add(pta.sampleSequence());
-			}
-		}
+		final TauPTA abnormalPta = anomaly;
+		testSequences.addAll(TestSetSampler.sampleTestSequences(pta, () -> abnormalPta, ANOMALY_PERCENTAGE, TEST_SIZE, r));
 		IoUtils.writeTrainTestFile(dataOutputFile, new TimedInput(trainSequences), new TimedInput(testSequences));
 	}
 
@@ -310,24 +297,9 @@ public class Temp {
 		// final Process ps = Runtime.getRuntime().exec("dot -Tpdf -O " + outputDir.resolve(p));
 		// System.out.println(outputDir.resolve(p));
 		// ps.waitFor();
-		for (int i = 0; i < TRAIN_SIZE; i++) {
-			trainSequences.add(normalPta.sampleSequence());
-		}
-		for (int i = 0; i < TEST_SIZE; i++) {
-			if (r.nextDouble() < ANOMALY_PERCENTAGE) {
-				boolean wasAnormal = false;
-				TimedWord seq = null;
-				// could be replaced by do... while
-				final TauPTA chosen = CollectionUtils.chooseRandomObject(abnormalPtas, r);
-				while (!wasAnormal) {
-					seq = chosen.sampleSequence();
-					wasAnormal = seq.isAnomaly();
-				}
-				testSequences.add(seq);
-			} else {
-				testSequences.add(normalPta.sampleSequence());
-			}
-		}
+		trainSequences.addAll(normalPta.sampleSequences(TRAIN_SIZE));
+		testSequences.addAll(TestSetSampler.sampleTestSequences(normalPta, () -> CollectionUtils.chooseRandomObject(abnormalPtas, r), ANOMALY_PERCENTAGE,
+				TEST_SIZE, r));
 		IoUtils.writeTrainTestFile(dataOutputFile, new TimedInput(trainSequences), new TimedInput(testSequences));
 	}
 }
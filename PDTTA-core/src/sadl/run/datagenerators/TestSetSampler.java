@@ -0,0 +1,76 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.run.datagenerators;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import sadl.input.TimedWord;
+import sadl.models.TauPTA;
+
+/**
+ * Samples the test sets of the data generators from a normal and several abnormal PTAs.
+ * 
+ * @author Timo Klerx
+ *
+ */
+final class TestSetSampler {
+
+	private TestSetSampler() {
+	}
+
+	/**
+	 * Samples a test set in which every sequence is an anomaly with the given probability. An anomaly is sampled from the chosen abnormal PTA until the
+	 * sequence is abnormal, all other sequences are sampled from the normal PTA. The sequences are sampled in parallel (see
+	 * {@link TauPTA#sampleSequences(int, java.util.function.Predicate)}), only the decisions whether a sequence is an anomaly and the choices of the
+	 * abnormal PTAs are made in the order of the test set.
+	 * 
+	 * @param normalPta
+	 *            the PTA for the normal sequences
+	 * @param anomalyChooser
+	 *            chooses the abnormal PTA for the next anomaly
+	 * @param anomalyPercentage
+	 *            the probability of a sequence to be an anomaly
+	 * @param size
+	 *            the number of sequences
+	 * @param r
+	 *            the source of the random numbers that decide whether a sequence is an anomaly
+	 * @return the test sequences
+	 */
+	static List<TimedWord> sampleTestSequences(TauPTA normalPta, Supplier<TauPTA> anomalyChooser, double anomalyPercentage, int size, Random r) {
+		final TauPTA[] ptas = new TauPTA[size];
+		final Map<TauPTA, Integer> counts = new IdentityHashMap<>();
+		for (int i = 0; i < size; i++) {
+			ptas[i] = r.nextDouble() < anomalyPercentage ? anomalyChooser.get() : normalPta;
+			counts.merge(ptas[i], Integer.valueOf(1), Integer::sum);
+		}
+		// every PTA uses its own random numbers, so the order in which the PTAs sample does not matter
+		final Map<TauPTA, Iterator<TimedWord>> samples = new IdentityHashMap<>();
+		for (final Entry<TauPTA, Integer> e : counts.entrySet()) {
+			final TauPTA pta = e.getKey();
+			final int count = e.getValue().intValue();
+			final List<TimedWord> words = pta == normalPta ? pta.sampleSequences(count) : pta.sampleSequences(count, TimedWord::isAnomaly);
+			samples.put(pta, words.iterator());
+		}
+		final List<TimedWord> result = new ArrayList<>(size);
+		for (final TauPTA pta : ptas) {
+			result.add(samples.get(pta).next());
+		}
+		return result;
+	}
+
+}
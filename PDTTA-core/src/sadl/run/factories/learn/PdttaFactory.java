@@ -28,6 +28,9 @@ public class PdttaFactory implements PdfaDefaultFactory, TptaDefaultFactory {
 	@Parameter(names = "-kdeBandwidthEstimate", arity = 1)
 	boolean kdeBandwidthEstimate = true;
 
+	@Parameter(names = "-kdeMaxBinningError")
+	double kdeMaxBinningError = 0;
+
 	@Parameter(names = "-kdeKernelFunction")
 	KdeKernelFunction kdeKernelFunctionQualifier = KdeKernelFunction.ESTIMATE;
 
@@ -37,6 +40,9 @@ public class PdttaFactory implements PdfaDefaultFactory, TptaDefaultFactory {
 	@Parameter(names = "-mcPointsToStore")
 	int mcPointsToStore = 10000;
 
+	@Parameter(names = "-mcMaxTableError")
+	double mcMaxTableError = 0;
+
 	@Parameter(names = "-tauEstimation")
 	TauEstimation tauEstimation = TauEstimation.DENSITY;
 
@@ -64,6 +70,11 @@ public class PdttaFactory implements PdfaDefaultFactory, TptaDefaultFactory {
 		return kdeBandwidth;
 	}
 
+	@Override
+	public double getKdeMaxBinningError() {
+		return kdeMaxBinningError;
+	}
+
 	@Override
 	public KdeKernelFunction getKdeFunctionQualifier() {
 		return kdeKernelFunctionQualifier;
@@ -79,6 +90,11 @@ public class PdttaFactory implements PdfaDefaultFactory, TptaDefaultFactory {
 		return mcPointsToStore;
 	}
 
+	@Override
+	public double getMcMaxTableError() {
+		return mcMaxTableError;
+	}
+
 	@Override
 	public TauEstimation getTauEstimation() {
 		return tauEstimation;
@@ -109,7 +125,7 @@ public class PdttaFactory implements PdfaDefaultFactory, TptaDefaultFactory {
 	@Override
 	public PdttaLearner create() {
 		final PdfaLearner pdfaLearner = new AlergiaRedBlue(getMergeAlpha(), isRecursiveMergeTest(), getMergeMethod(), getMergeT0());
-		final PdttaLearner learner = new PdttaLearner(pdfaLearner, getKernelFunction(), getBandwidth(), getTauEstimator());
+		final PdttaLearner learner = new PdttaLearner(pdfaLearner, getKernelFunction(), getBandwidth(), getKdeMaxBinningError(), getTauEstimator());
 		return learner;
 	}
 }
@@ -51,10 +51,14 @@ public interface TptaDefaultFactory extends LearnerFactory {
 
 	boolean getKdeBandwidthEstimateValue();
 
+	double getKdeMaxBinningError();
+
 	int getMcNumberOfSteps();
 
 	int getMcPointsToStore();
 
+	double getMcMaxTableError();
+
 	TauEstimation getTauEstimation();
 	default double getBandwidth() {
 		double newKdeBandwidth = getKdeBandwidthValue();
@@ -69,7 +73,7 @@ public interface TptaDefaultFactory extends LearnerFactory {
 		if (getTauEstimation() == TauEstimation.DENSITY) {
 			tauEstimator = new IdentityEstimator();
 		} else if (getTauEstimation() == TauEstimation.MONTE_CARLO) {
-			tauEstimator = new MonteCarloEstimator(getMcNumberOfSteps(), getMcPointsToStore());
+			tauEstimator = new MonteCarloEstimator(getMcNumberOfSteps(), getMcPointsToStore(), getMcMaxTableError());
 		} else {
 			tauEstimator = null;
 		}
@@ -78,7 +82,7 @@ public interface TptaDefaultFactory extends LearnerFactory {
 
 	@Override
 	default public ProbabilisticModelLearner create() {
-		return new TauPtaLearner(getKernelFunction(), getBandwidth(), getTauEstimator());
+		return new TauPtaLearner(getKernelFunction(), getBandwidth(), getKdeMaxBinningError(), getTauEstimator());
 	}
 
 }
@@ -22,6 +22,9 @@ public class TptaFactory implements TptaDefaultFactory {
 	@Parameter(names = "-kdeBandwidthEstimate", arity = 1)
 	boolean kdeBandwidthEstimate = true;
 
+	@Parameter(names = "-kdeMaxBinningError")
+	double kdeMaxBinningError = 0;
+
 	@Parameter(names = "-kdeKernelFunction")
 	KdeKernelFunction kdeKernelFunctionQualifier = KdeKernelFunction.ESTIMATE;
 
@@ -31,6 +34,9 @@ public class TptaFactory implements TptaDefaultFactory {
 	@Parameter(names = "-mcPointsToStore")
 	int mcPointsToStore = 10000;
 
+	@Parameter(names = "-mcMaxTableError")
+	double mcMaxTableError = 0;
+
 	@Parameter(names = "-tauEstimation")
 	TauEstimation tauEstimation = TauEstimation.DENSITY;
 
@@ -44,6 +50,11 @@ public class TptaFactory implements TptaDefaultFactory {
 		return kdeBandwidth;
 	}
 
+	@Override
+	public double getKdeMaxBinningError() {
+		return kdeMaxBinningError;
+	}
+
 	@Override
 	public KdeKernelFunction getKdeFunctionQualifier() {
 		return kdeKernelFunctionQualifier;
@@ -59,6 +70,11 @@ public class TptaFactory implements TptaDefaultFactory {
 		return mcPointsToStore;
 	}
 
+	@Override
+	public double getMcMaxTableError() {
+		return mcMaxTableError;
+	}
+
 	@Override
 	public TauEstimation getTauEstimation() {
 		return tauEstimation;
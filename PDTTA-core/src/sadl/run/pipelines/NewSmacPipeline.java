@@ -111,6 +111,9 @@ public class NewSmacPipeline implements Serializable {
 	@Parameter(names = "-kdeBandwidth")
 	double kdeBandwidth;
 
+	@Parameter(names = "-kdeMaxBinningError")
+	double kdeMaxBinningError = 0;
+
 	@Parameter(names = "-kdeKernelFunction")
 	KdeKernelFunction kdeKernelFunctionQualifier;
 	KernelFunction kdeKernelFunction;
@@ -124,6 +127,9 @@ public class NewSmacPipeline implements Serializable {
 	@Parameter(names = "-mcPointsToStore")
 	int mcPointsToStore = 10000;
 
+	@Parameter(names = "-mcMaxTableError")
+	double mcMaxTableError = 0;
+
 	// Detector parameters
 	@Parameter(names = "-aggregateSublists", arity = 1)
 	private final boolean aggregateSublists = false;
@@ -282,13 +288,13 @@ public class NewSmacPipeline implements Serializable {
 		if (tauEstimation == TauEstimation.DENSITY) {
 			tauEstimator = new IdentityEstimator();
 		} else if (tauEstimation == TauEstimation.MONTE_CARLO) {
-			tauEstimator = new MonteCarloEstimator(mcNumberOfSteps, mcPointsToStore);
+			tauEstimator = new MonteCarloEstimator(mcNumberOfSteps, mcPointsToStore, mcMaxTableError);
 		} else {
 			tauEstimator = null;
 		}
 
-		final ProbabilisticModelLearner learner = new PdttaLearner(mergeAlpha, recursiveMergeTest, kdeKernelFunction, kdeBandwidth, mergeTest, smoothingPrior, mergeT0,
-				tauEstimator);
+		final ProbabilisticModelLearner learner = new PdttaLearner(mergeAlpha, recursiveMergeTest, kdeKernelFunction, kdeBandwidth, kdeMaxBinningError, mergeTest,
+				smoothingPrior, mergeT0, tauEstimator);
 		final AnomalyDetection detection = new AnomalyDetection(anomalyDetector, learner);
 		final ExperimentResult result = detection.trainTest(dataString);
 		System.out.println("Result for SMAC: SUCCESS, 0, 0, " + (1 - result.getFMeasure()) + ", 0");
@@ -22,24 +22,63 @@ import org.slf4j.LoggerFactory;
 
 import jsat.distributions.ContinuousDistribution;
 import sadl.integration.MonteCarloIntegration;
+import sadl.integration.TauLookupTable;
 import sadl.interfaces.TauEstimator;
 import sadl.utils.Settings;
 
+/**
+ * Estimates tau with a {@link MonteCarloIntegration} for every distribution. If a maximal table error is given, the integrals are read from an
+ * interpolated {@link TauLookupTable} instead of searching the Monte Carlo points for every time value.
+ *
+ * @author Timo Klerx
+ *
+ */
 public class MonteCarloEstimator implements TauEstimator, Serializable {
 	private static Logger logger = LoggerFactory.getLogger(MonteCarloEstimator.class);
 
+	/**
+	 * A maximal table error that keeps the lookup tables small while the error stays far below the sampling error of the Monte Carlo points. The tables are
+	 * not used by default because they change the results, so they have to be switched on with this value (or another one).
+	 */
+	public static final double SUGGESTED_MAX_TABLE_ERROR = 0.005;
+
 	private static final long serialVersionUID = -4398919127157832777L;
 	Map<ContinuousDistribution, MonteCarloIntegration> mcs = new ConcurrentHashMap<>();
+	// derived from mcs, so not part of equals and hashCode. is null for estimators that were serialized before the tables existed
+	Map<ContinuousDistribution, TauLookupTable> tables = new ConcurrentHashMap<>();
 	int pointsToStore, numberOfSteps;
+	double maxTableError;
 
 	public MonteCarloEstimator(int numberOfSteps, int pointsToStore) {
+		this(numberOfSteps, pointsToStore, 0);
+	}
+
+	/**
+	 * 
+	 * @param numberOfSteps
+	 *            the number of steps for finding the extreme values of a distribution
+	 * @param pointsToStore
+	 *            the number of Monte Carlo points for every distribution
+	 * @param maxTableError
+	 *            the largest allowed difference between the lookup table of a distribution and {@link MonteCarloIntegration#integrate(double)} (see
+	 *            {@link TauLookupTable#create(MonteCarloIntegration, double)}). If not positive, no tables are used and every integral is computed with
+	 *            {@link MonteCarloIntegration#integrate(double)}
+	 */
+	public MonteCarloEstimator(int numberOfSteps, int pointsToStore, double maxTableError) {
 		super();
 		this.pointsToStore = pointsToStore;
 		this.numberOfSteps = numberOfSteps;
+		this.maxTableError = maxTableError;
 	}
 
 	@Override
 	public double estimateTau(ContinuousDistribution d, double timeValue) {
+		if (tables != null) {
+			final TauLookupTable table = tables.get(d);
+			if (table != null) {
+				return table.lookup(d.pdf(timeValue));
+			}
+		}
 		final MonteCarloIntegration mc = mcs.get(d);
 		final double result = mc.integrate(d.pdf(timeValue));
 		return result;
@@ -54,6 +93,9 @@ public class MonteCarloEstimator implements TauEstimator, Serializable {
 		}
 		final Consumer<? super Entry<ContinuousDistribution, MonteCarloIntegration>> f = e -> {
 			e.getValue().preprocess(e.getKey(), numberOfSteps);
+			if (maxTableError > 0 && tables != null) {
+				tables.put(e.getKey(), TauLookupTable.create(e.getValue(), maxTableError));
+			}
 		};
 		if (Settings.isParallel()) {
 			mcs.entrySet().parallelStream().forEach(f);
@@ -69,6 +111,9 @@ public class MonteCarloEstimator implements TauEstimator, Serializable {
 		result = prime * result + ((mcs == null) ? 0 : mcs.hashCode());
 		result = prime * result + numberOfSteps;
 		result = prime * result + pointsToStore;
+		long temp;
+		temp = Double.doubleToLongBits(maxTableError);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
 		return result;
 	}
 
@@ -97,6 +142,9 @@ public class MonteCarloEstimator implements TauEstimator, Serializable {
 		if (pointsToStore != other.pointsToStore) {
 			return false;
 		}
+		if (Double.doubleToLongBits(maxTableError) != Double.doubleToLongBits(other.maxTableError)) {
+			return false;
+		}
 		return true;
 	}
 
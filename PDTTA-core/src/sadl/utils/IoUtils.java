@@ -12,15 +12,22 @@ package sadl.utils;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.PipedReader;
-import java.io.PipedWriter;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -32,12 +39,15 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
@@ -50,8 +60,9 @@ import com.thoughtworks.xstream.security.NoTypePermission;
 import com.thoughtworks.xstream.security.NullPermission;
 import com.thoughtworks.xstream.security.PrimitiveTypePermission;
 
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
 import sadl.input.TimedInput;
-import sadl.run.datagenerators.SmacDataGenerator;
 import sadl.run.datagenerators.Temp;
 
 /**
@@ -62,6 +73,9 @@ import sadl.run.datagenerators.Temp;
 public class IoUtils {
 	private static Logger logger = LoggerFactory.getLogger(IoUtils.class);
 
+	public static final String GZIP_EXTENSION = ".gz";
+	private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
 	public static void deleteFiles(String[] strings) throws IOException {
 		final Path[] paths = new Path[strings.length];
 		for (int i = 0; i < strings.length; i++) {
@@ -192,8 +206,48 @@ public class IoUtils {
 		});
 	}
 
+	/**
+	 * States whether the given file is compressed with gzip. This is the case if the file name ends with {@value #GZIP_EXTENSION} or if the file starts
+	 * with the gzip magic bytes.
+	 */
+	public static boolean isGzipFile(Path file) throws IOException {
+		if (file.getFileName() != null && file.getFileName().toString().toLowerCase().endsWith(GZIP_EXTENSION)) {
+			return true;
+		}
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		try (InputStream in = Files.newInputStream(file)) {
+			final int first = in.read();
+			final int second = in.read();
+			return first >= 0 && second >= 0 && ((second << 8) | first) == GZIPInputStream.GZIP_MAGIC;
+		}
+	}
+
+	/**
+	 * Opens a UTF-8 encoded text file for reading. Files compressed with gzip (see {@link #isGzipFile(Path)}) are decompressed while reading.
+	 */
+	public static BufferedReader newBufferedReader(Path file) throws IOException {
+		if (isGzipFile(file)) {
+			final InputStream in = new GZIPInputStream(Files.newInputStream(file), GZIP_BUFFER_SIZE);
+			return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()));
+		}
+		return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Opens a UTF-8 encoded text file for writing. If the file name ends with {@value #GZIP_EXTENSION}, the file is compressed with gzip while writing.
+	 */
+	public static BufferedWriter newBufferedWriter(Path file) throws IOException {
+		if (file.getFileName() != null && file.getFileName().toString().toLowerCase().endsWith(GZIP_EXTENSION)) {
+			final OutputStream out = new GZIPOutputStream(Files.newOutputStream(file), GZIP_BUFFER_SIZE);
+			return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8.newEncoder()));
+		}
+		return Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+	}
+
 	public static void writeTrainTestFile(Path trainTestFile, TimedInput trainSet, TimedInput testSet) throws IOException {
-		try (BufferedWriter bw = Files.newBufferedWriter(trainTestFile, StandardCharsets.UTF_8)) {
+		try (BufferedWriter bw = newBufferedWriter(trainTestFile)) {
 			trainSet.toFile(bw, true);
 			bw.write('\n');
 			bw.write(Temp.TRAIN_TEST_SEP);
@@ -202,43 +256,70 @@ public class IoUtils {
 		}
 	}
 
+	/**
+	 * Writes the train and the test set one after another in binary format (see {@link TimedInput#toBinaryFile(OutputStream)}). The file can be read with
+	 * {@link #readTrainTestFile(Path)}.
+	 */
+	public static void writeBinaryTrainTestFile(Path trainTestFile, TimedInput trainSet, TimedInput testSet) throws IOException {
+		try (OutputStream out = Files.newOutputStream(trainTestFile)) {
+			trainSet.toBinaryFile(out);
+			testSet.toBinaryFile(out);
+		}
+	}
+
 	public static Pair<TimedInput, TimedInput> readTrainTestFile(Path trainTestFile) {
 		return readTrainTestFile(trainTestFile, false);
 	}
 
+	/**
+	 * Reads a train and a test set from the given file. Text files are split at {@link Temp#TRAIN_TEST_SEP} and both parts are parsed with
+	 * the given function. Files in binary format (see {@link #writeBinaryTrainTestFile(Path, TimedInput, TimedInput)}) are read directly; the function
+	 * is not used for them.
+	 */
 	public static Pair<TimedInput, TimedInput> readTrainTestFile(Path trainTestFile, Function<Reader, TimedInput> f) {
-		try (BufferedReader br = Files.newBufferedReader(trainTestFile);
-				PipedWriter trainWriter = new PipedWriter();
-				PipedReader trainReader = new PipedReader(trainWriter);
-				PipedWriter testWriter = new PipedWriter();
-				PipedReader testReader = new PipedReader(testWriter)) {
-			String line = "";
-			final ExecutorService ex = Executors.newFixedThreadPool(2);
-			final Future<TimedInput> trainWorker = ex.submit(() -> f.apply(trainReader));
-			final Future<TimedInput> testWorker = ex.submit(() -> f.apply(testReader));
-			ex.shutdown();
-			boolean writeTrain = true;
-			while ((line = br.readLine()) != null) {
-				if (line.startsWith(SmacDataGenerator.TRAIN_TEST_SEP)) {
-					writeTrain = false;
-					trainWriter.close();
-					continue;
+		try {
+			if (TimedInput.isBinaryFile(trainTestFile)) {
+				final List<TimedInput> blocks = TimedInput.parseBinaryBlocks(trainTestFile);
+				if (blocks.size() != 2) {
+					throw new IOException("The provided binary file " + trainTestFile + " contains " + blocks.size() + " instead of 2 sets of timed sequences");
 				}
-				if (writeTrain) {
-					trainWriter.write(line);
-					trainWriter.write('\n');
-				} else {
-					testWriter.write(line);
-					testWriter.write('\n');
+				return Pair.of(blocks.get(0), blocks.get(1));
+			}
+		} catch (final IOException e) {
+			logger.error("Unexpected exception!", e);
+			return null;
+		}
+		try {
+			if (isGzipFile(trainTestFile)) {
+				return readCompressedTrainTestFile(trainTestFile, f);
+			}
+		} catch (final IOException e) {
+			logger.error("Unexpected exception!", e);
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(trainTestFile, StandardOpenOption.READ)) {
+			final MappedFile file = new MappedFile(channel);
+			// lines starting with the separator are removed; the first one ends the train set
+			final TLongList separatorLines = findLinesStartingWith(file, Temp.TRAIN_TEST_SEP.getBytes(StandardCharsets.UTF_8));
+			if (separatorLines.isEmpty()) {
+				throw new IOException("The provided file " + trainTestFile + " does not contain the separator " + Temp.TRAIN_TEST_SEP);
+			}
+			final List<InputStream> testParts = new ArrayList<>();
+			for (int i = 1; i < separatorLines.size(); i += 2) {
+				final long end = i + 1 < separatorLines.size() ? separatorLines.get(i + 1) : file.size();
+				testParts.add(file.newInputStream(separatorLines.get(i), end));
+				if (end > separatorLines.get(i) && file.get(end - 1) == '\r') {
+					// the line must not be joined with a '\n' at the beginning of the next part
+					testParts.add(new ByteArrayInputStream(new byte[] { '\n' }));
 				}
 			}
-			testWriter.close();
+			final Reader trainReader = newReader(file.newInputStream(0, separatorLines.get(0)));
+			final Reader testReader = newReader(new SequenceInputStream(Collections.enumeration(testParts)));
+			// both halves are parsed concurrently
+			final ExecutorService ex = Settings.isParallel() ? Executors.newFixedThreadPool(2) : Executors.newSingleThreadExecutor();
+			final Future<TimedInput> trainWorker = ex.submit(() -> f.apply(trainReader));
+			final Future<TimedInput> testWorker = ex.submit(() -> f.apply(testReader));
 			ex.shutdown();
-			if (writeTrain) {
-				trainWriter.close();
-				ex.shutdownNow();
-				throw new IOException("The provided file " + trainTestFile + " does not contain the separator " + SmacDataGenerator.TRAIN_TEST_SEP);
-			}
 			final Pair<TimedInput, TimedInput> result = Pair.of(trainWorker.get(), testWorker.get());
 			return result;
 		} catch (final IOException | InterruptedException | ExecutionException e) {
@@ -247,6 +328,175 @@ public class IoUtils {
 		return null;
 	}
 
+	/**
+	 * Compressed files cannot be mapped, so the train set is parsed from the decompressed stream until the separator and then the test set is parsed from
+	 * the rest of the stream.
+	 */
+	private static Pair<TimedInput, TimedInput> readCompressedTrainTestFile(Path trainTestFile, Function<Reader, TimedInput> f) throws IOException {
+		try (BufferedReader br = newBufferedReader(trainTestFile)) {
+			final SeparatedReader trainReader = new SeparatedReader(br, Temp.TRAIN_TEST_SEP, true);
+			final TimedInput train = f.apply(trainReader);
+			if (!trainReader.separatorFound) {
+				throw new IOException("The provided file " + trainTestFile + " does not contain the separator " + Temp.TRAIN_TEST_SEP);
+			}
+			final TimedInput test = f.apply(new SeparatedReader(br, Temp.TRAIN_TEST_SEP, false));
+			return Pair.of(train, test);
+		} catch (final RuntimeException e) {
+			logger.error("Unexpected exception!", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Passes the lines of a {@link BufferedReader} through and ends at the first line that starts with the separator or drops all such lines. Closing
+	 * this reader does not close the underlying reader.
+	 */
+	private static final class SeparatedReader extends Reader {
+		private final BufferedReader in;
+		private final String separator;
+		private final boolean stopAtSeparator;
+		private String line = "";
+		private int pos = 1;
+		private boolean separatorFound = false;
+
+		SeparatedReader(BufferedReader in, String separator, boolean stopAtSeparator) {
+			this.in = in;
+			this.separator = separator;
+			this.stopAtSeparator = stopAtSeparator;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			// the current line is followed by a '\n' at position line.length()
+			while (line != null && pos > line.length()) {
+				line = in.readLine();
+				pos = 0;
+				if (line != null && line.startsWith(separator)) {
+					separatorFound = true;
+					if (stopAtSeparator) {
+						line = null;
+					} else {
+						pos = line.length() + 1;
+					}
+				}
+			}
+			if (line == null) {
+				return -1;
+			}
+			final int n = Math.min(len, line.length() - pos);
+			line.getChars(pos, pos + n, cbuf, off);
+			pos += n;
+			if (n < len) {
+				cbuf[off + n] = '\n';
+				pos++;
+				return n + 1;
+			}
+			return n;
+		}
+
+		@Override
+		public void close() {
+			// the underlying reader is closed by the caller
+		}
+	}
+
+	private static Reader newReader(InputStream in) {
+		return new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder());
+	}
+
+	/**
+	 * Finds the lines that start with the given prefix. Lines are terminated like in {@link BufferedReader#readLine()}.
+	 * 
+	 * @return the start and the end (including the line terminator) of each line that starts with the prefix
+	 */
+	private static TLongList findLinesStartingWith(MappedFile file, byte[] prefix) {
+		final TLongList result = new TLongArrayList();
+		final long size = file.size();
+		long pos = 0;
+		while (pos < size) {
+			final long lineStart = pos;
+			boolean matches = lineStart + prefix.length <= size;
+			for (int i = 0; matches && i < prefix.length; i++) {
+				matches = file.get(lineStart + i) == prefix[i];
+			}
+			while (pos < size && file.get(pos) != '\n' && file.get(pos) != '\r') {
+				pos++;
+			}
+			if (pos < size) {
+				if (file.get(pos) == '\r' && pos + 1 < size && file.get(pos + 1) == '\n') {
+					pos++;
+				}
+				pos++;
+			}
+			if (matches) {
+				result.add(lineStart);
+				result.add(pos);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A read only file that is mapped into memory in windows of at most 1 GB.
+	 */
+	private static final class MappedFile {
+		private static final int WINDOW_BITS = 30;
+		private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+
+		private final MappedByteBuffer[] windows;
+		private final long size;
+
+		MappedFile(FileChannel channel) throws IOException {
+			size = channel.size();
+			windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_BITS)];
+			for (int i = 0; i < windows.length; i++) {
+				final long start = (long) i << WINDOW_BITS;
+				windows[i] = channel.map(MapMode.READ_ONLY, start, Math.min(size - start, 1L << WINDOW_BITS));
+			}
+		}
+
+		long size() {
+			return size;
+		}
+
+		byte get(long pos) {
+			return windows[(int) (pos >>> WINDOW_BITS)].get((int) (pos & WINDOW_MASK));
+		}
+
+		/**
+		 * Returns a stream of the bytes from {@code start} (inclusive) to {@code end} (exclusive).
+		 */
+		InputStream newInputStream(long start, long end) {
+			return new InputStream() {
+				private long pos = start;
+
+				@Override
+				public int read() {
+					return pos < end ? get(pos++) & 0xFF : -1;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					if (len == 0) {
+						return 0;
+					}
+					if (pos >= end) {
+						return -1;
+					}
+					final ByteBuffer window = windows[(int) (pos >>> WINDOW_BITS)].duplicate();
+					window.position((int) (pos & WINDOW_MASK));
+					final int n = (int) Math.min(Math.min(len, window.remaining()), end - pos);
+					window.get(b, off, n);
+					pos += n;
+					return n;
+				}
+			};
+		}
+	}
+
 	public static void serialize(Object o, Path path) throws IOException {
 		try (OutputStream fileOut = Files.newOutputStream(path); ObjectOutputStream out = new ObjectOutputStream(fileOut)) {
 			out.writeObject(o);
@@ -25,6 +25,8 @@ public class MasterSeed {
 	private static long seed = 7222525536004714236L;
 	private static Random r = new Random(seed);
 	private static boolean wasSet = false;
+	// increment of the SplitMix64 generator
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
 
 	public static void setSeed(long seed) {
 		MasterSeed.seed = seed;
@@ -43,6 +45,27 @@ public class MasterSeed {
 		return new Random(r.nextLong());
 	}
 
+	/**
+	 * Creates the {@link Random} for one item (e.g., one word) of a task whose items are processed in parallel. The random numbers only depend on the base
+	 * seed, which should be drawn once per task with {@link #nextLong()}, and on the index of the item. So the result does not depend on the number of
+	 * threads or on the order in which the items are processed.
+	 * 
+	 * @param baseSeed
+	 *            the seed of the task
+	 * @param index
+	 *            the index of the item
+	 * @return the {@link Random} of the item
+	 */
+	public static Random derive(long baseSeed, long index) {
+		return new Random(mix(baseSeed + (index + 1) * GOLDEN_GAMMA));
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
 	public static void reset(){
 		r = new Random(seed);
 	}
@@ -0,0 +1,119 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package jsat.distributions.empirical;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import jsat.distributions.empirical.kernelfunc.EpanechnikovKF;
+import jsat.distributions.empirical.kernelfunc.GaussKF;
+import jsat.distributions.empirical.kernelfunc.KernelFunction;
+import jsat.distributions.empirical.kernelfunc.TriweightKF;
+import jsat.distributions.empirical.kernelfunc.UniformKF;
+import jsat.linear.DenseVector;
+
+public class MyKernelDensityEstimatorTest {
+
+	@Test
+	public void testBinned() {
+		final Random r = new Random(1);
+		final double[] delays = new double[10000];
+		for (int i = 0; i < delays.length; i++) {
+			delays[i] = i % 3 == 0 ? 50 + 5 * r.nextGaussian() : Math.round(20 + 2 * r.nextGaussian());
+		}
+		final double maxError = 0.001;
+		for (final KernelFunction k : new KernelFunction[] { GaussKF.getInstance(), EpanechnikovKF.getInstance(), UniformKF.getInstance() }) {
+			final MyKernelDensityEstimator exact = new MyKernelDensityEstimator(new DenseVector(delays), k);
+			final MyKernelDensityEstimator binned = exact.clone();
+			binned.setMaxBinningError(maxError);
+			assertEquals(exact, binned);
+			double maxPdf = 0;
+			for (double x = 0; x < 80; x += 0.01) {
+				maxPdf = Math.max(maxPdf, exact.pdf(x));
+			}
+			// the error is only measured at the midpoints of the grid cells, next to a jump of the pdf it can be up to twice as large (see setMaxBinningError)
+			for (double x = -10; x < 90; x += 0.01) {
+				assertEquals("Error for " + k + " at x=" + x, exact.pdf(x), binned.pdf(x), 2 * maxError * maxPdf);
+				assertEquals("Error for " + k + " at x=" + x, exact.cdf(x), binned.cdf(x), 2 * maxError);
+			}
+			binned.setMaxBinningError(0);
+			assertEquals(exact.pdf(20.5), binned.pdf(20.5), 0);
+		}
+	}
+
+	@Test
+	public void testRepeatedValues() {
+		final Random r = new Random(1);
+		final double[] delays = new double[10000];
+		for (int i = 0; i < delays.length; i++) {
+			delays[i] = Math.round(i % 3 == 0 ? 50 + 5 * r.nextGaussian() : 20 + 2 * r.nextGaussian());
+		}
+		final DenseVector v = new DenseVector(delays);
+		final double h = MyKernelDensityEstimator.BandwithGuassEstimate(v);
+		for (final KernelFunction k : new KernelFunction[] { GaussKF.getInstance(), EpanechnikovKF.getInstance(), UniformKF.getInstance() }) {
+			final MyKernelDensityEstimator all = new MyKernelDensityEstimator(v, k, h);
+			final MyKernelDensityEstimator distinct = MyKernelDensityEstimator.withRepeatedValues(v, k, h);
+			assertEquals(all, distinct);
+			assertEquals(distinct, all);
+			assertEquals(all.hashCode(), distinct.hashCode());
+			assertEquals(all.mean(), distinct.mean(), 0);
+			assertEquals(all.variance(), distinct.variance(), 0);
+			for (double x = -10; x < 90; x += 0.01) {
+				assertEquals("Error for " + k + " at x=" + x, all.pdf(x), distinct.pdf(x), 1e-12);
+				assertEquals("Error for " + k + " at x=" + x, all.cdf(x), distinct.cdf(x), 1e-12);
+			}
+			for (double p = 0; p < 1; p += 0.001) {
+				assertEquals("Error for " + k + " at p=" + p, all.invCdf(p), distinct.invCdf(p), 0);
+			}
+		}
+		// distinct values are stored as before
+		final MyKernelDensityEstimator unique = MyKernelDensityEstimator.withRepeatedValues(new DenseVector(new double[] { 1, 2, 3 }), GaussKF.getInstance(),
+				1);
+		assertEquals(new MyKernelDensityEstimator(new DenseVector(new double[] { 1, 2, 3 }), GaussKF.getInstance(), 1), unique);
+	}
+
+	@Test
+	public void testSampling() {
+		final Random r = new Random(1);
+		final double[] delays = new double[1000];
+		for (int i = 0; i < delays.length; i++) {
+			delays[i] = Math.round(i % 3 == 0 ? 50 + 5 * r.nextGaussian() : 20 + 2 * r.nextGaussian());
+		}
+		final DenseVector v = new DenseVector(delays);
+		final double h = MyKernelDensityEstimator.BandwithGuassEstimate(v);
+		for (final KernelFunction k : new KernelFunction[] { GaussKF.getInstance(), EpanechnikovKF.getInstance(), UniformKF.getInstance(),
+				TriweightKF.getInstance() }) {
+			for (final MyKernelDensityEstimator kde : new MyKernelDensityEstimator[] { new MyKernelDensityEstimator(v, k, h),
+					MyKernelDensityEstimator.withRepeatedValues(v, k, h) }) {
+				final double[] samples = kde.sample(100000, new Random(2));
+				assertEquals(Arrays.toString(samples), Arrays.toString(kde.sample(100000, new Random(2))));
+				Arrays.sort(samples);
+				// Kolmogorov-Smirnov distance between the samples and the estimated density
+				double distance = 0;
+				for (int i = 0; i < samples.length; i++) {
+					final double cdf = kde.cdf(samples[i]);
+					distance = Math.max(distance, Math.max(Math.abs(cdf - i / (double) samples.length), Math.abs(cdf - (i + 1) / (double) samples.length)));
+				}
+				assertEquals("Samples do not fit for " + k, 0, distance, 0.01);
+			}
+			final MyKernelDensityEstimator binned = new MyKernelDensityEstimator(v, k, h);
+			binned.setMaxBinningError(0.001);
+			for (double p = 0.001; p < 1; p += 0.001) {
+				assertEquals("Error for " + k + " at p=" + p, p, binned.cdf(binned.invCdf(p)), 1e-9);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.detectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+import sadl.constants.ProbabilityAggregationMethod;
+
+public class AnomalyDetectorTest {
+
+	@Test
+	public void testAggregatePrefixes() {
+		final Random r = new Random(1);
+		for (int n = 0; n < 200; n++) {
+			final TDoubleList list = new TDoubleArrayList();
+			final int length = r.nextInt(50);
+			for (int i = 0; i < length; i++) {
+				// some probabilities are zero or one like for unknown events or final states
+				list.add(r.nextInt(10) == 0 ? r.nextInt(2) : r.nextDouble());
+			}
+			for (final ProbabilityAggregationMethod aggType : ProbabilityAggregationMethod.values()) {
+				final TDoubleList prefixes = AnomalyDetector.aggregatePrefixes(list, aggType);
+				assertEquals(list.size(), prefixes.size());
+				for (int i = 0; i < list.size(); i++) {
+					final double expected = AnomalyDetector.aggregate(list.subList(0, i + 1), aggType);
+					assertEquals("Prefix " + i + " differs for " + aggType, expected, prefixes.get(i), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNegativeProbability() {
+		final TDoubleList list = new TDoubleArrayList(new double[] { 0.5, -0.5, 0.5 });
+		try {
+			AnomalyDetector.aggregatePrefixes(list, ProbabilityAggregationMethod.NORMALIZED_MULTIPLY);
+		} catch (final IllegalStateException e) {
+			assertTrue(e.getMessage().contains("index 1"));
+			return;
+		}
+		throw new AssertionError("A negative probability must not be aggregated");
+	}
+
+}
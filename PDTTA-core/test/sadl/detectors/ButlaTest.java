@@ -11,6 +11,7 @@
 package sadl.detectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -40,7 +41,9 @@ import sadl.detectors.featureCreators.FeatureCreator;
 import sadl.detectors.featureCreators.UberFeatureCreator;
 import sadl.experiments.ExperimentResult;
 import sadl.input.TimedInput;
+import sadl.input.TimedWord;
 import sadl.modellearner.ButlaPdtaLearner;
+import sadl.models.pdta.PDTA;
 import sadl.oneclassclassifier.NumericClassifier;
 import sadl.oneclassclassifier.ThresholdClassifier;
 import sadl.oneclassclassifier.clustering.XMeansClassifier;
@@ -246,4 +249,35 @@ public class ButlaTest {
 		logger.info("Finished Threshold Original KDE test.");
 	}
 
+	@Test
+	public void testAnodaSession() throws URISyntaxException {
+		logger.info("Starting Anoda session test...");
+		final ButlaPdtaLearner learner = new ButlaPdtaLearner(10000, 0.05, TransitionsType.Outgoing, 0.05, 0.05, PTAOrdering.TopDown,
+				EventsCreationStrategy.SplitEvents, KDEFormelVariant.OriginalKDE, IntervalCreationStrategy.extendInterval);
+		final Path p = Paths.get(this.getClass().getResource("/pdtta/smac_mix_type1.txt").toURI());
+		final Pair<TimedInput, TimedInput> trainTest = IoUtils.readTrainTestFile(p);
+		final PDTA model = learner.train(trainTest.getKey());
+		final TimedInput test = trainTest.getValue();
+		final AnodaDetector anoda = new AnodaDetector();
+		anoda.setModel(model);
+		int earlyAnomalies = 0;
+		for (final TimedWord word : test) {
+			final DetectionSession session = anoda.createSession();
+			boolean early = false;
+			for (int j = 0; j < word.length(); j++) {
+				early = session.push(word.getSymbol(j), word.getTimeValue(j));
+			}
+			final boolean expected = anoda.isAnomaly(word);
+			assertEquals(expected, session.end());
+			assertEquals(word.length(), session.length());
+			if (early) {
+				assertTrue(expected);
+				earlyAnomalies++;
+			}
+		}
+		assertTrue(earlyAnomalies > 0);
+		logger.info("{} of {} words were flagged before they ended", earlyAnomalies, test.size());
+		logger.info("Finished Anoda session test.");
+	}
+
 }
@@ -10,13 +10,20 @@
  */
 package sadl.detectors;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -32,11 +39,16 @@ import sadl.constants.TransitionsType;
 import sadl.detectors.featureCreators.AggregatedSingleFeatureCreator;
 import sadl.detectors.featureCreators.MinimalFeatureCreator;
 import sadl.detectors.threshold.AggregatedThresholdDetector;
+import sadl.detectors.threshold.FullThresholdDetector;
 import sadl.experiments.ExperimentResult;
+import sadl.input.TimedInput;
+import sadl.input.TimedWord;
 import sadl.modellearner.AlergiaRedBlue;
 import sadl.modellearner.ButlaPdtaLearner;
 import sadl.modellearner.PdttaLearner;
+import sadl.models.PDTTA;
 import sadl.oneclassclassifier.ThresholdClassifier;
+import sadl.utils.IoUtils;
 import sadl.utils.MasterSeed;
 
 @SuppressWarnings("deprecation")
@@ -184,4 +196,80 @@ public class ThresholdDetectorTest {
 
 	}
 
+	@Test
+	public void testScore() throws URISyntaxException {
+		logger.info("Starting testScore...");
+		final Path p = Paths.get(this.getClass().getResource("/pdtta/smac_mix_type1.txt").toURI());
+		final Pair<TimedInput, TimedInput> trainTest = IoUtils.readTrainTestFile(p);
+		final PDTTA model = new PdttaLearner(new AlergiaRedBlue(0.05, true)).train(trainTest.getKey());
+		final TimedInput test = trainTest.getValue();
+		final AnomalyDetector detector = new AggregatedThresholdDetector(ProbabilityAggregationMethod.NORMALIZED_MULTIPLY, Math.exp(-5), Math.exp(-8),
+				false);
+		detector.setModel(model);
+		final boolean[] expected = detector.areAnomalies(test);
+		final List<double[]> expectedScores = detector.computeAggregatedLikelihoods(test);
+		final int from = 123;
+		final int to = test.size() - 45;
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (final ExecutorService e : new ExecutorService[] { null, executor }) {
+				final AnomalyScores scores = detector.score(test, e);
+				assertEquals(test.size(), scores.size());
+				assertArrayEquals(expected, scores.getAnomalies());
+				for (int i = 0; i < test.size(); i++) {
+					assertEquals(expectedScores.get(i)[0], scores.getEventScores()[i], 0);
+					assertEquals(expectedScores.get(i)[1], scores.getTimeScores()[i], 0);
+				}
+				// a range that does not start at a chunk border
+				final AnomalyScores range = detector.score(test, from, to, e);
+				assertEquals(from, range.getFrom());
+				assertArrayEquals(Arrays.copyOfRange(expected, from, to), range.getAnomalies());
+				assertArrayEquals(Arrays.copyOfRange(scores.getEventScores(), from, to), range.getEventScores(), 0);
+				assertArrayEquals(Arrays.copyOfRange(scores.getTimeScores(), from, to), range.getTimeScores(), 0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		logger.info("Finished testScore.");
+	}
+
+	@Test
+	public void testSession() throws URISyntaxException {
+		logger.info("Starting testSession...");
+		final Path p = Paths.get(this.getClass().getResource("/pdtta/smac_mix_type1.txt").toURI());
+		final Pair<TimedInput, TimedInput> trainTest = IoUtils.readTrainTestFile(p);
+		final PDTTA model = new PdttaLearner(new AlergiaRedBlue(0.05, true)).train(trainTest.getKey());
+		final TimedInput test = trainTest.getValue();
+		final AnomalyDetector[] detectors = new AnomalyDetector[] {
+				new AggregatedThresholdDetector(ProbabilityAggregationMethod.NORMALIZED_MULTIPLY, Math.exp(-5), Math.exp(-8), false),
+				new AggregatedThresholdDetector(ProbabilityAggregationMethod.NORMALIZED_MULTIPLY, Math.exp(-5), Math.exp(-8), true),
+				new FullThresholdDetector(ProbabilityAggregationMethod.NORMALIZED_MULTIPLY, Math.exp(-5), Math.exp(-8), true, 0.01, 0.001) };
+		for (final AnomalyDetector detector : detectors) {
+			detector.setModel(model);
+			final List<double[]> expectedScores = detector.computeAggregatedLikelihoods(test);
+			int earlyAnomalies = 0;
+			for (int i = 0; i < test.size(); i++) {
+				final TimedWord word = test.get(i);
+				final DetectionSession session = detector.createSession();
+				boolean early = false;
+				for (int j = 0; j < word.length(); j++) {
+					early = session.push(word.getSymbol(j), word.getTimeValue(j));
+				}
+				final boolean expected = detector.isAnomaly(word);
+				assertEquals(expected, session.end());
+				assertEquals(expected, session.isAnomaly());
+				assertEquals(word.length(), session.length());
+				assertEquals(expectedScores.get(i)[0], session.getEventScore(), 0);
+				assertEquals(expectedScores.get(i)[1], session.getTimeScore(), 0);
+				if (early) {
+					// a word is only flagged early if it is an anomaly no matter how it continues
+					assertTrue(expected);
+					earlyAnomalies++;
+				}
+			}
+			logger.info("{} of {} words were flagged before they ended", earlyAnomalies, test.size());
+		}
+		logger.info("Finished testSession.");
+	}
+
 }
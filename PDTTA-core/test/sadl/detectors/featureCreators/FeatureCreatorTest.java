@@ -0,0 +1,55 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.detectors.featureCreators;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
+import sadl.constants.ProbabilityAggregationMethod;
+
+public class FeatureCreatorTest {
+
+	@Test
+	public void testAccumulators() {
+		final FeatureCreator[] creators = new FeatureCreator[] { new MinimalFeatureCreator(), new SmallFeatureCreator(), new FullFeatureCreator(),
+				new UberFeatureCreator(), new AggregatedSingleFeatureCreator() };
+		final Random r = new Random(1);
+		for (int n = 0; n < 100; n++) {
+			final TDoubleList eventLikelihoods = new TDoubleArrayList();
+			final TDoubleList timeLikelihoods = new TDoubleArrayList();
+			final int length = 1 + r.nextInt(30);
+			for (int i = 0; i < length; i++) {
+				// some likelihoods are equal, so there are differences of zero
+				eventLikelihoods.add(r.nextInt(5) == 0 ? 0.5 : r.nextDouble());
+				timeLikelihoods.add(r.nextInt(5) == 0 ? 0.5 : r.nextDouble());
+			}
+			for (final FeatureCreator fc : creators) {
+				for (final ProbabilityAggregationMethod aggType : ProbabilityAggregationMethod.values()) {
+					final FeatureAccumulator features = fc.createAccumulator(aggType);
+					// the event and time likelihoods are aggregated separately for a single feature, which may change the last bits
+					final double delta = fc instanceof AggregatedSingleFeatureCreator ? 1e-12 : 0;
+					for (int i = 1; i <= length; i++) {
+						features.add(eventLikelihoods.get(i - 1), timeLikelihoods.get(i - 1));
+						final double[] expected = fc.createFeatures(eventLikelihoods.subList(0, i), timeLikelihoods.subList(0, i), aggType);
+						assertArrayEquals(fc.getClass().getSimpleName() + " differs for " + aggType + " at prefix " + i, expected, features.getFeatures(),
+								delta);
+					}
+				}
+			}
+		}
+	}
+
+}
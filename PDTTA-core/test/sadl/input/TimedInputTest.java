@@ -0,0 +1,337 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import sadl.constants.AnomalyInsertionType;
+import sadl.constants.ClassLabel;
+import sadl.utils.IoUtils;
+import sadl.utils.MasterSeed;
+import sadl.utils.Settings;
+
+public class TimedInputTest {
+
+	private static final String[] STANDARD = new String[] { "^\\(", "\\)$", "\\)\\s+\\(", "\\s*,\\s*", "\\s*:\\s*" };
+	private static final String[] ALT = new String[] { "^\\d+ ", "$", "\\s{2}", "\\s", "\\s*:\\s*" };
+
+	private static TimedInput parseSmall() throws URISyntaxException, IOException {
+		final Path p = Paths.get(TimedInputTest.class.getResource("/taupta/small/rti_small.txt").toURI());
+		return TimedInput.parseAlt(p, 1);
+	}
+
+	@Test
+	public void testCompact() throws URISyntaxException, IOException {
+		// the scanner already creates compact inputs, so the expanded input is parsed with the regular expressions
+		final TimedInput input = TimedInput.parseRegex(new StringReader(readResource("/taupta/small/rti_small.txt")), 1, ALT[0], ALT[1], ALT[2], ALT[3],
+				ALT[4], false);
+		final TimedInput compact = parseSmall();
+		compact.compact();
+		assertFalse(input.isCompact());
+		assertTrue(compact.isCompact());
+		assertEquals(input.size(), compact.size());
+		assertEquals(input, compact);
+		assertEquals(input.hashCode(), compact.hashCode());
+		assertEquals(input.toString(), compact.toString());
+		for (int i = 0; i < input.size(); i++) {
+			final TimedWord w = input.getWord(i);
+			final TimedWord c = compact.getWord(i);
+			assertEquals(w, c);
+			assertEquals(w.toTrebaString(), c.toTrebaString());
+			assertEquals(w.getSubWord(w.length() / 2), c.getSubWord(c.length() / 2));
+		}
+		int i = 0;
+		for (final TimedWord c : compact) {
+			assertEquals(input.getWord(i), c);
+			i++;
+		}
+		assertEquals(input.size(), i);
+
+		compact.getWord(0).setLabel(ClassLabel.ANOMALY);
+		assertEquals(ClassLabel.ANOMALY, compact.getWord(0).getLabel());
+
+		final TimedInput clone = SerializationUtils.clone(compact);
+		assertEquals(compact, clone);
+		assertEquals(compact.getWord(0), SerializationUtils.clone(compact.getWord(0)));
+
+		input.decreaseSamples(0.5);
+		compact.decreaseSamples(0.5);
+		assertEquals(input.size(), compact.size());
+		assertEquals(input.getWord(input.size() - 1), compact.getWord(compact.size() - 1));
+	}
+
+	@Test
+	public void testCompactLabel() throws URISyntaxException, IOException {
+		final TimedInput compact = parseSmall();
+		compact.compact();
+		final TimedWord w = compact.getWord(0);
+		assertFalse(w.isAnomaly());
+		w.setLabel(ClassLabel.ANOMALY);
+		assertTrue(w.isAnomaly());
+		assertTrue(compact.getWord(0).isAnomaly());
+		final TimedWord sub = w.getSubWord(w.length() / 2);
+		assertTrue(sub.isAnomaly());
+		sub.setLabel(ClassLabel.NORMAL);
+		assertFalse(sub.isAnomaly());
+		assertTrue(w.isAnomaly());
+		w.setLabel(ClassLabel.NORMAL);
+		assertFalse(w.isAnomaly());
+		assertFalse(compact.getWord(0).isAnomaly());
+	}
+
+	@Test
+	public void testScannerResources() throws URISyntaxException, IOException {
+		final String[] standardFiles = new String[] { "/pdfa/alergia_0.inp", "/pdta/my_test_1.inp", "/pdta/my_test_2.inp", "/pdta/my_test_3.inp",
+				"/pdta/my_test_4.inp", "/pdrta/test_1.inp", "/pdrta/test_2.inp", "/pdtta/smac_mix_type1.txt", "/pdtta/smac_mix_type5.txt" };
+		for (final String file : standardFiles) {
+			final String content = readResource(file);
+			compareParsers(content, STANDARD, 0, false);
+			compareParsers(content, STANDARD, 0, true);
+		}
+		final String[] altFiles = new String[] { "/taupta/small/rti_small.txt", "/taupta/medium/rti_medium.txt" };
+		for (final String file : altFiles) {
+			final String content = readResource(file);
+			compareParsers(content, ALT, 1, false);
+			compareParsers(content, ALT, 0, false);
+		}
+	}
+
+	@Test
+	public void testScannerStandard() throws IOException {
+		final String content = "(a,1) (b,2):1\n(a , 1)  (b,2) : 0\n\n(x,3)\r\n()\r(a,1):\n(a,+5) (b,-3)\n  (c,4)\t:1 \n(a-b,4)\n(,5)\n"
+				+ "(a,1)\t(b,2):1:0\n) (\n(c,3)\u2028\n(d,7)) (e,8\n \n(b,0012):01\n(f,1)";
+		compareParsers(content, STANDARD, 0, false);
+		compareParsers(content, STANDARD, 1, false);
+		compareParsers(content, STANDARD, 0, true);
+	}
+
+	@Test
+	public void testScannerAlt() throws IOException {
+		final String content = "5 3\n2 a 1  b 2:1\n1 c 3\n0\n\n2 a 1  b 2 : 0\r\n1 a\t4\n3 b 1  c 2  a 1  \n2x 1  y 2\n12\n";
+		compareParsers(content, ALT, 1, false);
+		compareParsers(content, ALT, 0, true);
+	}
+
+	@Test
+	public void testScannerErrors() throws IOException {
+		final String[] standardErrors = new String[] { "(a,1)\n(a1)", "(#,1)", "(a,x)", "(a,1) (b,)", "(a,99999999999)", "(a,1) (b,2)\n\n(%,2)", "(\uD83D\uDE00,1)" };
+		for (final String content : standardErrors) {
+			compareParsers(content, STANDARD, 0, false);
+		}
+		final String[] altErrors = new String[] { "1 1\n3 a 1   b 2  c 3", "1 1\n1 a", "1 1\n1 # 1", "1 1\n1 a 1.5" };
+		for (final String content : altErrors) {
+			compareParsers(content, ALT, 1, false);
+		}
+	}
+
+	@Test
+	public void testParallelParse() throws URISyntaxException, IOException {
+		final String standard = readResource("/pdta/my_test_9-5000.inp") + "\r\n(z,1) (y,2)\r(y,3)\r\n\r\n(a\u00e4,4):1\n(x,5)";
+		final String alt = readResource("/taupta/small/rti_small.txt") + "\r\n2 q 1  r 2\r1 s 3\n";
+		final Path file = Files.createTempFile("parallel", ".txt");
+		try {
+			Files.write(file, standard.getBytes(StandardCharsets.UTF_8));
+			for (final long chunkSize : new long[] { 1, 7, 100, 4096, Long.MAX_VALUE / 2 }) {
+				for (final int lineOffset : new int[] { 0, 1, 3 }) {
+					final TimedInput expected = TimedInput.parseRegex(new StringReader(standard), lineOffset, STANDARD[0], STANDARD[1], STANDARD[2],
+							STANDARD[3], STANDARD[4], false);
+					final TimedInput actual = new TimedInputScanner(TimedInputScanner.Format.STANDARD, false).parseParallel(file, lineOffset, chunkSize);
+					assertSameInput(expected, actual);
+				}
+			}
+			Files.write(file, alt.getBytes(StandardCharsets.UTF_8));
+			for (final long chunkSize : new long[] { 1, 7, 100, 4096 }) {
+				final TimedInput expected = TimedInput.parseRegex(new StringReader(alt), 1, ALT[0], ALT[1], ALT[2], ALT[3], ALT[4], false);
+				final TimedInput actual = new TimedInputScanner(TimedInputScanner.Format.ALT, false).parseParallel(file, 1, chunkSize);
+				assertSameInput(expected, actual);
+			}
+			assertSameInput(TimedInput.parseAlt(new StringReader(alt)), TimedInput.parseAlt(file));
+
+			// errors are reported with the line number of the whole file
+			Files.write(file, (standard + "\n(a,1) (b2)\n(c,3)\n").getBytes(StandardCharsets.UTF_8));
+			try {
+				new TimedInputScanner(TimedInputScanner.Format.STANDARD, false).parseParallel(file, 0, 10);
+				fail("Expected an IllegalArgumentException");
+			} catch (final IllegalArgumentException e) {
+				try {
+					TimedInput.parse(new StringReader(standard + "\n(a,1) (b2)\n(c,3)\n"));
+					fail("Expected an IllegalArgumentException");
+				} catch (final IllegalArgumentException expected) {
+					assertEquals(expected.getMessage(), e.getMessage());
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testBinary() throws URISyntaxException, IOException {
+		final TimedInput input = parseSmall();
+		input.getWord(1).setLabel(ClassLabel.ANOMALY);
+		final TimedInput other = TimedInput.parse(new StringReader("(b,-5) (a,2147483647) (c,0):1\n()\n(a,-2147483648)"));
+		final Path file = Files.createTempFile("binary", ".bin");
+		try {
+			assertFalse(TimedInput.isBinaryFile(file));
+			input.toBinaryFile(file);
+			assertTrue(TimedInput.isBinaryFile(file));
+			final TimedInput read = TimedInput.parseBinary(file);
+			assertSameInput(input, read);
+			assertEquals(ClassLabel.ANOMALY, read.getWord(1).getLabel());
+			assertSameInput(input, TimedInput.tryParse(file));
+
+			IoUtils.writeBinaryTrainTestFile(file, other, input);
+			final Pair<TimedInput, TimedInput> trainTest = IoUtils.readTrainTestFile(file);
+			assertSameInput(other, trainTest.getLeft());
+			assertSameInput(input, trainTest.getRight());
+			assertEquals(2, TimedInput.parseBinaryBlocks(file).size());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testLazy() throws URISyntaxException, IOException {
+		final Path standard = Paths.get(TimedInputTest.class.getResource("/pdta/my_test_9-5000.inp").toURI());
+		final Path alt = Paths.get(TimedInputTest.class.getResource("/taupta/small/rti_small.txt").toURI());
+		final TimedInput expectedStandard = TimedInput.parse(standard);
+		final TimedInput expectedAlt = TimedInput.parseAlt(alt);
+		for (final long minSplitSize : new long[] { 1, 100, Long.MAX_VALUE / 4 }) {
+			try (LazyTimedInput lazy = new LazyTimedInput(standard, TimedInputScanner.Format.STANDARD, false, 0, minSplitSize)) {
+				assertEquals(expectedStandard.getWords(), lazy.stream(true).collect(Collectors.toList()));
+				assertEquals(expectedStandard.getWords(), lazy.stream(false).collect(Collectors.toList()));
+			}
+			try (LazyTimedInput lazy = new LazyTimedInput(alt, TimedInputScanner.Format.ALT, false, 1, minSplitSize)) {
+				assertEquals(expectedAlt.getWords(), lazy.stream(true).collect(Collectors.toList()));
+			}
+		}
+		try (LazyTimedInput lazy = LazyTimedInput.parseAlt(alt)) {
+			int i = 0;
+			for (final TimedWord w : lazy) {
+				assertEquals(expectedAlt.getWord(i), w);
+				i++;
+			}
+			assertEquals(expectedAlt.size(), i);
+		}
+		assertTrue(LazyTimedInput.isLazilyParsable(standard));
+	}
+
+	@Test
+	public void testLazyCompressedAndBinary() throws URISyntaxException, IOException {
+		final TimedInput input = parseSmall();
+		final Path dir = Files.createTempDirectory("lazy");
+		final Path gzip = dir.resolve("input.txt" + IoUtils.GZIP_EXTENSION);
+		final Path binary = dir.resolve("input.bin");
+		try {
+			input.toFile(gzip, true);
+			input.toBinaryFile(binary);
+			for (final Path p : new Path[] { gzip, binary }) {
+				assertFalse(LazyTimedInput.isLazilyParsable(p));
+				try {
+					LazyTimedInput.parse(p).close();
+					fail("A compressed or binary file must not be parsed lazily");
+				} catch (final IOException e) {
+					// expected
+				}
+			}
+		} finally {
+			Files.deleteIfExists(gzip);
+			Files.deleteIfExists(binary);
+			Files.delete(dir);
+		}
+	}
+
+	private static String readResource(String file) throws URISyntaxException, IOException {
+		final Path p = Paths.get(TimedInputTest.class.getResource(file).toURI());
+		return new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testInsertRandomAnomalies() throws URISyntaxException, IOException {
+		final AnomalyInsertionType[] types = new AnomalyInsertionType[] { AnomalyInsertionType.TYPE_ONE, AnomalyInsertionType.TYPE_TWO,
+				AnomalyInsertionType.TYPE_THREE, AnomalyInsertionType.TYPE_FOUR, AnomalyInsertionType.TYPE_FIVE, AnomalyInsertionType.ALL };
+		try {
+			for (final AnomalyInsertionType type : types) {
+				Settings.setParallel(false);
+				MasterSeed.reset();
+				final TimedInput sequential = parseSmall().insertRandomAnomalies(type, 0.1);
+				Settings.setParallel(true);
+				MasterSeed.reset();
+				final TimedInput parallel = parseSmall().insertRandomAnomalies(type, 0.1);
+				assertEquals(sequential, parallel);
+				int anomalies = 0;
+				for (final TimedWord w : parallel) {
+					if (w.isAnomaly()) {
+						anomalies++;
+					}
+				}
+				assertEquals((int) (parallel.size() * 0.1), anomalies);
+			}
+		} finally {
+			Settings.setParallel(true);
+		}
+	}
+
+	private static void compareParsers(String content, String[] format, int lineOffset, boolean skipFirstElement) throws IOException {
+		TimedInput expected = null;
+		Exception expectedException = null;
+		try {
+			expected = TimedInput.parseRegex(new StringReader(content), lineOffset, format[0], format[1], format[2], format[3], format[4], skipFirstElement);
+		} catch (final IllegalArgumentException e) {
+			expectedException = e;
+		}
+		TimedInput actual = null;
+		Exception actualException = null;
+		try {
+			actual = TimedInput.parseCustom(new StringReader(content), lineOffset, format[0], format[1], format[2], format[3], format[4], skipFirstElement);
+		} catch (final IllegalArgumentException e) {
+			actualException = e;
+		}
+		if (expectedException != null) {
+			assertNotNull("Expected " + expectedException, actualException);
+			assertEquals(expectedException.getClass(), actualException.getClass());
+			assertEquals(expectedException.getMessage(), actualException.getMessage());
+			return;
+		}
+		if (actualException != null) {
+			fail("Unexpected exception " + actualException);
+		}
+		assertSameInput(expected, actual);
+	}
+
+	private static void assertSameInput(TimedInput expected, TimedInput actual) {
+		assertTrue(actual.isCompact());
+		assertEquals(expected, actual);
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getAlphSize(), actual.getAlphSize());
+		for (int i = 0; i < expected.getAlphSize(); i++) {
+			assertEquals(expected.getSymbol(i), actual.getSymbol(i));
+		}
+	}
+
+}
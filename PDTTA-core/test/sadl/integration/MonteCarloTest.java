@@ -11,15 +11,23 @@
 package sadl.integration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.junit.Test;
 
+import jsat.distributions.Beta;
 import jsat.distributions.ContinuousDistribution;
+import jsat.distributions.GaussianMixture;
 import jsat.distributions.Normal;
 import jsat.distributions.SingleValueDistribution;
 import jsat.distributions.Uniform;
+import sadl.tau_estimation.MonteCarloEstimator;
+import sadl.utils.MasterSeed;
+import sadl.utils.Settings;
 
 public class MonteCarloTest {
 
@@ -93,4 +101,57 @@ public class MonteCarloTest {
 		System.out.println("Uniform integration took " + DurationFormatUtils.formatDurationHMS(sw.getTime()));
 	}
 
+	@Test
+	public void testLookupTable() {
+		final ContinuousDistribution[] distributions = new ContinuousDistribution[] { new Normal(0, 1),
+				new GaussianMixture(new double[] { 0, 4 }, new double[] { 1, 0.25 }), new Uniform(1, 3), new SingleValueDistribution(1) };
+		for (final ContinuousDistribution d : distributions) {
+			final MonteCarloIntegration mc = new MonteCarloIntegration(100000);
+			mc.preprocess(d, 1000, -20, 20);
+			final TauLookupTable coarse = new TauLookupTable(mc, 16);
+			final TauLookupTable table = TauLookupTable.create(mc, MonteCarloEstimator.SUGGESTED_MAX_TABLE_ERROR);
+			assertTrue(table.getMaxError() <= MonteCarloEstimator.SUGGESTED_MAX_TABLE_ERROR);
+			assertTrue(table.getMaxError() <= coarse.getMaxError());
+			for (double x = -20; x <= 20; x += 0.01) {
+				final double pdfValue = d.pdf(x);
+				assertEquals("Error for " + d + " at x=" + x, mc.integrate(pdfValue), coarse.lookup(pdfValue), coarse.getMaxError());
+				assertEquals("Error for " + d + " at x=" + x, mc.integrate(pdfValue), table.lookup(pdfValue), table.getMaxError());
+			}
+		}
+	}
+
+	@Test
+	public void testEstimatorWithTable() {
+		// the estimator integrates over the support of the distribution, so it has to be bounded
+		final Beta b = new Beta(2, 5);
+		final MonteCarloEstimator table = new MonteCarloEstimator(1000, 100000, MonteCarloEstimator.SUGGESTED_MAX_TABLE_ERROR);
+		final MonteCarloEstimator noTable = new MonteCarloEstimator(1000, 100000);
+		table.preprocess(Arrays.asList(b));
+		noTable.preprocess(Arrays.asList(b));
+		for (double d = 0; d <= 1; d += 0.001) {
+			assertEquals("Error while comparing for d=" + d, noTable.estimateTau(b, d), table.estimateTau(b, d), 0.01);
+		}
+	}
+
+	@Test
+	public void testParallelPreprocessing() {
+		final Normal n = new Normal(0, 1);
+		try {
+			Settings.setParallel(false);
+			MasterSeed.reset();
+			final MonteCarloIntegration sequential = new MonteCarloIntegration(100000);
+			sequential.preprocess(n, 1000, -20, 20);
+			Settings.setParallel(true);
+			MasterSeed.reset();
+			final MonteCarloIntegration parallel = new MonteCarloIntegration(100000);
+			parallel.preprocess(n, 1000, -20, 20);
+			assertEquals(sequential, parallel);
+			for (double d = -5; d < 5; d += 0.1) {
+				assertEquals(sequential.integrate(n.pdf(d)), parallel.integrate(n.pdf(d)), 0);
+			}
+		} finally {
+			Settings.setParallel(true);
+		}
+	}
+
 }
@@ -16,6 +16,10 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.tuple.Pair;
@@ -27,7 +31,13 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import sadl.constants.ClassLabel;
 import sadl.input.TimedInput;
+import sadl.input.TimedWord;
 import sadl.interfaces.ProbabilisticModel;
 import sadl.modellearner.rtiplus.SimplePDRTALearner;
 import sadl.modellearner.rtiplus.SimplePDRTALearner.SplitPosition;
@@ -35,6 +45,8 @@ import sadl.modellearner.rtiplus.analysis.FrequencyAnalysis;
 import sadl.modellearner.rtiplus.analysis.QuantileAnalysis;
 import sadl.modellearner.rtiplus.tester.LikelihoodRatioTester;
 import sadl.modellearner.rtiplus.tester.NaiveLikelihoodRatioTester;
+import sadl.models.pdrta.PDRTA;
+import sadl.models.pdrta.PDRTAInput;
 import sadl.utils.IoUtils;
 
 public class RtiPlusTest {
@@ -258,4 +270,64 @@ public class RtiPlusTest {
 
 	}
 
+	@Test
+	public void testCompiledScoring() throws URISyntaxException, IOException {
+		logger.info("Starting testCompiledScoring...");
+
+		final TDoubleArrayList eventLikelihoods = new TDoubleArrayList();
+		final TDoubleArrayList timeLikelihoods = new TDoubleArrayList();
+		for (int i = 1; i <= 5; i++) {
+
+			final TimedInput ti = TimedInput.parse(Paths.get(this.getClass().getResource("/pdrta/test_" + i + ".inp").toURI()));
+			final List<TimedWord> words = new ArrayList<>();
+			final Random r = new Random(i);
+			for (final TimedWord w : ti) {
+				words.add(w);
+				// words with shifted time values and with a changed symbol may leave the automaton
+				final List<String> symbols = new ArrayList<>();
+				final TIntList shifted = new TIntArrayList();
+				for (int j = 0; j < w.length(); j++) {
+					symbols.add(w.getSymbol(j));
+					shifted.add(w.getTimeValue(j) + r.nextInt(50));
+				}
+				words.add(new TimedWord(symbols, shifted, ClassLabel.NORMAL));
+				final List<String> changed = new ArrayList<>(symbols);
+				if (!changed.isEmpty()) {
+					changed.set(r.nextInt(changed.size()), ti.getSymbol(r.nextInt(ti.getAlphSize())));
+				}
+				words.add(new TimedWord(changed, w.getTimeValues(), ClassLabel.NORMAL));
+			}
+			words.add(new TimedWord(Arrays.asList("unknownSymbol"), new TIntArrayList(new int[] { 1 }), ClassLabel.NORMAL));
+
+			// the timed augmented prefix tree is scored from its tails until the input is cleaned up, afterwards the compiled form is used
+			final PDRTA a = new PDRTA(new PDRTAInput(ti, new QuantileAnalysis(4), 0.0));
+			final List<TDoubleList> expectedSymbol = new ArrayList<>();
+			final List<TDoubleList> expectedTime = new ArrayList<>();
+			final List<TDoubleList> expectedTrans = new ArrayList<>();
+			for (final TimedWord w : words) {
+				expectedSymbol.add(a.calculateProbabilities(w).getFirst());
+				expectedTime.add(a.calculateProbabilities(w).getSecond());
+				expectedTrans.add(a.calculateProbsTrans(w).getFirst());
+				eventLikelihoods.resetQuick();
+				timeLikelihoods.resetQuick();
+				a.calculateProbabilities(w, eventLikelihoods, timeLikelihoods);
+				assertEquals(expectedSymbol.get(expectedSymbol.size() - 1), eventLikelihoods);
+				assertEquals(expectedTime.get(expectedTime.size() - 1), timeLikelihoods);
+			}
+			a.cleanUp();
+			for (int j = 0; j < words.size(); j++) {
+				final TimedWord w = words.get(j);
+				assertEquals("Symbol probabilities differ for " + w, expectedSymbol.get(j), a.calculateProbabilities(w).getFirst());
+				assertEquals("Time probabilities differ for " + w, expectedTime.get(j), a.calculateProbabilities(w).getSecond());
+				assertEquals("Transition probabilities differ for " + w, expectedTrans.get(j), a.calculateProbsTrans(w).getFirst());
+				eventLikelihoods.resetQuick();
+				timeLikelihoods.resetQuick();
+				a.calculateProbabilities(w, eventLikelihoods, timeLikelihoods);
+				assertEquals("Symbol probabilities differ for " + w, expectedSymbol.get(j), eventLikelihoods);
+				assertEquals("Time probabilities differ for " + w, expectedTime.get(j), timeLikelihoods);
+			}
+		}
+		logger.info("Finished testCompiledScoring.");
+	}
+
 }
@@ -11,6 +11,7 @@
 package sadl.modellearner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -22,6 +23,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import jsat.distributions.ContinuousDistribution;
+import jsat.distributions.empirical.MyKernelDensityEstimator;
 import sadl.input.TimedInput;
 import sadl.models.TauPTA;
 import sadl.models.TauPtaTestV1;
@@ -55,4 +58,24 @@ public class TauPtaLearnerTest {
 
 	}
 
+	@Test
+	public void testKdeMaxBinningError() throws IOException, URISyntaxException {
+		final TimedInput train = TimedInput.parseAlt(Paths.get(TauPtaTestV1.class.getResource("/taupta/small/rti_small.txt").toURI()), 1);
+		final double maxBinningError = 0.001;
+		@SuppressWarnings("deprecation")
+		final TauPTA oldPta = new TauPTA(train, maxBinningError);
+		final TauPTA newPta = new TauPtaLearner(null, -1, maxBinningError, null).train(train);
+		assertEquals(newPta, oldPta);
+		int kdeCount = 0;
+		for (final TauPTA pta : new TauPTA[] { oldPta, newPta }) {
+			for (final ContinuousDistribution d : pta.getTransitionDistributions().values()) {
+				if (d instanceof MyKernelDensityEstimator) {
+					assertEquals(maxBinningError, ((MyKernelDensityEstimator) d).getMaxBinningError(), 0);
+					kdeCount++;
+				}
+			}
+		}
+		assertTrue(kdeCount > 0);
+	}
+
 }
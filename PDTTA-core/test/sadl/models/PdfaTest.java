@@ -10,24 +10,50 @@
  */
 package sadl.models;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.math3.util.Pair;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.TIntDoubleMap;
 import gnu.trove.map.hash.TIntDoubleHashMap;
+import sadl.constants.AnomalyInsertionType;
+import sadl.constants.ClassLabel;
 import sadl.input.TimedInput;
+import sadl.input.TimedWord;
+import sadl.modellearner.TauPtaLearner;
 import sadl.structure.Transition;
+import sadl.tau_estimation.IdentityEstimator;
+import sadl.utils.Settings;
 
 public class PdfaTest {
+	// TauPTA learned from the small rti data set, a mutable copy and test words with anomalies (see setUpSmallPta)
+	private TauPTA pta;
+	private TauPTA mutable;
+	private TimedInput test;
 
 	@BeforeClass
 	public static void setUpBeforeClass() throws Exception {
@@ -77,4 +103,188 @@ public class PdfaTest {
 
 	}
 
+	@Test
+	public void testTransitionLookup() {
+		final TimedInput alphabet = new TimedInput(new String[] { "a", "b" });
+		final TIntDoubleMap finalStateProbabilities = new TIntDoubleHashMap();
+		finalStateProbabilities.put(0, 0);
+		finalStateProbabilities.put(1, 0);
+		finalStateProbabilities.put(2, 1);
+
+		final Set<Transition> transitions = new HashSet<>();
+		final Transition t1 = new Transition(0, 1, "a", 0.5);
+		final Transition t2 = new Transition(0, 2, "b", 0.5);
+		final Transition t3 = new Transition(1, 2, "a", 1);
+		transitions.add(t1);
+		transitions.add(t2);
+		transitions.add(t3);
+		final PDFA pdfa = new PDFA(alphabet, transitions, finalStateProbabilities);
+
+		assertEquals(t1, pdfa.getTransition(0, "a"));
+		assertEquals(t2, pdfa.getTransition(0, "b"));
+		assertNull(pdfa.getTransition(1, "b"));
+		assertEquals(0.5, pdfa.getTransitionProbability(0, 2, "b"), 0);
+		assertEquals(PDFA.NO_TRANSITION_PROBABILITY, pdfa.getTransitionProbability(0, 1, "b"), 0);
+		assertEquals(3, pdfa.getOutTransitions(0, true).size());
+		assertEquals(2, pdfa.getInOutTransitions(2, false).getFirst().size());
+
+		pdfa.removeTransition(t2);
+		assertNull(pdfa.getTransition(0, "b"));
+		assertEquals(1, pdfa.getInOutTransitions(2, false).getFirst().size());
+		final Transition t4 = pdfa.addTransition(0, 2, "b", 0.5);
+		assertEquals(t4, pdfa.getTransition(0, "b"));
+
+		final PDFA clone = SerializationUtils.clone(pdfa);
+		assertEquals(t3, clone.getTransition(1, "a"));
+		assertEquals(2, clone.getOutTransitions(0, false).size());
+	}
+
+	/**
+	 * Creates a PDFA that accepts the empty word (probability 0.2), "b" (probability 0.3) and "a a" (probability 0.5).
+	 */
+	private static PDFA createSmallPdfa() {
+		final TimedInput alphabet = new TimedInput(new String[] { "a", "b" });
+		final TIntDoubleMap finalStateProbabilities = new TIntDoubleHashMap();
+		finalStateProbabilities.put(0, 0.2);
+		finalStateProbabilities.put(1, 0);
+		finalStateProbabilities.put(2, 1);
+		final Set<Transition> transitions = new HashSet<>();
+		transitions.add(new Transition(0, 1, "a", 0.5));
+		transitions.add(new Transition(0, 2, "b", 0.3));
+		transitions.add(new Transition(1, 2, "a", 1));
+		return new PDFA(alphabet, transitions, finalStateProbabilities);
+	}
+
+	/**
+	 * Learns an immutable TauPTA from the small rti data set, copies it into a mutable one and inserts random anomalies into the training data. The TauPTA
+	 * needs a tau estimator to compute time likelihoods.
+	 */
+	private void setUpSmallPta() throws URISyntaxException, IOException {
+		final Path p = Paths.get(PdfaTest.class.getResource("/taupta/small/rti_small.txt").toURI());
+		final TimedInput train = TimedInput.parseAlt(p, 1);
+		pta = new TauPtaLearner(null, -1, new IdentityEstimator()).train(train);
+		mutable = SerializationUtils.clone(pta);
+		mutable.makeMutable();
+		test = train.insertRandomAnomalies(AnomalyInsertionType.ALL, 0.5);
+	}
+
+	@Test
+	public void testCompiledScoring() throws URISyntaxException, IOException {
+		final PDFA pdfa = createSmallPdfa();
+		final List<TimedWord> words = new ArrayList<>();
+		for (final String w : new String[] { "", "a", "a a", "b", "b a", "a b", "c", "#", "a # a" }) {
+			final List<String> symbols = w.isEmpty() ? new ArrayList<>() : Arrays.asList(w.split(" "));
+			final TIntList timeValues = new TIntArrayList();
+			symbols.forEach(symbol -> timeValues.add(1));
+			words.add(new TimedWord(symbols, timeValues, ClassLabel.NORMAL));
+		}
+		final List<TDoubleList> expected = new ArrayList<>();
+		for (final TimedWord w : words) {
+			expected.add(pdfa.computeEventLikelihoods(w));
+		}
+		pdfa.makeImmutable();
+		assertEquals(3, pdfa.compile().getStateCount());
+		for (int i = 0; i < words.size(); i++) {
+			assertEquals(expected.get(i), pdfa.computeEventLikelihoods(words.get(i)));
+		}
+
+		setUpSmallPta();
+		assertTrue(pta.isImmutable());
+		assertFalse(mutable.isImmutable());
+		for (final TimedWord w : test) {
+			assertEquals(mutable.calculateProbabilities(w), pta.calculateProbabilities(w));
+		}
+	}
+
+	@Test
+	public void testBufferScoring() throws URISyntaxException, IOException {
+		setUpSmallPta();
+		final TDoubleArrayList eventLikelihoods = new TDoubleArrayList();
+		final TDoubleArrayList timeLikelihoods = new TDoubleArrayList();
+		for (final PDFA model : new PDFA[] { pta, mutable }) {
+			for (final TimedWord w : test) {
+				final Pair<TDoubleList, TDoubleList> expected = model.calculateProbabilities(w);
+				eventLikelihoods.resetQuick();
+				timeLikelihoods.resetQuick();
+				model.calculateProbabilities(w, eventLikelihoods, timeLikelihoods);
+				assertEquals(expected.getFirst(), eventLikelihoods);
+				assertEquals(expected.getSecond(), timeLikelihoods);
+				// the likelihoods are appended to the elements that are already in the lists
+				model.calculateProbabilities(w, eventLikelihoods, timeLikelihoods);
+				assertEquals(expected.getFirst(), eventLikelihoods.subList(expected.getFirst().size(), eventLikelihoods.size()));
+				assertEquals(expected.getSecond(), timeLikelihoods.subList(expected.getSecond().size(), timeLikelihoods.size()));
+			}
+		}
+	}
+
+	@Test
+	public void testParallelSampling() throws URISyntaxException, IOException {
+		setUpSmallPta();
+		try {
+			Settings.setParallel(false);
+			pta.setRandom(new Random(1));
+			final List<TimedWord> sequential = pta.sampleSequences(1000);
+			final List<TimedWord> longSequential = pta.sampleSequences(100, w -> w.length() > 3);
+			Settings.setParallel(true);
+			pta.setRandom(new Random(1));
+			assertEquals(sequential, pta.sampleSequences(1000));
+			final List<TimedWord> longParallel = pta.sampleSequences(100, w -> w.length() > 3);
+			assertEquals(longSequential, longParallel);
+			assertEquals(100, longParallel.size());
+			assertTrue(longParallel.stream().allMatch(w -> w.length() > 3));
+		} finally {
+			Settings.setParallel(true);
+		}
+	}
+
+	@Test
+	public void testAliasSampling() {
+		final PDFA pdfa = createSmallPdfa();
+		pdfa.makeImmutable();
+		final int samples = 100000;
+		final Random random = new Random(1);
+		final List<TimedWord> words = new ArrayList<>();
+		int empty = 0;
+		int b = 0;
+		for (int i = 0; i < samples; i++) {
+			final TimedWord w = pdfa.sampleSequence(random);
+			words.add(w);
+			if (w.length() == 0) {
+				empty++;
+			} else if (w.getSymbol(0).equals("b")) {
+				assertEquals(1, w.length());
+				b++;
+			} else {
+				assertEquals(2, w.length());
+			}
+		}
+		assertEquals(0.2, empty / (double) samples, 0.01);
+		assertEquals(0.3, b / (double) samples, 0.01);
+		final Random sameRandom = new Random(1);
+		for (int i = 0; i < samples; i++) {
+			assertEquals(words.get(i), pdfa.sampleSequence(sameRandom));
+		}
+	}
+
+	@Test
+	public void testAliasSamplingUnlistedState() {
+		final TimedInput alphabet = new TimedInput(new String[] { "a", "b" });
+		final TIntDoubleMap finalStateProbabilities = new TIntDoubleHashMap();
+		finalStateProbabilities.put(0, 0);
+		finalStateProbabilities.put(2, 1);
+		final Set<Transition> transitions = new HashSet<>();
+		// state 1 is only reached by a transition and has no final state probability
+		transitions.add(new Transition(0, 1, "a", 1));
+		transitions.add(new Transition(1, 2, "b", 1));
+		final PDFA pdfa = new PDFA(alphabet, transitions, finalStateProbabilities);
+		pdfa.makeImmutable();
+		final Random random = new Random(1);
+		for (int i = 0; i < 100; i++) {
+			final TimedWord w = pdfa.sampleSequence(random);
+			assertEquals(2, w.length());
+			assertEquals("a", w.getSymbol(0));
+			assertEquals("b", w.getSymbol(1));
+		}
+	}
+
 }
@@ -0,0 +1,126 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.models.pdta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import sadl.models.pta.Event;
+import sadl.models.pta.HalfClosedInterval;
+import sadl.models.pta.SubEvent;
+
+public class PDTAStateTest {
+
+	/**
+	 * Compares the lookups of a state with transitions that are added out of order against the former implementation with a {@link TreeMap} of the
+	 * transitions per symbol (keyed by the interval minimum) and a {@link TreeMap} of the transitions keyed by the sum of the probabilities before them.
+	 */
+	@Test
+	public void testTransitionLookup() {
+		final PDTAState state = new PDTAState(0, 0.1);
+		final PDTAState target = new PDTAState(1, 1.0);
+		final Event a = new Event("a", new TreeMap<>());
+		final Event b = new Event("b", new TreeMap<>());
+		final List<SubEvent> subEvents = new ArrayList<>();
+		final List<Double> probabilities = new ArrayList<>();
+		addTransition(state, target, createSubEvent(a, "2", 10, 20), 0.2, subEvents, probabilities);
+		addTransition(state, target, createSubEvent(b, "1", 5, 15), 0.3, subEvents, probabilities);
+		addTransition(state, target, createSubEvent(a, "3", 30, 40), 0.1, subEvents, probabilities);
+		addTransition(state, target, createSubEvent(a, "1", 0, 10), 0.3, subEvents, probabilities);
+
+		final List<PDTATransition> transitions = state.getTransitions();
+		assertEquals(subEvents.size(), transitions.size());
+		final Map<String, TreeMap<Double, PDTATransition>> bySymbol = new HashMap<>();
+		final TreeMap<Double, PDTATransition> byProbability = new TreeMap<>();
+		double sumProbabilities = state.getEndProbability();
+		for (int i = 0; i < subEvents.size(); i++) {
+			final PDTATransition t = findTransition(transitions, subEvents.get(i));
+			assertSame(target, t.getTarget());
+			assertEquals(probabilities.get(i).doubleValue(), t.getPropability(), 0);
+			bySymbol.computeIfAbsent(t.getEvent().getEvent().getSymbol(), s -> new TreeMap<>()).put(Double.valueOf(t.getInterval().getMinimum()), t);
+			byProbability.put(Double.valueOf(sumProbabilities), t);
+			sumProbabilities += t.getPropability();
+		}
+		// grouped by symbol and sorted by the interval minimum
+		final List<PDTATransition> expectedOrder = new ArrayList<>();
+		expectedOrder.addAll(bySymbol.get("a").values());
+		expectedOrder.addAll(bySymbol.get("b").values());
+		assertEquals(expectedOrder, transitions);
+
+		for (final String symbol : new String[] { "a", "b", "c" }) {
+			for (double time = -5; time <= 45; time += 0.5) {
+				PDTATransition expected = null;
+				final TreeMap<Double, PDTATransition> eventTransitions = bySymbol.get(symbol);
+				if (eventTransitions != null) {
+					final Entry<Double, PDTATransition> entry = eventTransitions.floorEntry(Double.valueOf(time));
+					if (entry != null && entry.getValue().inInterval(time)) {
+						expected = entry.getValue();
+					}
+				}
+				assertSame(symbol + " at " + time, expected, state.getTransition(symbol, time));
+				assertSame(symbol + " at " + time, expected == null ? null : target, state.getNextState(symbol, time));
+				if (expected == null && eventTransitions != null) {
+					double maxProbability = 0.0;
+					for (final PDTATransition t : eventTransitions.values()) {
+						final double probability = t.getEvent().calculateProbability(time);
+						if (probability > maxProbability) {
+							maxProbability = probability;
+							expected = t;
+						}
+					}
+				}
+				assertSame(symbol + " at " + time, expected, state.getMostProbablyTransition(symbol, time));
+			}
+		}
+
+		final Random expectedRandom = new Random(1);
+		final Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			final double randomValue = expectedRandom.nextDouble();
+			final PDTATransition expected = randomValue <= state.getEndProbability() ? null : byProbability.floorEntry(Double.valueOf(randomValue)).getValue();
+			assertSame(expected, state.getRandomTransition(random));
+		}
+		assertNull(state.getTransition("a", 20));
+	}
+
+	private static SubEvent createSubEvent(Event event, String subEventNumber, double min, double max) {
+		final HalfClosedInterval interval = new HalfClosedInterval(min, max);
+		return new SubEvent(event, subEventNumber, (min + max) / 2, 2, interval, interval.clone(), interval.clone());
+	}
+
+	private static void addTransition(PDTAState state, PDTAState target, SubEvent subEvent, double probability, List<SubEvent> subEvents,
+			List<Double> probabilities) {
+		state.addTransition(subEvent, target, subEvent.getBounds(), probability);
+		subEvents.add(subEvent);
+		probabilities.add(Double.valueOf(probability));
+	}
+
+	private static PDTATransition findTransition(List<PDTATransition> transitions, SubEvent subEvent) {
+		for (final PDTATransition t : transitions) {
+			if (t.getEvent() == subEvent) {
+				return t;
+			}
+		}
+		throw new AssertionError("No transition for " + subEvent);
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * This file is part of SADL, a library for learning all sorts of (timed) automata and performing sequence-based anomaly detection.
+ * Copyright (C) 2013-2018  the original author or authors.
+ *
+ * SADL is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * SADL is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with SADL.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sadl.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import sadl.input.TimedInput;
+import sadl.run.datagenerators.Temp;
+
+public class IoUtilsTest {
+
+	@Test
+	public void testReadTrainTestFile() throws URISyntaxException, IOException {
+		final TimedInput train = TimedInput.parseAlt(Paths.get(IoUtilsTest.class.getResource("/taupta/small/rti_small.txt").toURI()));
+		final TimedInput test = TimedInput.parse(Paths.get(IoUtilsTest.class.getResource("/pdta/my_test_9-5000.inp").toURI()));
+		final Path file = Files.createTempFile("traintest", ".txt");
+		try {
+			IoUtils.writeTrainTestFile(file, train, test);
+			Pair<TimedInput, TimedInput> result = IoUtils.readTrainTestFile(file);
+			assertEquals(train, result.getLeft());
+			assertEquals(test, result.getRight());
+
+			final String sep = Temp.TRAIN_TEST_SEP;
+			final String content = "(a,1) (b,2)\r\n(c,3):1\r" + sep + "\r\n(d,4)\r" + sep + "\n\n(e,5)\n";
+			Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+			result = IoUtils.readTrainTestFile(file);
+			assertEquals(TimedInput.parse(new StringReader("(a,1) (b,2)\n(c,3):1")), result.getLeft());
+			assertEquals(TimedInput.parse(new StringReader("(d,4)\n(e,5)")), result.getRight());
+
+			Files.write(file, ("(a,1)\n" + sep).getBytes(StandardCharsets.UTF_8));
+			result = IoUtils.readTrainTestFile(file);
+			assertEquals(TimedInput.parse(new StringReader("(a,1)")), result.getLeft());
+			assertEquals(0, result.getRight().size());
+
+			Files.write(file, "(a,1)\n(b,2)".getBytes(StandardCharsets.UTF_8));
+			assertNull(IoUtils.readTrainTestFile(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testGzip() throws URISyntaxException, IOException {
+		final TimedInput train = TimedInput.parseAlt(Paths.get(IoUtilsTest.class.getResource("/taupta/small/rti_small.txt").toURI()));
+		final TimedInput test = TimedInput.parse(Paths.get(IoUtilsTest.class.getResource("/pdta/my_test_9-5000.inp").toURI()));
+		final Path dir = Files.createTempDirectory("gzip");
+		final Path file = dir.resolve("traintest.txt.gz");
+		final Path noExtension = dir.resolve("traintest.dat");
+		try {
+			IoUtils.writeTrainTestFile(file, train, test);
+			assertTrue(IoUtils.isGzipFile(file));
+			Files.copy(file, noExtension);
+			assertTrue(IoUtils.isGzipFile(noExtension));
+			for (final Path p : new Path[] { file, noExtension }) {
+				final Pair<TimedInput, TimedInput> result = IoUtils.readTrainTestFile(p);
+				assertEquals(train, result.getLeft());
+				assertEquals(test, result.getRight());
+			}
+			Files.delete(noExtension);
+
+			final String sep = Temp.TRAIN_TEST_SEP;
+			try (BufferedWriter bw = IoUtils.newBufferedWriter(file)) {
+				bw.write("(a,1) (b,2)\r\n(c,3):1\r" + sep + "\r\n(d,4)\r" + sep + "\n\n(e,5)\n");
+			}
+			final Pair<TimedInput, TimedInput> result = IoUtils.readTrainTestFile(file);
+			assertEquals(TimedInput.parse(new StringReader("(a,1) (b,2)\n(c,3):1")), result.getLeft());
+			assertEquals(TimedInput.parse(new StringReader("(d,4)\n(e,5)")), result.getRight());
+
+			test.toFile(file, true);
+			assertEquals(test, TimedInput.parse(file));
+			train.toFileAlt(file, true);
+			assertEquals(train, TimedInput.parseAlt(file));
+			assertFalse(IoUtils.isGzipFile(Paths.get(IoUtilsTest.class.getResource("/pdtta/smac_mix_type1.txt").toURI())));
+
+			try (BufferedWriter bw = IoUtils.newBufferedWriter(file)) {
+				bw.write("(a,1)\n(b,2)");
+			}
+			assertNull(IoUtils.readTrainTestFile(file));
+		} finally {
+			Files.deleteIfExists(noExtension);
+			Files.deleteIfExists(file);
+			Files.delete(dir);
+		}
+	}
+
+}